@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.benchmark;
+
+/**
+ * A single operation whose cost is measured by the {@link BenchmarkRunner}. Benchmarks are run at
+ * several scales, where the meaning of the scale (e.g. number of resources in a discovery document,
+ * or number of values to validate) is up to the benchmark.
+ *
+ */
+public abstract class Benchmark {
+  private final String name;
+
+  protected Benchmark(String name) {
+    this.name = name;
+  }
+
+  /**
+   * Returns the name under which the results are reported.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Prepare the inputs for the specified scale. This is not measured.
+   */
+  public abstract void setUp(int scale);
+
+  /**
+   * Perform a single operation.
+   *
+   * @return A value which depends on the work done, so that it cannot be optimized away.
+   */
+  public abstract int run();
+}
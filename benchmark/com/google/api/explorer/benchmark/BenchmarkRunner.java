@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.benchmark;
+
+import com.google.api.explorer.client.base.ApiServiceHelperBenchmarks;
+import com.google.api.explorer.client.base.LzCodecBenchmarks;
+import com.google.api.explorer.client.editors.ValidatorBenchmarks;
+import com.google.api.explorer.client.history.LinkClassificationBenchmarks;
+import com.google.api.explorer.client.routing.RoutingBenchmarks;
+import com.google.api.explorer.client.search.SearchBenchmarks;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the JVM benchmarks for the pure Java code paths of the Explorer and prints the time per
+ * operation of each one at every scale.
+ *
+ * <p>
+ * Usage: {@code BenchmarkRunner [name substring]}. The scales, number of measured rounds and the
+ * length of each round can be changed with the {@code benchmark.scales},
+ * {@code benchmark.rounds} and {@code benchmark.roundMillis} system properties.
+ * </p>
+ *
+ */
+public class BenchmarkRunner {
+  private static final String DEFAULT_SCALES = "10,100,1000";
+  private static final int DEFAULT_ROUNDS = 5;
+  private static final int DEFAULT_ROUND_MILLIS = 200;
+  private static final int WARMUP_ROUNDS = 3;
+  private static final int MAX_BATCH = 1 << 16;
+
+  /** Accumulates the results of every operation, so that the work cannot be optimized away. */
+  private static volatile int sink;
+
+  private final int rounds;
+  private final long roundNanos;
+
+  public BenchmarkRunner(int rounds, int roundMillis) {
+    this.rounds = rounds;
+    this.roundNanos = roundMillis * 1000000L;
+  }
+
+  /**
+   * Returns all of the benchmarks known to the runner.
+   */
+  public static List<Benchmark> allBenchmarks() {
+    return ImmutableList.<Benchmark>builder()
+        .addAll(LinkClassificationBenchmarks.benchmarks())
+        .addAll(RoutingBenchmarks.benchmarks())
+        .addAll(SearchBenchmarks.benchmarks())
+        .addAll(ValidatorBenchmarks.benchmarks())
+        .addAll(ApiServiceHelperBenchmarks.benchmarks())
+        .addAll(LzCodecBenchmarks.benchmarks())
+        .build();
+  }
+
+  public static void main(String[] args) {
+    String filter = args.length > 0 ? args[0] : "";
+    List<Integer> scales = Lists.newArrayList();
+    for (String scale : Splitter.on(',').trimResults().omitEmptyStrings()
+        .split(System.getProperty("benchmark.scales", DEFAULT_SCALES))) {
+      scales.add(Integer.parseInt(scale));
+    }
+
+    BenchmarkRunner runner = new BenchmarkRunner(
+        Integer.getInteger("benchmark.rounds", DEFAULT_ROUNDS),
+        Integer.getInteger("benchmark.roundMillis", DEFAULT_ROUND_MILLIS));
+
+    System.out.println(String.format(
+        "%-45s %8s %14s %14s", "benchmark", "scale", "best ns/op", "median ns/op"));
+    for (Benchmark benchmark : allBenchmarks()) {
+      if (!benchmark.getName().contains(filter)) {
+        continue;
+      }
+
+      for (int scale : scales) {
+        double[] results = runner.measure(benchmark, scale);
+        System.out.println(String.format("%-45s %8d %14.1f %14.1f",
+            benchmark.getName(), scale, results[0], results[results.length / 2]));
+      }
+    }
+  }
+
+  /**
+   * Measure the benchmark at the specified scale.
+   *
+   * @return The time per operation in nanoseconds of each measured round, sorted ascending.
+   */
+  public double[] measure(Benchmark benchmark, int scale) {
+    benchmark.setUp(scale);
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      runRound(benchmark);
+    }
+
+    double[] results = new double[rounds];
+    for (int i = 0; i < rounds; i++) {
+      results[i] = runRound(benchmark);
+    }
+    Arrays.sort(results);
+    return results;
+  }
+
+  /**
+   * Run the benchmark repeatedly for the length of a round, checking the clock in batches so that
+   * reading it does not dominate fast operations.
+   *
+   * @return The time per operation in nanoseconds.
+   */
+  private double runRound(Benchmark benchmark) {
+    long operations = 0;
+    int batch = 1;
+    int result = 0;
+    long start = System.nanoTime();
+    long elapsed;
+    do {
+      for (int i = 0; i < batch; i++) {
+        result += benchmark.run();
+      }
+      operations += batch;
+      elapsed = System.nanoTime() - start;
+      if (elapsed < roundNanos / 8) {
+        batch = Math.min(batch * 2, MAX_BATCH);
+      }
+    } while (elapsed < roundNanos);
+
+    sink += result;
+    return (double) elapsed / operations;
+  }
+}
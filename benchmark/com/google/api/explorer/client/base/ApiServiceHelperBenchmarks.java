@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.base;
+
+import com.google.api.explorer.benchmark.Benchmark;
+import com.google.api.explorer.client.base.rest.SyntheticDiscovery;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * Benchmarks for the {@link ApiServiceHelper}, where the scale is the number of resources in the
+ * service.
+ *
+ */
+public class ApiServiceHelperBenchmarks {
+
+  public static List<Benchmark> benchmarks() {
+    return ImmutableList.<Benchmark>of(new ServiceBenchmark("ApiServiceHelper.resolveMethod") {
+      @Override
+      public int run() {
+        // Old style identifiers are not found directly, so they fall back to scanning all methods.
+        String oldIdentifier = "resource" + (scale - 1) + ".get";
+        return ApiServiceHelper.resolveMethod(service, oldIdentifier) == null ? 0 : 1;
+      }
+    }, new ServiceBenchmark("ApiServiceHelper.generateKindUsages") {
+      @Override
+      public int run() {
+        return ApiServiceHelper.generateKindUsages(service).size();
+      }
+    });
+  }
+
+  private abstract static class ServiceBenchmark extends Benchmark {
+    protected ApiService service;
+    protected int scale;
+
+    ServiceBenchmark(String name) {
+      super(name);
+    }
+
+    @Override
+    public void setUp(int scale) {
+      this.scale = scale;
+      service = SyntheticDiscovery.createService(scale);
+    }
+  }
+}
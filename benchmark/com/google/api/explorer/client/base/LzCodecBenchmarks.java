@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.base;
+
+import com.google.api.explorer.benchmark.Benchmark;
+import com.google.api.explorer.client.base.rest.SyntheticDiscovery;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmarks for the compression of response bodies, where the scale is the number of items in a
+ * list response. The compression ratio is printed when each scale is set up, and the throughput
+ * follows from the body length and the time per operation.
+ *
+ */
+public class LzCodecBenchmarks {
+
+  public static List<Benchmark> benchmarks() {
+    return ImmutableList.<Benchmark>of(new BodyBenchmark("LzCodec.compress") {
+      @Override
+      public void setUp(int scale) {
+        super.setUp(scale);
+        System.out.println(String.format("LzCodec: %d characters compressed to %d (%.1f:1)",
+            body.length(), compressed.length(), (double) body.length() / compressed.length()));
+      }
+
+      @Override
+      public int run() {
+        return LzCodec.compress(body).length();
+      }
+    }, new BodyBenchmark("LzCodec.decompress") {
+      @Override
+      public int run() {
+        return LzCodec.decompress(compressed).length();
+      }
+    });
+  }
+
+  private abstract static class BodyBenchmark extends Benchmark {
+    protected String body;
+    protected String compressed;
+
+    BodyBenchmark(String name) {
+      super(name);
+    }
+
+    @Override
+    public void setUp(int scale) {
+      Random random = new Random(scale);
+      StringBuilder json = new StringBuilder("{\n \"kind\": \"synthetic#itemList\",\n \"items\": [");
+      for (int i = 0; i < scale; i++) {
+        json.append(i == 0 ? "\n" : ",\n").append("  {\n   \"kind\": \"synthetic#item\",\n")
+            .append("   \"id\": \"").append(random.nextLong()).append("\",\n")
+            .append("   \"selfLink\": \"").append(SyntheticDiscovery.itemLink(i % 10, i))
+            .append("\",\n   \"description\": \"")
+            .append(SyntheticDiscovery.description(random, 8)).append("\"\n  }");
+      }
+      body = json.append("\n ]\n}").toString();
+      compressed = LzCodec.compress(body);
+    }
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.base.rest;
+
+import com.google.api.explorer.client.base.Config;
+import com.google.api.explorer.client.base.rest.RestApiService.Helper.Factory;
+import com.google.web.bindery.autobean.shared.AutoBeanCodex;
+import com.google.web.bindery.autobean.vm.AutoBeanFactorySource;
+
+import java.util.Random;
+
+/**
+ * Generates discovery documents of arbitrary size for the benchmarks. Every resource has a list,
+ * get, insert and delete method with described parameters, and a schema with a kind, so that
+ * documents exercise the same code paths as real services.
+ *
+ */
+public class SyntheticDiscovery {
+  public static final String NAME = "synthetic";
+  public static final String VERSION = "v1";
+  public static final String BASE_PATH = "/synthetic/v1/";
+
+  private static final String[] WORDS = {"activity", "album", "bucket", "calendar", "comment",
+      "contact", "dataset", "document", "event", "file", "group", "job", "label", "message",
+      "object", "order", "page", "person", "photo", "project", "query", "report", "series",
+      "table", "task", "topic", "url", "user", "video", "zone", "the", "of", "a", "to", "for",
+      "returns", "lists", "inserts", "deletes", "updates", "identifier", "maximum", "results"};
+
+  private static final long SEED = 42;
+
+  /**
+   * Generate a discovery document with the specified number of resources, each of which has four
+   * methods.
+   */
+  public static String generateDocument(int resourceCount) {
+    Random random = new Random(SEED);
+    StringBuilder json = new StringBuilder();
+    json.append("{\"name\": \"").append(NAME).append("\", \"version\": \"").append(VERSION)
+        .append("\", \"description\": \"").append(description(random, 12))
+        .append("\", \"basePath\": \"").append(BASE_PATH).append("\", \"schemas\": {");
+    for (int i = 0; i < resourceCount; i++) {
+      if (i > 0) {
+        json.append(", ");
+      }
+      json.append("\"Item").append(i).append("\": {\"id\": \"Item").append(i)
+          .append("\", \"type\": \"object\", \"properties\": {")
+          .append("\"kind\": {\"type\": \"string\", \"default\": \"synthetic#item").append(i)
+          .append("\"}, \"id\": {\"type\": \"string\", \"description\": \"")
+          .append(description(random, 6)).append("\"}, \"name\": {\"type\": \"string\"}}}");
+    }
+
+    json.append("}, \"resources\": {");
+    for (int i = 0; i < resourceCount; i++) {
+      if (i > 0) {
+        json.append(", ");
+      }
+      String resource = "resource" + i;
+      String collectionPath = resource + "/{parentId}/items";
+      String itemPath = collectionPath + "/{itemId}";
+      json.append('"').append(resource).append("\": {\"methods\": {");
+      appendMethod(json, random, resource, "list", "GET", collectionPath, null);
+      json.append(", ");
+      appendMethod(json, random, resource, "get", "GET", itemPath, null);
+      json.append(", ");
+      appendMethod(json, random, resource, "insert", "POST", collectionPath, "Item" + i);
+      json.append(", ");
+      appendMethod(json, random, resource, "delete", "DELETE", itemPath, null);
+      json.append("}}");
+    }
+    json.append("}}");
+    return json.toString();
+  }
+
+  /**
+   * Generate and parse a discovery document with the specified number of resources.
+   */
+  public static RestApiService createService(int resourceCount) {
+    Factory factory = AutoBeanFactorySource.create(Factory.class);
+    return AutoBeanCodex.decode(factory, RestApiService.class, generateDocument(resourceCount))
+        .as();
+  }
+
+  /**
+   * Returns the URL of an item, as it would appear in the response of a synthetic service.
+   */
+  public static String itemLink(int resource, int item) {
+    return Config.getBaseUrl() + BASE_PATH + "resource" + resource + "/parent" + item
+        + "/items/item" + item;
+  }
+
+  /**
+   * Returns a description made of the specified number of words.
+   */
+  public static String description(Random random, int wordCount) {
+    StringBuilder description = new StringBuilder();
+    for (int i = 0; i < wordCount; i++) {
+      if (i > 0) {
+        description.append(' ');
+      }
+      description.append(WORDS[random.nextInt(WORDS.length)]);
+    }
+    return description.toString();
+  }
+
+  private static void appendMethod(StringBuilder json, Random random, String resource,
+      String name, String httpMethod, String path, String requestSchema) {
+    json.append('"').append(name).append("\": {\"id\": \"").append(NAME).append('.')
+        .append(resource).append('.').append(name).append("\", \"path\": \"").append(path)
+        .append("\", \"httpMethod\": \"").append(httpMethod).append("\", \"description\": \"")
+        .append(description(random, 10)).append("\", \"parameters\": {")
+        .append("\"parentId\": {\"type\": \"string\", \"required\": true, \"location\": \"path\", ")
+        .append("\"description\": \"").append(description(random, 5)).append("\"}, ")
+        .append("\"maxResults\": {\"type\": \"integer\", \"minimum\": \"0\", ")
+        .append("\"maximum\": \"100\", \"location\": \"query\", \"description\": \"")
+        .append(description(random, 5)).append("\"}}");
+    if (requestSchema != null) {
+      json.append(", \"request\": {\"$ref\": \"").append(requestSchema).append("\"}");
+    }
+    json.append('}');
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.editors;
+
+import com.google.api.explorer.benchmark.Benchmark;
+import com.google.api.explorer.client.base.TestUrlEncoder;
+import com.google.api.explorer.client.editors.EditorFactory.DecimalValidator;
+import com.google.api.explorer.client.editors.EditorFactory.IntegerValidator;
+import com.google.api.explorer.client.editors.EditorFactory.MinimumMaximumValidator;
+import com.google.api.explorer.client.editors.EditorFactory.RequiredValidator;
+import com.google.api.explorer.client.editors.EditorFactory.UrlEncodingValidator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+/**
+ * Benchmarks for the parameter validators, where the scale is the number of values of a repeated
+ * parameter that are validated at once. All of the values are valid, so every value is checked.
+ *
+ */
+public class ValidatorBenchmarks {
+
+  public static List<Benchmark> benchmarks() {
+    return ImmutableList.<Benchmark>of(
+        new ValidatorBenchmark("IntegerValidator", new IntegerValidator()),
+        new ValidatorBenchmark("DecimalValidator", new DecimalValidator()),
+        new ValidatorBenchmark(
+            "MinimumMaximumValidator", new MinimumMaximumValidator("-1000000", "1000000")),
+        new ValidatorBenchmark("RequiredValidator", new RequiredValidator()),
+        new ValidatorBenchmark("UrlEncodingValidator", new UrlEncodingValidator()));
+  }
+
+  private static class ValidatorBenchmark extends Benchmark {
+    private final Validator validator;
+    private List<String> values;
+
+    ValidatorBenchmark(String name, Validator validator) {
+      super(name);
+      this.validator = validator;
+    }
+
+    @Override
+    public void setUp(int scale) {
+      EditorFactory.urlEncoder = new TestUrlEncoder();
+
+      values = Lists.newArrayListWithCapacity(scale);
+      for (int i = 0; i < scale; i++) {
+        values.add(String.valueOf(i * 37 - 500));
+      }
+    }
+
+    @Override
+    public int run() {
+      return validator.isValid(values).getType().ordinal();
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.history;
+
+import com.google.api.explorer.benchmark.Benchmark;
+import com.google.api.explorer.client.base.ApiMethod;
+import com.google.api.explorer.client.base.ApiService;
+import com.google.api.explorer.client.base.TestUrlEncoder;
+import com.google.api.explorer.client.base.rest.SyntheticDiscovery;
+import com.google.api.explorer.client.routing.UrlBuilder;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * Benchmarks for recognizing links to service methods in responses, where the scale is the number
+ * of resources in the service.
+ *
+ */
+public class LinkClassificationBenchmarks {
+  /** Number of distinct links cycled through, about the size of a page of list results. */
+  private static final int LINK_COUNT = 100;
+
+  public static List<Benchmark> benchmarks() {
+    return ImmutableList.<Benchmark>of(new LinkBenchmark("JsonPrettifier.getMethodForUrl") {
+      @Override
+      protected int classify(String link) {
+        return JsonPrettifier.getMethodForUrl(service, link) == null ? 0 : 1;
+      }
+    }, new LinkBenchmark("JsonPrettifier.createExplorerLink") {
+      @Override
+      protected int classify(String link) {
+        return JsonPrettifier.createExplorerLink(service, link, method).length();
+      }
+    }, new LinkBenchmark("ExplorerLinkCache.classify") {
+      @Override
+      protected int classify(String link) {
+        return cache.classify(service, link) == null ? 0 : 1;
+      }
+    });
+  }
+
+  /**
+   * Benchmark which classifies links to the items of random resources of the service.
+   */
+  private abstract static class LinkBenchmark extends Benchmark {
+    protected ApiService service;
+    protected ApiMethod method;
+    protected ExplorerLinkCache cache;
+    private String[] links;
+    private int next;
+
+    LinkBenchmark(String name) {
+      super(name);
+    }
+
+    @Override
+    public void setUp(int scale) {
+      UrlBuilder.urlEncoder = new TestUrlEncoder();
+      service = SyntheticDiscovery.createService(scale);
+      cache = new ExplorerLinkCache(1, LINK_COUNT);
+
+      links = new String[LINK_COUNT];
+      for (int i = 0; i < LINK_COUNT; i++) {
+        // Spread the links over the resources so that matching is not always decided by the
+        // first method checked.
+        links[i] = SyntheticDiscovery.itemLink((i * 7919) % scale, i);
+      }
+      method = JsonPrettifier.getMethodForUrl(service, links[0]);
+    }
+
+    @Override
+    public int run() {
+      String link = links[next];
+      next = (next + 1) % links.length;
+      return classify(link);
+    }
+
+    protected abstract int classify(String link);
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.routing;
+
+import com.google.api.explorer.benchmark.Benchmark;
+import com.google.api.explorer.client.base.TestUrlEncoder;
+import com.google.api.explorer.client.routing.UrlBuilder.RootNavigationItem;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.Multimap;
+
+import java.util.List;
+
+/**
+ * Benchmarks for parsing and building history fragments, where the scale is the number of query
+ * parameters in the fragment.
+ *
+ */
+public class RoutingBenchmarks {
+  private static final String PATH = "s/synthetic/v1/synthetic.resource0.list";
+
+  public static List<Benchmark> benchmarks() {
+    return ImmutableList.<Benchmark>of(new FragmentBenchmark("URLFragment.parseFragment") {
+      @Override
+      public int run() {
+        return URLFragment.parseFragment(fragment).getParams().size();
+      }
+    }, new FragmentBenchmark("URLFragment.parseParams") {
+      @Override
+      public int run() {
+        return URLFragment.parseParams(queryString).size();
+      }
+    }, new FragmentBenchmark("UrlBuilder.addQueryParams") {
+      @Override
+      public int run() {
+        return new UrlBuilder()
+            .addRootNavigationItem(RootNavigationItem.ALL_VERSIONS)
+            .addService("synthetic", "v1")
+            .addMethodName("synthetic.resource0.list")
+            .addQueryParams(params)
+            .toString()
+            .length();
+      }
+    });
+  }
+
+  /**
+   * Benchmark over a fragment with the number of query parameters specified by the scale.
+   */
+  private abstract static class FragmentBenchmark extends Benchmark {
+    protected Multimap<String, String> params;
+    protected String queryString;
+    protected String fragment;
+
+    FragmentBenchmark(String name) {
+      super(name);
+    }
+
+    @Override
+    public void setUp(int scale) {
+      URLFragment.urlEncoder = new TestUrlEncoder();
+      UrlBuilder.urlEncoder = new TestUrlEncoder();
+
+      params = LinkedListMultimap.create();
+      StringBuilder query = new StringBuilder();
+      for (int i = 0; i < scale; i++) {
+        String key = "param" + (i % 10);
+        String value = "value " + i + "/" + i;
+        params.put(key, value);
+        if (i > 0) {
+          query.append('&');
+        }
+        query.append(key).append('=').append(value.replace(" ", "+").replace("/", "%2F"));
+      }
+      queryString = query.toString();
+      fragment = PATH + URLFragment.QUERY_SEPARATOR + queryString;
+    }
+  }
+}
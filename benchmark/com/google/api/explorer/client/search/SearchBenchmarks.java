@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.search;
+
+import com.google.api.explorer.benchmark.Benchmark;
+import com.google.api.explorer.client.base.ApiMethod;
+import com.google.api.explorer.client.base.ApiService;
+import com.google.api.explorer.client.base.rest.SyntheticDiscovery;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Benchmarks for keyword extraction, indexing and searching, where the scale is the number of
+ * resources in the indexed service.
+ *
+ */
+public class SearchBenchmarks {
+  private static final String[] QUERIES = {"photo", "list photo", "resource7.get", "returns the",
+      "notakeyword", "delete user identifier"};
+  private static final int COMPLETIONS = 10;
+
+  public static List<Benchmark> benchmarks() {
+    return ImmutableList.<Benchmark>of(new SearchBenchmark("KeywordExtractor.asSet") {
+      private final KeywordExtractor extractor = new KeywordExtractor();
+      private final List<String> descriptions = Lists.newArrayList();
+      private int next;
+
+      @Override
+      public void setUp(int scale) {
+        super.setUp(scale);
+        descriptions.clear();
+        for (ApiMethod method : service.allMethods().values()) {
+          descriptions.add(method.getId() + " " + method.getDescription());
+        }
+      }
+
+      @Override
+      public int run() {
+        next = (next + 1) % descriptions.size();
+        return extractor.asSet(descriptions.get(next)).size();
+      }
+    }, new SearchBenchmark("KeywordScanner.scan") {
+      private final KeywordScanner scanner = new KeywordScanner();
+      private final Set<String> keywords = Sets.newHashSet();
+      private final KeywordScanner.KeywordSink sink = new KeywordScanner.KeywordSink() {
+        @Override
+        public void keyword(String keyword) {
+          keywords.add(keyword);
+        }
+      };
+      private final List<String> descriptions = Lists.newArrayList();
+      private int next;
+
+      @Override
+      public void setUp(int scale) {
+        super.setUp(scale);
+        descriptions.clear();
+        for (ApiMethod method : service.allMethods().values()) {
+          descriptions.add(method.getId() + " " + method.getDescription());
+        }
+      }
+
+      @Override
+      public int run() {
+        next = (next + 1) % descriptions.size();
+        keywords.clear();
+        scanner.scan(descriptions.get(next), sink);
+        return keywords.size();
+      }
+    }, new SearchBenchmark("SearchResultIndex.addDocument") {
+      @Override
+      public int run() {
+        SearchResultIndex index = new SearchResultIndex();
+        index.addDocument(service, new DiscoveryFullTextIndexingStrategy());
+        return Iterables.size(index.search("resource0"));
+      }
+    }, new SearchBenchmark("SearchResultIndex.search") {
+      private SearchResultIndex index;
+      private int next;
+
+      @Override
+      public void setUp(int scale) {
+        super.setUp(scale);
+        index = new SearchResultIndex();
+        index.addDocument(service, new DiscoveryFullTextIndexingStrategy());
+      }
+
+      @Override
+      public int run() {
+        next = (next + 1) % QUERIES.length;
+        return Iterables.size(index.search(QUERIES[next]));
+      }
+    }, new KeywordBenchmark("PostingListIndex.search") {
+      private final PostingListIndex<String> index = new PostingListIndex<String>();
+
+      @Override
+      public void setUp(int scale) {
+        super.setUp(scale);
+        for (Map.Entry<String, Set<String>> method : keywords.entrySet()) {
+          index.add(method.getKey(), method.getValue());
+        }
+        System.out.println(String.format(
+            "PostingListIndex: %d methods, %d keywords, %d postings in %d KB of int arrays",
+            index.getDocumentCount(), index.getKeywordCount(), index.getPostingCount(),
+            index.getPostingCount() * 4 / 1024));
+      }
+
+      @Override
+      public int run() {
+        next = (next + 1) % queries.size();
+        return index.search(queries.get(next)).size();
+      }
+    }, new KeywordBenchmark("SetMultimap intersection") {
+      private final SetMultimap<String, String> index = HashMultimap.create();
+
+      @Override
+      public void setUp(int scale) {
+        super.setUp(scale);
+        for (Map.Entry<String, Set<String>> method : keywords.entrySet()) {
+          for (String keyword : method.getValue()) {
+            index.put(keyword, method.getKey());
+          }
+        }
+      }
+
+      @Override
+      public int run() {
+        next = (next + 1) % queries.size();
+        Set<String> results = null;
+        for (String keyword : queries.get(next)) {
+          Set<String> matches = index.get(keyword);
+          results =
+              results == null ? Sets.newHashSet(matches) : Sets.intersection(results, matches);
+        }
+        return results == null ? 0 : Iterables.size(results);
+      }
+    }, new KeywordBenchmark("KeywordTrie.complete") {
+      private final KeywordTrie trie = new KeywordTrie(COMPLETIONS);
+      private final List<String> prefixes = Lists.newArrayList();
+
+      @Override
+      public void setUp(int scale) {
+        super.setUp(scale);
+        for (Set<String> methodKeywords : keywords.values()) {
+          for (String keyword : methodKeywords) {
+            trie.add(keyword);
+            prefixes.add(keyword.substring(0, (keyword.length() + 1) / 2));
+          }
+        }
+      }
+
+      @Override
+      public int run() {
+        next = (next + 1) % prefixes.size();
+        return trie.complete(prefixes.get(next)).size();
+      }
+    });
+  }
+
+  /**
+   * Benchmark over the keywords of the methods of a synthetic service, which compares the posting
+   * list index with the multimap it replaces.
+   */
+  private abstract static class KeywordBenchmark extends SearchBenchmark {
+    protected final Map<String, Set<String>> keywords = Maps.newLinkedHashMap();
+    protected final List<Set<String>> queries = Lists.newArrayList();
+    protected int next;
+
+    KeywordBenchmark(String name) {
+      super(name);
+    }
+
+    @Override
+    public void setUp(int scale) {
+      super.setUp(scale);
+      KeywordExtractor extractor = new KeywordExtractor();
+      for (ApiMethod method : service.allMethods().values()) {
+        keywords.put(
+            method.getId(), extractor.asSet(method.getId() + " " + method.getDescription()));
+      }
+      for (String query : QUERIES) {
+        queries.add(extractor.asSet(query));
+      }
+    }
+  }
+
+  /**
+   * Benchmark over a synthetic service with the number of resources specified by the scale.
+   */
+  private abstract static class SearchBenchmark extends Benchmark {
+    protected ApiService service;
+
+    SearchBenchmark(String name) {
+      super(name);
+    }
+
+    @Override
+    public void setUp(int scale) {
+      service = SyntheticDiscovery.createService(scale);
+    }
+  }
+}
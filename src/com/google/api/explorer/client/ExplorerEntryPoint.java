@@ -25,7 +25,10 @@ import com.google.api.explorer.client.base.ExplorerConfig;
 import com.google.api.explorer.client.base.ServiceLoader;
 import com.google.api.explorer.client.embedded.EmbeddedResources;
 import com.google.api.explorer.client.history.HistoryCache;
+import com.google.api.explorer.client.history.HistoryStorage;
+import com.google.api.explorer.client.history.HistoryStorage.LocalHistoryStorage;
 import com.google.api.explorer.client.history.JsonPrettifier;
+import com.google.api.explorer.client.history.PersistentHistory;
 import com.google.api.explorer.client.routing.HistoryWrapper;
 import com.google.api.explorer.client.routing.HistoryWrapperImpl;
 import com.google.api.explorer.client.routing.URLManipulator;
@@ -39,6 +42,7 @@ import com.google.api.explorer.client.search.SearchResultIndex;
 import com.google.common.collect.ImmutableList;
 import com.google.gwt.core.client.EntryPoint;
 import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.user.client.History;
 import com.google.gwt.user.client.Window;
 import com.google.gwt.user.client.ui.RootLayoutPanel;
@@ -101,6 +105,11 @@ public class ExplorerEntryPoint implements EntryPoint {
     // Dependencies for the UI
     AuthManager authManager = new AuthManager();
     HistoryCache historyCache = new HistoryCache();
+    historyCache.setCompressionScheduler(Scheduler.get());
+    HistoryStorage historyStorage = LocalHistoryStorage.createIfSupported();
+    if (historyStorage != null) {
+      historyCache.setPersistentHistory(new PersistentHistory(historyStorage, Scheduler.get()));
+    }
     ServiceLoader serviceLoader = new ServiceLoader(ApiServiceFactory.INSTANCE);
     SearchResultIndex searchIndex = new SearchResultIndex();
 
@@ -121,9 +130,12 @@ public class ExplorerEntryPoint implements EntryPoint {
     // Construct the UI and add it to the page.
     FullView fullView = new FullView(manipulator, authManager, analytics, searchKeywords);
     historyManager.delegate = fullView;
+    fullView.setHistoryCache(historyCache);
 
     // If this in compiled GWT, set up the search capability. If it is hosted mode, search
-    // capability is too slow and will be left disabled.
+    // capability is too slow and will be left disabled. The indexing strategies still extract
+    // keywords and index every document synchronously; hosted mode can only be enabled once they
+    // go through KeywordScanner and IncrementalIndexer.
     if (GWT.isScript()) {
       SearchManager searchManager = new SearchManager(serviceLoader,
           searchIndex,
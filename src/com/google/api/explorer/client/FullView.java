@@ -30,8 +30,16 @@ import com.google.api.explorer.client.context.ListServiceContext.TagProcessor;
 import com.google.api.explorer.client.embedded.EmbeddedParameterFormPresenter.RequestFinishedCallback;
 import com.google.api.explorer.client.embedded.EmbeddedView;
 import com.google.api.explorer.client.history.EmbeddedHistoryItemView;
+import com.google.api.explorer.client.history.HistoryCache;
 import com.google.api.explorer.client.history.HistoryItem;
+import com.google.api.explorer.client.history.HistoryRecord;
+import com.google.api.explorer.client.history.JsonDiff;
+import com.google.api.explorer.client.history.JsonDiffView;
 import com.google.api.explorer.client.history.JsonPrettifier;
+import com.google.api.explorer.client.history.RequestReplayer;
+import com.google.api.explorer.client.history.RequestReplayer.ReplayListener;
+import com.google.api.explorer.client.history.RequestReplayer.ReplaySummary;
+import com.google.api.explorer.client.history.RequestReplayer.RestRequestFactory;
 import com.google.api.explorer.client.navigation.EntryAggregatorView;
 import com.google.api.explorer.client.navigation.HistoryEntry;
 import com.google.api.explorer.client.navigation.MethodEntry;
@@ -47,11 +55,13 @@ import com.google.api.explorer.client.search.SearchResult;
 import com.google.api.explorer.client.search.SearchResult.MethodBundle;
 import com.google.api.explorer.client.widgets.PlaceholderTextBox;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.google.gwt.core.client.GWT;
+import com.google.gwt.core.client.Scheduler;
 import com.google.gwt.event.dom.client.ClickEvent;
 import com.google.gwt.event.dom.client.ClickHandler;
 import com.google.gwt.event.dom.client.HasClickHandlers;
@@ -65,8 +75,11 @@ import com.google.gwt.uibinder.client.UiHandler;
 import com.google.gwt.user.client.Command;
 import com.google.gwt.user.client.Window;
 import com.google.gwt.user.client.ui.Anchor;
+import com.google.gwt.user.client.ui.Button;
+import com.google.gwt.user.client.ui.CheckBox;
 import com.google.gwt.user.client.ui.Composite;
 import com.google.gwt.user.client.ui.DockLayoutPanel;
+import com.google.gwt.user.client.ui.FlowPanel;
 import com.google.gwt.user.client.ui.Image;
 import com.google.gwt.user.client.ui.InlineHyperlink;
 import com.google.gwt.user.client.ui.InlineLabel;
@@ -110,6 +123,9 @@ public class FullView extends Composite
   private static final String SETTINGS_MENU_CSS_RULE = "settingsMenu";
   private static final boolean HIDE_AUTH = false;
 
+  /** Number of history items rendered at a time in the request history list. */
+  private static final int HISTORY_PAGE_SIZE = 50;
+
   interface FullViewUiBinder extends UiBinder<Widget, FullView> {
   }
 
@@ -134,6 +150,10 @@ public class FullView extends Composite
   @UiField SectionedAggregator searchResults;
 
   @UiField EntryAggregatorView drillDownNav;
+  @UiField Anchor moreHistoryItems;
+  @UiField Anchor replayHistoryItems;
+  @UiField FlowPanel replaySelection;
+  @UiField Label replayStatus;
 
   @UiField Panel detailHeader;
   @UiField Panel detailTitleContainer;
@@ -155,6 +175,18 @@ public class FullView extends Composite
   private final FullViewPresenter presenter;
   private final AuthManager authManager;
   private final AnalyticsManager analytics;
+  private HistoryCache historyCache;
+
+  /** History items of the current context, of which only the first pages are rendered. */
+  private List<HistoryItem> historyItems = Collections.emptyList();
+  private int renderedHistoryItemCount = 0;
+
+  /**
+   * Whether the records persisted by previous sessions are listed after the history items, and how
+   * many of them are rendered.
+   */
+  private boolean listsStoredRecords = false;
+  private int renderedStoredRecordCount = 0;
 
   public FullView(URLManipulator urlManipulator, AuthManager authManager,
       AnalyticsManager analytics, SuggestOracle searchKeywords) {
@@ -177,6 +209,13 @@ public class FullView extends Composite
     searchBackingTextBox.setPlaceholderTextStyleName(style.searchPlaceholderText());
   }
 
+  /**
+   * Set the history cache whose memory usage is shown on the request history navigation item.
+   */
+  public void setHistoryCache(HistoryCache historyCache) {
+    this.historyCache = historyCache;
+  }
+
   /**
    * Assign the actions to the settings menu items.
    */
@@ -261,9 +300,18 @@ public class FullView extends Composite
     // Fill in the entry list widget, only the collections that have entries will be shown
     drillDownNav.setVisible(context.isEntryListVisible());
     drillDownNav.clear();
+    moreHistoryItems.setVisible(false);
+    replayHistoryItems.setVisible(false);
+    replaySelection.setVisible(false);
+    replayStatus.setVisible(false);
 
     if (context.isEntryListVisible()) {
-      populateHistoryItems("", context.getHistoryItems(), drillDownNav);
+      historyItems = context.getHistoryItems();
+      renderedHistoryItemCount = 0;
+      listsStoredRecords = historyCache != null
+          && context.getRootNavigationItem() == RootNavigationItem.REQUEST_HISTORY;
+      renderedStoredRecordCount = 0;
+      populateNextHistoryPage();
       populateServiceEntries(
           sortServices(context.getServicesList()), drillDownNav, context.getServiceTagProcessor());
       populateServiceMethods(context.getService(), context.getMethods(), drillDownNav);
@@ -278,6 +326,7 @@ public class FullView extends Composite
       EmbeddedHistoryItemView view = generateHistoryItemView(item);
 
       detailPane.add(view);
+      addCompareWithPrevious(item);
     } else if (context.isMethodFormVisible()) {
       ApiMethod method = context.getMethod();
 
@@ -345,6 +394,37 @@ public class FullView extends Composite
 
     // Highlight the navigation item which was the root of our navigation.
     highlightNavigationItem(context.getRootNavigationItem());
+
+    // Show how much memory the request history is using when hovering over it.
+    if (historyCache != null) {
+      requestHistoryMenuItem.setTitle(historyCache.getUsageSummary());
+    }
+  }
+
+  /**
+   * Offer to compare the response of the history item with the response of the previous execution
+   * of the same method, if there is one.
+   */
+  private void addCompareWithPrevious(final HistoryItem item) {
+    final String previousKey =
+        historyCache == null ? null : historyCache.findPreviousExecution(item);
+    if (previousKey == null) {
+      return;
+    }
+
+    final Anchor compare = new Anchor("Compare with the previous execution");
+    compare.addClickHandler(new ClickHandler() {
+      @Override
+      public void onClick(ClickEvent event) {
+        compare.setVisible(false);
+        // The previous body is only decompressed or loaded from storage once it is needed.
+        HistoryItem previous = historyCache.getHistoryItem(previousKey);
+        if (previous != null) {
+          detailPane.add(new JsonDiffView(JsonDiff.between(previous, item), Scheduler.get()));
+        }
+      }
+    });
+    detailPane.add(compare);
   }
 
   /**
@@ -425,6 +505,122 @@ public class FullView extends Composite
     }
   }
 
+  @UiHandler("moreHistoryItems")
+  void clickMoreHistoryItems(ClickEvent event) {
+    populateNextHistoryPage();
+  }
+
+  /**
+   * Display the next page of the history items of the current context in the entry list, followed
+   * by the records of previous sessions in the request history, and offer to display more if there
+   * are any left.
+   */
+  private void populateNextHistoryPage() {
+    int end = Math.min(historyItems.size(), renderedHistoryItemCount + HISTORY_PAGE_SIZE);
+    populateHistoryItems(
+        "", historyItems.subList(renderedHistoryItemCount, end), drillDownNav);
+    int remaining = HISTORY_PAGE_SIZE - (end - renderedHistoryItemCount);
+    renderedHistoryItemCount = end;
+
+    // Fill the rest of the page with stored records, reading one more to know if any are left.
+    boolean moreStoredRecords = false;
+    if (listsStoredRecords && end == historyItems.size()) {
+      List<HistoryRecord> records =
+          historyCache.listStoredRecords(renderedStoredRecordCount, remaining + 1);
+      moreStoredRecords = records.size() > remaining;
+      records = records.subList(0, Math.min(remaining, records.size()));
+      populateStoredRecords(records, drillDownNav);
+      renderedStoredRecordCount += records.size();
+    }
+    moreHistoryItems.setVisible(end < historyItems.size() || moreStoredRecords);
+    replayHistoryItems.setVisible(historyCache != null && renderedHistoryItemCount > 0);
+    replaySelection.setVisible(false);
+  }
+
+  /**
+   * Offer the listed history items for replay, one check box per item. Only the requests which
+   * read data are selected initially, requests which change data have to be selected explicitly.
+   */
+  @UiHandler("replayHistoryItems")
+  void clickReplayHistoryItems(ClickEvent event) {
+    replayHistoryItems.setVisible(false);
+    replayStatus.setVisible(false);
+    replaySelection.clear();
+    replaySelection.setVisible(true);
+
+    final List<HistoryItem> candidates =
+        ImmutableList.copyOf(historyItems.subList(0, renderedHistoryItemCount));
+    final List<CheckBox> checkBoxes = Lists.newArrayList();
+    for (HistoryItem item : candidates) {
+      ApiRequest request = item.getRequest();
+      boolean readOnly = RequestReplayer.isReadOnly(request.getHttpMethod());
+      CheckBox checkBox = new CheckBox(request.getHttpMethod().name() + " "
+          + request.getRequestPath() + (readOnly ? "" : " (changes data)"));
+      checkBox.setValue(readOnly);
+      checkBoxes.add(checkBox);
+      replaySelection.add(checkBox);
+    }
+
+    replaySelection.add(new Button("Replay selected requests", new ClickHandler() {
+      @Override
+      public void onClick(ClickEvent event) {
+        List<HistoryItem> selected = Lists.newArrayList();
+        int changingCount = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+          if (checkBoxes.get(i).getValue()) {
+            HistoryItem item = candidates.get(i);
+            selected.add(item);
+            if (!RequestReplayer.isReadOnly(item.getRequest().getHttpMethod())) {
+              changingCount++;
+            }
+          }
+        }
+
+        if (selected.isEmpty() || (changingCount > 0 && !Window.confirm(changingCount
+            + " of the selected requests may create, modify or delete data, and will be sent again"
+            + " with your current authorization. Replay them?"))) {
+          return;
+        }
+        replaySelection.setVisible(false);
+        replay(selected);
+      }
+    }));
+
+    Anchor cancel = new Anchor("Cancel");
+    cancel.addClickHandler(new ClickHandler() {
+      @Override
+      public void onClick(ClickEvent event) {
+        replaySelection.setVisible(false);
+        replayHistoryItems.setVisible(true);
+      }
+    });
+    replaySelection.add(cancel);
+  }
+
+  /**
+   * Replay the requests of the history items, in the order in which they were originally sent.
+   */
+  private void replay(List<HistoryItem> items) {
+    replayStatus.setVisible(true);
+    replayStatus.setText("Replaying requests...");
+
+    RequestReplayer replayer = new RequestReplayer(historyCache,
+        new RestRequestFactory(authManager), RequestReplayer.DEFAULT_MAX_CONCURRENT);
+    replayer.replay(items, new ReplayListener() {
+      @Override
+      public void replayed(HistoryItem original, String key, ReplaySummary summary) {
+        replayStatus.setText("Replaying requests: " + summary);
+      }
+
+      @Override
+      public void finished(ReplaySummary summary) {
+        replayStatus.setText("Replay finished: " + summary);
+        requestHistoryMenuItem.setTitle(historyCache.getUsageSummary());
+        replayHistoryItems.setVisible(true);
+      }
+    });
+  }
+
   /**
    * Display the spcified history items in the aggregator specified.
    *
@@ -450,6 +646,19 @@ public class FullView extends Composite
     }
   }
 
+  /**
+   * Display the records of the requests of previous sessions in the aggregator specified. Only the
+   * metadata of those requests is persisted, so their entries are listed but cannot be opened.
+   */
+  private void populateStoredRecords(
+      Iterable<HistoryRecord> records, EntryAggregatorView aggregator) {
+
+    for (HistoryRecord record : records) {
+      aggregator.addEntry(new HistoryEntry(record.getMethodId(),
+          record.getHttpMethod() + " " + record.getRequestPath(), record.getEndTime()));
+    }
+  }
+
   /**
    * Display all of the methods for the specified service in the aggregator provided.
    */
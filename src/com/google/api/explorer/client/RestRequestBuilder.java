@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client;
+
+import com.google.api.explorer.client.AuthManager.AuthToken;
+import com.google.api.explorer.client.base.ApiMethod;
+import com.google.api.explorer.client.base.ApiService;
+import com.google.api.explorer.client.base.ExplorerConfig;
+import com.google.api.explorer.client.base.rest.RestApiRequest;
+import com.google.common.base.Strings;
+import com.google.common.collect.Multimap;
+
+import java.util.Map;
+
+/**
+ * Builds the REST requests which the explorer sends on behalf of the user, both from the
+ * parameter form and when requests from the history are replayed.
+ *
+ */
+public class RestRequestBuilder {
+
+  private RestRequestBuilder() {
+  }
+
+  /**
+   * Returns a new request, which has not been sent, with the specified parameters and body, and
+   * authorized with the current token of the service.
+   *
+   * @param authManager Manager of the tokens of the user.
+   * @param service Service which contains the method.
+   * @param method Method which is called.
+   * @param paramValues Values of the parameters, empty values are left out of the request.
+   * @param body Serialized body of the request, or {@code null} or empty if there is none.
+   */
+  public static RestApiRequest build(AuthManager authManager, ApiService service, ApiMethod method,
+      Multimap<String, String> paramValues, String body) {
+    RestApiRequest request = new RestApiRequest(service, method);
+
+    // If the user has declared a body, set it on the request.
+    if (!Strings.isNullOrEmpty(body)) {
+      request.body = body;
+      request.addHeader("Content-Type", "application/json");
+    }
+
+    for (Map.Entry<String, String> entry : paramValues.entries()) {
+      if (entry.getValue().isEmpty()) {
+        continue;
+      }
+      request.getParamValues().put(entry.getKey(), entry.getValue());
+    }
+
+    // Do not send the API key if the service is a public-only API.
+    request.setUseApiKey(!ExplorerConfig.PUBLIC_ONLY_APIS.contains(service.getName()));
+
+    // Set the auth header if we have a token.
+    AuthToken oauth2Token = authManager.getToken(service);
+    if (oauth2Token != null) {
+      request.addHeader("Authorization", "Bearer " + oauth2Token.getAuthToken());
+    }
+    return request;
+  }
+}
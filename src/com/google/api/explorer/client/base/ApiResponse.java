@@ -17,9 +17,12 @@
 package com.google.api.explorer.client.base;
 
 import com.google.api.explorer.client.base.dynamicjso.DynamicJso;
+import com.google.api.explorer.client.base.dynamicjso.JsType;
+import com.google.common.base.Strings;
 import com.google.common.collect.Maps;
 import com.google.gwt.core.client.JavaScriptObject;
 import com.google.gwt.core.client.JsArrayString;
+import com.google.gwt.core.client.JsonUtils;
 
 import java.util.Map;
 
@@ -60,23 +63,206 @@ public class ApiResponse {
     }
   }
 
+  /**
+   * Metadata about the body of a response, computed when the body is first parsed and kept by the
+   * copies of the response, even once their body is compressed or discarded.
+   */
+  public static class BodySummary {
+    /** Summary of a body which is empty, or which was discarded before it was summarized. */
+    static final BodySummary EMPTY = new BodySummary(0, false, null, 0, null);
+
+    private final int size;
+    private final boolean json;
+    private final String kind;
+    private final int errorCode;
+    private final String errorMessage;
+
+    BodySummary(int size, boolean json, String kind, int errorCode, String errorMessage) {
+      this.size = size;
+      this.json = json;
+      this.kind = kind;
+      this.errorCode = errorCode;
+      this.errorMessage = errorMessage;
+    }
+
+    /** Returns the length of the body in characters. */
+    public int getSize() {
+      return size;
+    }
+
+    /** Returns whether the body is valid JSON. */
+    public boolean isJson() {
+      return json;
+    }
+
+    /** Returns the top level "kind" of the body, or {@code null} if it has none. */
+    public String getKind() {
+      return kind;
+    }
+
+    /** Returns whether the body is an error payload, with a top level "error" member. */
+    public boolean isError() {
+      return errorCode != 0 || errorMessage != null;
+    }
+
+    /** Returns the code of the error payload, or {@code 0} if there is none. */
+    public int getErrorCode() {
+      return errorCode;
+    }
+
+    /** Returns the message of the error payload, or {@code null} if there is none. */
+    public String getErrorMessage() {
+      return errorMessage;
+    }
+  }
+
+  /** Key of the flag set on responses whose body has been discarded. */
+  private static final String BODY_DISCARDED_KEY = "bodyDiscarded";
+
+  /** Key of the compressed body, which replaces the body of compressed responses. */
+  private static final String COMPRESSED_BODY_KEY = "compressedBody";
+
   /** The response object */
   private DynamicJso object;
 
   /**
    * A {@link Map} of normalized lower case response header keys to tuples
-   * containing the original key and the value.
+   * containing the original key and the value, or {@code null} until it is
+   * first requested.
    */
-  private final Map<String, HeaderValue> headers;
+  private Map<String, HeaderValue> headers;
+
+  /** Body parsed as JSON, or {@code null} if it has not been parsed or is not JSON. */
+  private DynamicJso parsedBody;
+  private boolean bodyParsed = false;
+
+  /** Summary of the body, or {@code null} until the body is parsed. */
+  private BodySummary bodySummary;
 
   private ApiResponse(DynamicJso object) {
+    this(object, null, null);
+  }
+
+  private ApiResponse(
+      DynamicJso object, Map<String, HeaderValue> headers, BodySummary bodySummary) {
     this.object = object;
-    this.headers = createHeadersMap(object);
+    this.headers = headers;
+    this.bodySummary = bodySummary;
   }
 
-  /** Returns the value of the body element as a String. */
+  /**
+   * Returns the value of the body element as a String, or {@code null} if the body has been
+   * discarded.
+   *
+   * <p>
+   * A compressed body is decompressed on every call, and the result is deliberately not kept since
+   * that would hold the plain body in memory next to the compressed one. Compressed responses only
+   * exist inside the history cache, so callers must obtain responses through
+   * {@code HistoryCache.getHistoryItem}, which decompresses the body once into a copy made with
+   * {@link #withBody(String)}, rather than reading the body of the items the cache lists.
+   * </p>
+   */
   public String getBodyAsString() {
-    return object.getString("body");
+    String compressed = getCompressedBody();
+    return compressed == null ? object.getString("body") : LzCodec.decompress(compressed);
+  }
+
+  /**
+   * Returns the body parsed as JSON, or {@code null} if the body is empty, discarded or not valid
+   * JSON. The body is parsed on the first call only, so all of the consumers of a response share
+   * the same tree, which they must not modify.
+   */
+  public DynamicJso getParsedBody() {
+    if (!bodyParsed) {
+      bodyParsed = true;
+      String body = getBodyAsString();
+      parsedBody = parse(body);
+      if (bodySummary == null) {
+        bodySummary = summarize(body, parsedBody);
+      }
+    }
+    return parsedBody;
+  }
+
+  /**
+   * Returns the summary of the body, parsing the body if this has not been done yet.
+   */
+  public BodySummary getBodySummary() {
+    if (bodySummary == null) {
+      if (isBodyDiscarded()) {
+        return BodySummary.EMPTY;
+      }
+      getParsedBody();
+    }
+    return bodySummary;
+  }
+
+  /** Returns whether the body was discarded from this response to save memory. */
+  public boolean isBodyDiscarded() {
+    return object.getBoolean(BODY_DISCARDED_KEY);
+  }
+
+  /** Returns whether the body of this response is held compressed. */
+  public boolean isBodyCompressed() {
+    return getCompressedBody() != null;
+  }
+
+  /**
+   * Returns the body compressed with {@link LzCodec}, or {@code null} if the body is not held
+   * compressed.
+   */
+  public String getCompressedBody() {
+    return object.getString(COMPRESSED_BODY_KEY);
+  }
+
+  /**
+   * Returns a copy of this response which keeps the status, headers and summary of the body, but
+   * not the body or its parse tree, so that both can be garbage collected.
+   */
+  public ApiResponse withoutBody() {
+    DynamicJso copy = copyStatusAndHeaders();
+    copy.set(BODY_DISCARDED_KEY, true);
+    return new ApiResponse(copy, headers, bodySummary);
+  }
+
+  /**
+   * Returns a copy of this response with the specified body, used to restore a body which was
+   * discarded. The body of the copy is parsed again when it is first requested.
+   */
+  public ApiResponse withBody(String body) {
+    DynamicJso copy = copyStatusAndHeaders();
+    copy.set("body", body);
+    return new ApiResponse(copy, headers, bodySummary);
+  }
+
+  /**
+   * Returns a copy of this response which holds only the compressed form of the body, which is
+   * decompressed when the body is requested, and not the parse tree of the body.
+   *
+   * @param compressedBody Body of this response compressed with {@link LzCodec}.
+   */
+  public ApiResponse withCompressedBody(String compressedBody) {
+    DynamicJso copy = copyStatusAndHeaders();
+    copy.set(COMPRESSED_BODY_KEY, compressedBody);
+    return new ApiResponse(copy, headers, bodySummary);
+  }
+
+  /**
+   * Returns a copy of this response which shares its body, headers and summary, but not the parse
+   * tree of the body. Responses which are held for a long time, such as those of the history
+   * cache, are copied this way so that a tree built while a response is displayed does not stay
+   * alive with it.
+   */
+  public ApiResponse withoutParsedBody() {
+    return new ApiResponse(object, headers, bodySummary);
+  }
+
+  private DynamicJso copyStatusAndHeaders() {
+    DynamicJso copy = JavaScriptObject.createObject().cast();
+    copy.set("status", getStatus());
+    copy.set("statusText", getStatusText());
+    copy.set("headers", object.<DynamicJso>get("headers"));
+    return copy;
   }
 
   /** Returns the status code of the response. */
@@ -91,12 +277,39 @@ public class ApiResponse {
 
   /**
    * Returns a map of normalized lower case header keys, associated with a tuple
-   * containing the original key and the value.
+   * containing the original key and the value. The map is built on the first
+   * call, callers which only need a few headers should use
+   * {@link #getHeader(String)}.
    */
   public Map<String, HeaderValue> getHeaders() {
+    if (headers == null) {
+      headers = createHeadersMap(object);
+    }
     return headers;
   }
 
+  /**
+   * Returns the value of the header with the specified name, compared without
+   * regard to case, or {@code null} if the response has no such header. This
+   * does not build the map of all headers.
+   */
+  public String getHeader(String name) {
+    if (headers != null) {
+      HeaderValue header = headers.get(name.toLowerCase());
+      return header == null ? null : header.getValue();
+    }
+
+    DynamicJso headersObject = object.get("headers");
+    JsArrayString keys = headersObject.keys();
+    for (int i = 0; i < keys.length(); i++) {
+      String key = keys.get(i);
+      if (key.equalsIgnoreCase(name)) {
+        return getHeaderValue(headersObject, key);
+      }
+    }
+    return null;
+  }
+
   /** Instantiates a response from the JS object representation of a response. */
   public static ApiResponse fromData(JavaScriptObject data) {
     DynamicJso jso = data.cast();
@@ -104,6 +317,36 @@ public class ApiResponse {
     return new ApiResponse(jso);
   }
 
+  private static DynamicJso parse(String body) {
+    if (body == null || body.isEmpty()) {
+      return null;
+    }
+
+    // There is no way to check that the body is valid JSON without just trying to parse it.
+    try {
+      return JsonUtils.<DynamicJso>safeEval(body);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private static BodySummary summarize(String body, DynamicJso root) {
+    if (root == null) {
+      return body == null || body.isEmpty() ? BodySummary.EMPTY
+          : new BodySummary(body.length(), false, null, 0, null);
+    }
+
+    int errorCode = 0;
+    String errorMessage = null;
+    DynamicJso error = root.get("error");
+    if (error != null) {
+      errorCode = error.getInteger("code");
+      errorMessage = Strings.nullToEmpty(error.getString("message"));
+    }
+    return new BodySummary(
+        body.length(), true, root.getString(Schema.KIND_KEY), errorCode, errorMessage);
+  }
+
   /**
    * Inspects the headers object of the given JS object and constructs a
    * {@link Map} of its keys and values.
@@ -115,27 +358,35 @@ public class ApiResponse {
 
     for (int i = 0; i < keys.length(); i++) {
       String key = keys.get(i);
-      String value = "";
-      switch (headers.typeofKey(key)) {
-        case STRING:
-          value = headers.getString(key);
-          break;
-
-        case BOOLEAN:
-          value = String.valueOf(headers.getBoolean(key));
-          break;
-
-        case NUMBER:
-          value = String.valueOf(headers.getInteger(key));
-          break;
-
-        case INTEGER:
-          value = String.valueOf(headers.getDouble(key));
-          break;
-      }
-      headersMap.put(key.toLowerCase(), new HeaderValue(key, value));
-
+      headersMap.put(key.toLowerCase(), new HeaderValue(key, getHeaderValue(headers, key)));
     }
     return headersMap;
   }
+
+  /**
+   * Returns the value of a key of the headers object as a String.
+   */
+  private static String getHeaderValue(DynamicJso headers, String key) {
+    JsType type = headers.typeofKey(key);
+    if (type == null) {
+      return "";
+    }
+
+    switch (type) {
+      case STRING:
+        return headers.getString(key);
+
+      case BOOLEAN:
+        return String.valueOf(headers.getBoolean(key));
+
+      case NUMBER:
+        return String.valueOf(headers.getInteger(key));
+
+      case INTEGER:
+        return String.valueOf(headers.getDouble(key));
+
+      default:
+        return "";
+    }
+  }
 }
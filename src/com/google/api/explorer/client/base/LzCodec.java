@@ -0,0 +1,315 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.base;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Dictionary based (LZW) compression of strings into strings, which runs both in compiled GWT and
+ * in the JVM.
+ *
+ * <p>
+ * The compressed form packs 15 bits into each character, offset so that it never contains control
+ * characters or unpaired surrogates, which lets it be held in a JS string or written to browser
+ * storage. Repetitive text such as JSON typically compresses to a fifth of its size or less.
+ * </p>
+ *
+ */
+public final class LzCodec {
+  private static final int BITS_PER_CHAR = 15;
+  private static final int CHAR_OFFSET = 32;
+
+  /** Codes reserved for an 8 bit literal, a 16 bit literal and the end of the stream. */
+  private static final int CODE_LITERAL_8 = 0;
+  private static final int CODE_LITERAL_16 = 1;
+  private static final int CODE_END = 2;
+  private static final int RESERVED_CODES = 3;
+
+  private LzCodec() {
+  }
+
+  /**
+   * Returns the compressed form of the string.
+   */
+  public static String compress(String uncompressed) {
+    Compressor compressor = new Compressor(uncompressed);
+    compressor.compress(uncompressed.length());
+    return compressor.getCompressed();
+  }
+
+  /**
+   * Returns the string from which the compressed form was created.
+   *
+   * @throws IllegalArgumentException if the string was not created by {@link #compress(String)}.
+   */
+  public static String decompress(String compressed) {
+    Preconditions.checkNotNull(compressed);
+    BitReader in = new BitReader(compressed);
+    List<String> dictionary = Lists.newArrayList();
+    for (int i = 0; i < RESERVED_CODES; i++) {
+      dictionary.add(null);
+    }
+
+    String w;
+    switch (in.read(2)) {
+      case CODE_LITERAL_8:
+        w = String.valueOf((char) in.read(8));
+        break;
+      case CODE_LITERAL_16:
+        w = String.valueOf((char) in.read(16));
+        break;
+      case CODE_END:
+        return "";
+      default:
+        throw new IllegalArgumentException("Invalid compressed string");
+    }
+    dictionary.add(w);
+
+    StringBuilder result = new StringBuilder(w);
+    int numBits = 3;
+    int enlargeIn = 4;
+    while (true) {
+      int code = in.read(numBits);
+      switch (code) {
+        case CODE_LITERAL_8:
+        case CODE_LITERAL_16:
+          dictionary.add(String.valueOf((char) in.read(code == CODE_LITERAL_8 ? 8 : 16)));
+          code = dictionary.size() - 1;
+          if (--enlargeIn == 0) {
+            enlargeIn = 1 << numBits;
+            numBits++;
+          }
+          break;
+        case CODE_END:
+          return result.toString();
+        default:
+          break;
+      }
+
+      String entry;
+      if (code < dictionary.size()) {
+        entry = dictionary.get(code);
+      } else if (code == dictionary.size()) {
+        entry = w + w.charAt(0);
+      } else {
+        throw new IllegalArgumentException("Invalid compressed string");
+      }
+      result.append(entry);
+      dictionary.add(w + entry.charAt(0));
+      w = entry;
+
+      if (--enlargeIn == 0) {
+        enlargeIn = 1 << numBits;
+        numBits++;
+      }
+    }
+  }
+
+  /**
+   * Compression of a string which can be carried out a slice at a time, so that a long string can
+   * be compressed without blocking the browser for the whole of it.
+   */
+  public static final class Compressor {
+    private final String uncompressed;
+    private final BitWriter out = new BitWriter();
+    private final Map<String, Integer> dictionary = Maps.newHashMap();
+    private final Set<String> literalsToEmit = Sets.newHashSet();
+    private final Encoder encoder = new Encoder(out, dictionary, literalsToEmit);
+
+    /** Longest prefix of the remaining input which is in the dictionary. */
+    private String w = "";
+    private int position = 0;
+    private String compressed;
+
+    /**
+     * Create a compressor of the specified string, which is not compressed until
+     * {@link #compress(int)} is called.
+     */
+    public Compressor(String uncompressed) {
+      this.uncompressed = Preconditions.checkNotNull(uncompressed);
+    }
+
+    /**
+     * Compress up to the specified number of further characters of the string.
+     *
+     * @return Whether the whole string has been compressed.
+     */
+    public boolean compress(int maxChars) {
+      Preconditions.checkArgument(maxChars >= 0);
+      int end = position + Math.min(maxChars, uncompressed.length() - position);
+      for (; position < end; position++) {
+        String c = String.valueOf(uncompressed.charAt(position));
+        if (!dictionary.containsKey(c)) {
+          dictionary.put(c, encoder.dictSize++);
+          literalsToEmit.add(c);
+        }
+
+        String wc = w + c;
+        if (dictionary.containsKey(wc)) {
+          w = wc;
+        } else {
+          encoder.emit(w);
+          dictionary.put(wc, encoder.dictSize++);
+          w = c;
+        }
+      }
+
+      if (compressed == null && position == uncompressed.length()) {
+        if (!w.isEmpty()) {
+          encoder.emit(w);
+        }
+        out.write(encoder.numBits, CODE_END);
+        compressed = out.finish();
+      }
+      return isDone();
+    }
+
+    /** Returns whether the whole string has been compressed. */
+    public boolean isDone() {
+      return compressed != null;
+    }
+
+    /** Returns the number of characters of the string which have been compressed so far. */
+    public int getPosition() {
+      return position;
+    }
+
+    /**
+     * Returns the compressed form of the string.
+     *
+     * @throws IllegalStateException if the whole string has not been compressed yet.
+     */
+    public String getCompressed() {
+      Preconditions.checkState(compressed != null, "Compression is not done");
+      return compressed;
+    }
+  }
+
+  /**
+   * Writes the codes of the compressed stream, widening them as the dictionary grows.
+   */
+  private static class Encoder {
+    private final BitWriter out;
+    private final Map<String, Integer> dictionary;
+    private final Set<String> literalsToEmit;
+    int dictSize = RESERVED_CODES;
+    int numBits = 2;
+    private int enlargeIn = 2;
+
+    Encoder(BitWriter out, Map<String, Integer> dictionary, Set<String> literalsToEmit) {
+      this.out = out;
+      this.dictionary = dictionary;
+      this.literalsToEmit = literalsToEmit;
+    }
+
+    /**
+     * Emit the code of a phrase, preceded by its literal if this is its first occurrence.
+     */
+    void emit(String w) {
+      if (literalsToEmit.remove(w)) {
+        char c = w.charAt(0);
+        if (c < 256) {
+          out.write(numBits, CODE_LITERAL_8);
+          out.write(8, c);
+        } else {
+          out.write(numBits, CODE_LITERAL_16);
+          out.write(16, c);
+        }
+        enlarge();
+      } else {
+        out.write(numBits, dictionary.get(w));
+      }
+      enlarge();
+    }
+
+    private void enlarge() {
+      if (--enlargeIn == 0) {
+        enlargeIn = 1 << numBits;
+        numBits++;
+      }
+    }
+  }
+
+  /**
+   * Packs values, least significant bit first, into the characters of a string.
+   */
+  private static class BitWriter {
+    private final StringBuilder data = new StringBuilder();
+    private int value = 0;
+    private int position = 0;
+
+    void write(int bitCount, int bits) {
+      for (int i = 0; i < bitCount; i++) {
+        value = (value << 1) | (bits & 1);
+        bits >>= 1;
+        if (++position == BITS_PER_CHAR) {
+          data.append((char) (value + CHAR_OFFSET));
+          value = 0;
+          position = 0;
+        }
+      }
+    }
+
+    String finish() {
+      if (position > 0) {
+        data.append((char) ((value << (BITS_PER_CHAR - position)) + CHAR_OFFSET));
+      }
+      return data.toString();
+    }
+  }
+
+  /**
+   * Reads the values packed by a {@link BitWriter}.
+   */
+  private static class BitReader {
+    private static final int FIRST_BIT = 1 << (BITS_PER_CHAR - 1);
+
+    private final String data;
+    private int index = 0;
+    private int value;
+    private int mask = 0;
+
+    BitReader(String data) {
+      this.data = data;
+    }
+
+    int read(int bitCount) {
+      int bits = 0;
+      for (int i = 0; i < bitCount; i++) {
+        if (mask == 0) {
+          if (index >= data.length()) {
+            throw new IllegalArgumentException("Truncated compressed string");
+          }
+          value = data.charAt(index++) - CHAR_OFFSET;
+          mask = FIRST_BIT;
+        }
+        if ((value & mask) != 0) {
+          bits |= 1 << i;
+        }
+        mask >>= 1;
+      }
+      return bits;
+    }
+  }
+}
@@ -17,12 +17,11 @@
 package com.google.api.explorer.client.embedded;
 
 import com.google.api.explorer.client.AuthManager;
-import com.google.api.explorer.client.AuthManager.AuthToken;
+import com.google.api.explorer.client.RestRequestBuilder;
 import com.google.api.explorer.client.base.ApiMethod;
 import com.google.api.explorer.client.base.ApiRequest;
 import com.google.api.explorer.client.base.ApiResponse;
 import com.google.api.explorer.client.base.ApiService;
-import com.google.api.explorer.client.base.ExplorerConfig;
 import com.google.api.explorer.client.base.Schema;
 import com.google.api.explorer.client.base.rest.RestApiRequest;
 import com.google.api.explorer.client.routing.UrlBuilder;
@@ -146,32 +145,8 @@ public class EmbeddedParameterFormPresenter {
 
   public void submit() {
     Preconditions.checkState(method != null);
-    final RestApiRequest req = new RestApiRequest(service, method);
-
-    // If the user has declared a body, set it on the request.
-    String body = display.getBodyText();
-    if (!body.isEmpty()) {
-      req.body = body;
-      req.addHeader("Content-Type", "application/json");
-    }
-
-    Multimap<String, String> paramValues = display.getParameterValues();
-    for (Map.Entry<String, String> entry : paramValues.entries()) {
-      if (entry.getValue().isEmpty()) {
-        continue;
-      }
-      req.getParamValues().put(entry.getKey(), entry.getValue());
-    }
-
-    // Do not send the API key if the service is a public-only API.
-    req.setUseApiKey(
-        !ExplorerConfig.PUBLIC_ONLY_APIS.contains(service.getName()));
-
-    // Set the auth header if we have a token.
-    AuthToken oauth2Token = authManager.getToken(service);
-    if (oauth2Token != null) {
-      req.addHeader("Authorization", "Bearer " + oauth2Token.getAuthToken());
-    }
+    final RestApiRequest req = RestRequestBuilder.build(
+        authManager, service, method, display.getParameterValues(), display.getBodyText());
 
     display.setExecuting(true);
 
@@ -16,36 +16,41 @@
 
 package com.google.api.explorer.client.history;
 
+import com.google.api.explorer.client.Resources;
 import com.google.api.explorer.client.base.ApiMethod.HttpMethod;
 import com.google.api.explorer.client.base.ApiRequest;
 import com.google.api.explorer.client.base.ApiResponse;
 import com.google.api.explorer.client.base.ApiResponse.HeaderValue;
 import com.google.api.explorer.client.base.Config;
 import com.google.api.explorer.client.base.ExplorerConfig;
-import com.google.api.explorer.client.base.dynamicjso.DynamicJso;
 import com.google.api.explorer.client.history.JsonPrettifier.JsonFormatException;
 import com.google.api.explorer.client.history.JsonPrettifier.PrettifierLinkFactory;
+import com.google.api.explorer.client.history.ResponseDisplayPolicy.DisplayMode;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Ordering;
 import com.google.gwt.core.client.GWT;
-import com.google.gwt.core.client.JsonUtils;
 import com.google.gwt.dom.client.PreElement;
 import com.google.gwt.dom.client.SpanElement;
 import com.google.gwt.event.dom.client.ClickEvent;
+import com.google.gwt.event.dom.client.KeyUpEvent;
 import com.google.gwt.i18n.client.DateTimeFormat;
 import com.google.gwt.i18n.client.DateTimeFormat.PredefinedFormat;
 import com.google.gwt.resources.client.CssResource;
+import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
 import com.google.gwt.uibinder.client.UiBinder;
 import com.google.gwt.uibinder.client.UiField;
 import com.google.gwt.uibinder.client.UiHandler;
 import com.google.gwt.user.client.ui.Composite;
 import com.google.gwt.user.client.ui.FlowPanel;
+import com.google.gwt.user.client.ui.HTML;
 import com.google.gwt.user.client.ui.HTMLPanel;
 import com.google.gwt.user.client.ui.Image;
 import com.google.gwt.user.client.ui.InlineLabel;
 import com.google.gwt.user.client.ui.Label;
 import com.google.gwt.user.client.ui.Panel;
 import com.google.gwt.user.client.ui.SimplePanel;
+import com.google.gwt.user.client.ui.TextBox;
 import com.google.gwt.user.client.ui.UIObject;
 import com.google.gwt.user.client.ui.Widget;
 
@@ -61,6 +66,9 @@ public class EmbeddedHistoryItemView extends Composite {
   private static final String TEXT_TYPE_PREFIX = "text/";
   private static final String CONTENT_TYPE_HEADER = "content-type";
   private static final String AUTH_HEADER = "authorization";
+  private static final String BODY_DISCARDED_MESSAGE = "The response body is no longer available, "
+      + "it was discarded to limit the memory used by the request history. Execute the request "
+      + "again to see it.";
 
   interface HistoryItemUiBinder extends UiBinder<Widget, EmbeddedHistoryItemView> {
   }
@@ -79,6 +87,9 @@ public class EmbeddedHistoryItemView extends Composite {
   @UiField public Label showHideHeaders;
   @UiField public PreElement responseHeadersDiv;
   @UiField public FlowPanel responseBodyDiv;
+  @UiField public Panel responseFilterPanel;
+  @UiField public TextBox responseFilter;
+  @UiField public InlineLabel responseFilterStatus;
   @UiField public Panel executing;
   @UiField public HTMLPanel wireContent;
 
@@ -86,6 +97,12 @@ public class EmbeddedHistoryItemView extends Composite {
 
   private final ApiRequest request;
   private final String realPathFragment;
+  private JsonPathIndex responseIndex;
+  private DisplayMode displayMode;
+  private long renderTimeMillis = -1;
+
+  /** Policy used to decide how each response body is displayed. */
+  private static ResponseDisplayPolicy displayPolicy = ResponseDisplayPolicy.DEFAULT;
 
   public EmbeddedHistoryItemView(ApiRequest request) {
     initWidget();
@@ -110,6 +127,29 @@ public class EmbeddedHistoryItemView extends Composite {
     requestDiv.setInnerText(getRequestString(request));
   }
 
+  /**
+   * Set the policy used to decide how response bodies are displayed, based on their size.
+   */
+  public static void setDisplayPolicy(ResponseDisplayPolicy policy) {
+    displayPolicy = Preconditions.checkNotNull(policy);
+  }
+
+  /**
+   * Returns the mode in which the response body was displayed, or {@code null} if it was not
+   * displayed as JSON.
+   */
+  public DisplayMode getDisplayMode() {
+    return displayMode;
+  }
+
+  /**
+   * Returns the time in milliseconds that it took to display the response body, or {@code -1} if
+   * it was not displayed as JSON.
+   */
+  public long getRenderTimeMillis() {
+    return renderTimeMillis;
+  }
+
   /**
    * Complete the partially filled history item with the response data.
    *
@@ -157,10 +197,11 @@ public class EmbeddedHistoryItemView extends Composite {
   private void setResponseContent(ApiRequest request, ApiResponse response, String originalPath,
       PrettifierLinkFactory linkFactory) {
 
-    HeaderValue authorization = response.getHeaders().get(AUTH_HEADER);
-    HeaderValue contentTypeHeader = response.getHeaders().get(CONTENT_TYPE_HEADER);
-    GWT.log("Headers: " + response.getHeaders().entrySet());
-    String contentType = contentTypeHeader == null ? "Unspecified" : contentTypeHeader.getValue();
+    String authorization = response.getHeader(AUTH_HEADER);
+    String contentType = response.getHeader(CONTENT_TYPE_HEADER);
+    if (contentType == null) {
+      contentType = "Unspecified";
+    }
 
     if (request.getHttpMethod() == HttpMethod.GET && contentType.startsWith(IMAGE_TYPE_PREFIX)
         && authorization == null) {
@@ -171,21 +212,46 @@ public class EmbeddedHistoryItemView extends Composite {
       img.setUrl(Config.getBaseUrl() + originalPath);
       img.setAltText(Config.getBaseUrl() + request.getRequestPath());
       responseBodyDiv.add(img);
+    } else if (response.isBodyDiscarded()) {
+      responseBodyDiv.add(new Label(BODY_DISCARDED_MESSAGE));
     } else if (contentType.startsWith(TEXT_TYPE_PREFIX)) {
       // We have non-JSON text, just show it.
       responseBodyDiv.add(new Label(response.getBodyAsString()));
     } else {
-      // Treat the response as JSON, although we don't really know what it is
-      try {
-        JsonPrettifier.prettify(
-            request.getService(), responseBodyDiv, response.getBodyAsString(), linkFactory);
-      } catch (JsonFormatException e) {
-        // If JSON processing fails, just say what we know about the data
-        responseBodyDiv.add(new Label("[" + contentType + " data]"));
+      // Treat the response as JSON, although we don't really know what it is. Compressed bodies
+      // are decompressed by each call, so the body is only requested once.
+      String body = response.getBodyAsString();
+      long renderStart = System.currentTimeMillis();
+      displayMode = displayPolicy.choose(body, GWT.isScript());
+      switch (displayMode) {
+        case PRETTIFIED:
+          try {
+            responseIndex = JsonPrettifier.prettify(
+                request.getService(), responseBodyDiv, response, linkFactory);
+            responseFilterPanel.setVisible(responseIndex != null);
+          } catch (JsonFormatException e) {
+            // If JSON processing fails, just say what we know about the data
+            responseBodyDiv.add(new Label("[" + contentType + " data]"));
+          }
+          break;
+
+        case HIGHLIGHTED:
+          SafeHtmlBuilder highlighted = new SafeHtmlBuilder();
+          new JsonHighlighter(Resources.INSTANCE.style()).highlight(body, highlighted);
+          responseBodyDiv.add(new HTML(highlighted.toSafeHtml()));
+          break;
+
+        case VIRTUALIZED:
+          responseBodyDiv.add(
+              new VirtualizedTextView(body, new JsonHighlighter(Resources.INSTANCE.style())));
+          break;
       }
+      renderTimeMillis = System.currentTimeMillis() - renderStart;
+      GWT.log("Rendered " + body.length() + " characters as " + displayMode + " in "
+          + renderTimeMillis + " ms");
 
       // Check if there was an error, and, if so, display it to the user.
-      ErrorCase error = getErrorMessage(response);
+      ErrorCase error = ErrorCase.forResponse(response);
       if (error != null) {
         setErrorMessage(error.getErrorLabel());
       }
@@ -203,6 +269,25 @@ public class EmbeddedHistoryItemView extends Composite {
     UIObject.setVisible(responseHeadersDiv, !UIObject.isVisible(responseHeadersDiv));
   }
 
+  @UiHandler("responseFilter")
+  void filterResponse(KeyUpEvent event) {
+    if (responseIndex == null) {
+      return;
+    }
+
+    try {
+      int matches = responseIndex.filter(responseFilter.getText());
+      if (matches < 0) {
+        responseFilterStatus.setText("");
+      } else {
+        responseFilterStatus.setText(matches == 1 ? "1 match" : matches + " matches");
+      }
+    } catch (IllegalArgumentException e) {
+      // The user is most likely still typing the path, leave the current filter in place.
+      responseFilterStatus.setText("Invalid path");
+    }
+  }
+
   private static String getRequestString(ApiRequest request) {
     StringBuilder sb = new StringBuilder()
         .append(request.getHttpMethod().name())
@@ -223,20 +308,6 @@ public class EmbeddedHistoryItemView extends Composite {
     return sb.toString();
   }
 
-  private static ErrorCase getErrorMessage(ApiResponse response) {
-    // This requires a try-catch because there is no way to proactively check
-    // that the JSON is both present and valid without just trying to parse it.
-    try {
-      DynamicJso jso = JsonUtils.safeEval(response.getBodyAsString());
-      if (jso.get("error") != null) {
-        return ErrorCase.forJsonString(response.getBodyAsString());
-      }
-    } catch (IllegalArgumentException e) {
-      // Not valid json, definitely not an error payload.
-    }
-    return null;
-  }
-
   private static String getResponseHeadersString(ApiResponse response) {
     StringBuilder sb = new StringBuilder();
 
@@ -16,9 +16,9 @@
 
 package com.google.api.explorer.client.history;
 
-import com.google.api.explorer.client.base.dynamicjso.DynamicJso;
+import com.google.api.explorer.client.base.ApiResponse;
+import com.google.api.explorer.client.base.ApiResponse.BodySummary;
 import com.google.common.base.Preconditions;
-import com.google.gwt.core.client.JsonUtils;
 import com.google.gwt.user.client.ui.Label;
 
 /**
@@ -64,11 +64,16 @@ public enum ErrorCase {
     return new Label(prettyMessage);
   }
 
-  static ErrorCase forJsonString(String jsonString) {
-    DynamicJso error = JsonUtils.<DynamicJso>safeEval(jsonString).get("error");
-    int code = error.getInteger("code");
-    String message = error.getString("message");
+  /**
+   * Returns the error case of the error payload of a response, or {@code null} if the body of the
+   * response is not an error payload.
+   */
+  static ErrorCase forResponse(ApiResponse response) {
+    BodySummary summary = response.getBodySummary();
+    return summary.isError() ? forError(summary.getErrorCode(), summary.getErrorMessage()) : null;
+  }
 
+  static ErrorCase forError(int code, String message) {
     // All 401 responses should show the "needs auth" error message.
     if (code == 401) {
       return ErrorCase.NEEDS_AUTH;
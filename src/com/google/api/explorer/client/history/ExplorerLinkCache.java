@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.history;
+
+import com.google.api.explorer.client.base.ApiMethod;
+import com.google.api.explorer.client.base.ApiService;
+import com.google.api.explorer.client.base.Config;
+import com.google.common.base.Preconditions;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Bounded memo of which URLs found in responses correspond to methods of a service, and of the
+ * Explorer links that they were turned into. Responses tend to repeat the same links many times
+ * (self links, next page links), and matching a URL against every method of a service is
+ * expensive, so each distinct URL is only classified once per service.
+ *
+ */
+class ExplorerLinkCache {
+  private static final int DEFAULT_MAX_SERVICES = 8;
+  private static final int DEFAULT_MAX_LINKS_PER_SERVICE = 1000;
+
+  /** Marker stored for URLs which do not correspond to any method. */
+  private static final ExplorerLink NO_METHOD = new ExplorerLink(null, null);
+
+  private static final ExplorerLinkCache INSTANCE =
+      new ExplorerLinkCache(DEFAULT_MAX_SERVICES, DEFAULT_MAX_LINKS_PER_SERVICE);
+
+  /**
+   * Method matching a URL and the Explorer link which invokes it with the parameters of the URL.
+   */
+  static class ExplorerLink {
+    private final ApiMethod method;
+    private final String explorerLink;
+
+    private ExplorerLink(ApiMethod method, String explorerLink) {
+      this.method = method;
+      this.explorerLink = explorerLink;
+    }
+
+    ApiMethod getMethod() {
+      return method;
+    }
+
+    String getExplorerLink() {
+      return explorerLink;
+    }
+  }
+
+  private final int maxLinksPerService;
+  private final Map<ApiService, ServiceLinks> services;
+
+  /**
+   * Returns the cache shared by all responses.
+   */
+  static ExplorerLinkCache getInstance() {
+    return INSTANCE;
+  }
+
+  ExplorerLinkCache(int maxServices, int maxLinksPerService) {
+    Preconditions.checkArgument(maxServices > 0);
+    Preconditions.checkArgument(maxLinksPerService > 0);
+    this.maxLinksPerService = maxLinksPerService;
+    this.services = createLruMap(maxServices);
+  }
+
+  /**
+   * Classify the URL specified against the methods of the service.
+   *
+   * @return The method and Explorer link for the URL, or {@code null} if it does not correspond to
+   *         any method of the service.
+   */
+  @Nullable
+  ExplorerLink classify(ApiService service, String url) {
+    ServiceLinks links = services.get(service);
+    String baseUrl = Config.getBaseUrl();
+    if (links == null || !links.baseUrl.equals(baseUrl)) {
+      links = new ServiceLinks(baseUrl, baseUrl + service.basePath(), maxLinksPerService);
+      services.put(service, links);
+    }
+
+    // Most strings are not links to this service at all, and they are not worth remembering.
+    if (!url.startsWith(links.linkPrefix)) {
+      return null;
+    }
+
+    ExplorerLink result = links.links.get(url);
+    if (result == null) {
+      result = computeLink(service, url);
+      links.links.put(url, result);
+    }
+    return result == NO_METHOD ? null : result;
+  }
+
+  /**
+   * Returns the number of URLs remembered for the service.
+   */
+  int size(ApiService service) {
+    ServiceLinks links = services.get(service);
+    return links == null ? 0 : links.links.size();
+  }
+
+  private static ExplorerLink computeLink(ApiService service, String url) {
+    try {
+      ApiMethod method = JsonPrettifier.getMethodForUrl(service, url);
+      if (method != null) {
+        return new ExplorerLink(method, JsonPrettifier.createExplorerLink(service, url, method));
+      }
+    } catch (IndexOutOfBoundsException e) {
+      // Intentionally blank - this will only happen when iterating the method
+      // url template in parallel with the url components and you run out of
+      // components
+    }
+    return NO_METHOD;
+  }
+
+  private static <K, V> Map<K, V> createLruMap(final int maxEntries) {
+    return new LinkedHashMap<K, V>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Links remembered for a single service, which are only valid for the base URL they were
+   * computed against.
+   */
+  private static class ServiceLinks {
+    private final String baseUrl;
+    private final String linkPrefix;
+    private final Map<String, ExplorerLink> links;
+
+    ServiceLinks(String baseUrl, String linkPrefix, int maxLinks) {
+      this.baseUrl = baseUrl;
+      this.linkPrefix = linkPrefix;
+      this.links = createLruMap(maxLinks);
+    }
+  }
+}
@@ -18,17 +18,37 @@ package com.google.api.explorer.client.history;
 
 import com.google.api.explorer.client.base.ApiRequest;
 import com.google.api.explorer.client.base.ApiResponse;
+import com.google.api.explorer.client.base.LzCodec;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Maps;
+import com.google.common.collect.Lists;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
 
-import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
-import java.util.SortedMap;
 
 /**
- * Cache which will keep track of all of the history items generated in this run of the APIs
- * explorer.
+ * Cache which will keep track of the history items generated in this run of the APIs explorer.
+ *
+ * <p>
+ * Items are keyed by a sequence number and kept in an array indexed by it, so that adding and
+ * looking up an item take constant time, and listing a page of items only touches that page. Items
+ * are never dropped, the array doubles in size when it is full: only response bodies are evicted,
+ * and the metadata of an item without its body is small enough to keep for every request of a
+ * session.
+ * </p>
+ *
+ * <p>
+ * Response bodies can be very large, so the cache only retains them up to a byte budget. When the
+ * budget is exceeded the bodies of the oldest items are discarded, while the items themselves, with
+ * their request, status, headers and timing, are kept. Bodies above a size threshold are held
+ * compressed. When a scheduler is set they are compressed by an incremental command after the item
+ * is added, a slice of {@link #COMPRESSION_SLICE_CHARS} characters per run, so that neither adding
+ * an item nor compressing a large body blocks the browser. A compressed body is decompressed once
+ * each time its item is retrieved, and the retrieved copy holds the plain body so that rendering it
+ * does not decompress it again.
+ * </p>
  *
  */
 public class HistoryCache {
@@ -44,12 +64,62 @@ public class HistoryCache {
     public void newHistoryItem(HistoryItem newItem);
   }
 
-  /** Store the history items in a sorted map so that they remain in chronological order. */
-  private final SortedMap<String, HistoryItem> historyCache = Maps.newTreeMap(
-      Collections.reverseOrder());
+  /** Default number of bytes of response bodies that are retained. */
+  public static final long DEFAULT_BODY_BUDGET_BYTES = 50L * 1024 * 1024;
+
+  /** Default length in characters from which response bodies are held compressed. */
+  public static final int DEFAULT_COMPRESSION_THRESHOLD_CHARS = 16 * 1024;
+
+  /**
+   * Number of characters of a body which are compressed per run of the incremental command, about
+   * 30 ms of work at the throughput of {@link LzCodec}.
+   */
+  static final int COMPRESSION_SLICE_CHARS = 96 * 1024;
 
+  /** Number of items for which room is made when the cache is created. */
+  static final int INITIAL_CAPACITY = 64;
+
+  private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+
+  /** Array of the history items, the item with key {@code k} is at {@link #slot(int)}. */
+  private HistoryItem[] items = new HistoryItem[INITIAL_CAPACITY];
+
+  /**
+   * Key of the most recent item, which is also the number of items. Keys are assigned in sequence
+   * starting at {@code 1}.
+   */
   private int lastKey = 0;
 
+  /**
+   * Key of the oldest item whose response body is retained. Bodies are discarded oldest first, so
+   * the bodies of all of the newer items are retained too.
+   */
+  private int oldestRetainedBodyKey = 1;
+
+  private final long bodyBudgetBytes;
+  private final int compressionThresholdChars;
+  private long retainedBodyBytes = 0;
+  private int discardedBodyCount = 0;
+
+  private int compressedBodyCount = 0;
+  private long uncompressedChars = 0;
+  private long compressedChars = 0;
+  private long compressionMillis = 0;
+
+  /** Storage in which the history is persisted between sessions, or {@code null} if none. */
+  private PersistentHistory persistentHistory;
+
+  /** Scheduler of the compression of the bodies, or {@code null} to compress them when added. */
+  private Scheduler compressionScheduler;
+
+  /** Keys of the items whose bodies are waiting to be compressed, oldest first. */
+  private final LinkedList<Integer> pendingCompressions = Lists.newLinkedList();
+  private boolean compressionScheduled = false;
+
+  /** Compressor of the body which is being compressed, or {@code null} if none is. */
+  private LzCodec.Compressor compressor;
+  private int compressorKey;
+
   /**
    * Field which contains the observer to notify of cache change events.
    */
@@ -60,6 +130,48 @@ public class HistoryCache {
     }
   };
 
+  /**
+   * Create a cache which retains up to {@link #DEFAULT_BODY_BUDGET_BYTES} of response bodies.
+   */
+  public HistoryCache() {
+    this(DEFAULT_BODY_BUDGET_BYTES);
+  }
+
+  /**
+   * Create a cache which retains up to the specified number of bytes of response bodies. The body
+   * of the most recent item is always retained, regardless of its size.
+   */
+  public HistoryCache(long bodyBudgetBytes) {
+    this(bodyBudgetBytes, DEFAULT_COMPRESSION_THRESHOLD_CHARS);
+  }
+
+  /**
+   * Create a cache which retains up to the specified number of bytes of response bodies, and
+   * compresses the bodies of at least the specified number of characters.
+   */
+  public HistoryCache(long bodyBudgetBytes, int compressionThresholdChars) {
+    Preconditions.checkArgument(bodyBudgetBytes >= 0);
+    Preconditions.checkArgument(compressionThresholdChars >= 0);
+    this.bodyBudgetBytes = bodyBudgetBytes;
+    this.compressionThresholdChars = compressionThresholdChars;
+  }
+
+  /**
+   * Persist the history items which are added from now on, so that they survive reloads of the
+   * page and their discarded response bodies can be restored.
+   */
+  public void setPersistentHistory(PersistentHistory persistentHistory) {
+    this.persistentHistory = persistentHistory;
+  }
+
+  /**
+   * Compress the bodies of the history items which are added from now on with an incremental
+   * command of the scheduler, rather than while they are added.
+   */
+  public void setCompressionScheduler(Scheduler compressionScheduler) {
+    this.compressionScheduler = compressionScheduler;
+  }
+
   /**
    * Create a new history item and add it to the cache.
    *
@@ -76,9 +188,27 @@ public class HistoryCache {
     Preconditions.checkNotNull(request);
     Preconditions.checkNotNull(response);
 
+    if (lastKey == items.length) {
+      growItems();
+    }
+
     String key = Integer.toString(++lastKey);
-    HistoryItem item = new HistoryItem(key, request, response, startTime, endTime);
-    historyCache.put(key, item);
+    // Hold a copy of the response, so that the parse tree built when it is displayed is not kept.
+    HistoryItem item =
+        new HistoryItem(key, request, response.withoutParsedBody(), startTime, endTime);
+    if (persistentHistory != null) {
+      persistentHistory.save(item);
+    }
+
+    if (compressionScheduler == null) {
+      item = compressBody(item);
+    } else {
+      scheduleCompression(lastKey);
+    }
+    items[slot(lastKey)] = item;
+
+    retainedBodyBytes += estimateBodyBytes(item.getResponse());
+    discardOldestBodies();
 
     // Inform our observer that there is a new item
     observer.newHistoryItem(item);
@@ -86,20 +216,329 @@ public class HistoryCache {
   }
 
   /**
-   * Returns a history item retrieved using the key provided.
+   * Returns a history item retrieved using the key provided. If the response body of the item is
+   * compressed the item is returned with the body decompressed, and if the body has been discarded
+   * it is read back from the persistent history when possible, in both cases without retaining the
+   * plain body in the cache. The response is always a copy, so that the parse tree built when it is
+   * displayed is released with it rather than kept by the cache.
    *
    * @param key Key which will be used to retrieve the cache item.
    *
    * @return History item stored associated with the key or {@code null} if none.
    */
   public HistoryItem getHistoryItem(String key) {
-    return historyCache.get(Preconditions.checkNotNull(key));
+    HistoryItem item = getItem(Preconditions.checkNotNull(key));
+    if (item == null) {
+      return null;
+    }
+
+    String compressed = item.getResponse().getCompressedBody();
+    if (compressed != null) {
+      return item.withResponseBody(LzCodec.decompress(compressed));
+    }
+    if (persistentHistory != null && item.getResponse().isBodyDiscarded()) {
+      String body = persistentHistory.loadBody(persistentHistory.recordId(key));
+      if (body != null) {
+        return item.withResponseBody(body);
+      }
+    }
+    return item.withoutParsedResponseBody();
   }
 
   /**
    * Returns the list of all cached items in reverse chronological order.
    */
   public List<HistoryItem> listHistoryItems() {
-    return ImmutableList.copyOf(historyCache.values());
+    return listHistoryItems(0, lastKey);
+  }
+
+  /**
+   * Returns a page of the cached items in reverse chronological order. The items are those held by
+   * the cache, to list their metadata; the items to display are retrieved with
+   * {@link #getHistoryItem(String)}.
+   *
+   * @param offset Number of most recent items to skip.
+   * @param limit Maximum number of items to return.
+   */
+  public List<HistoryItem> listHistoryItems(int offset, int limit) {
+    Preconditions.checkArgument(offset >= 0 && limit >= 0);
+
+    ImmutableList.Builder<HistoryItem> page = ImmutableList.builder();
+    int end = Math.min(lastKey, offset + limit);
+    for (int i = offset; i < end; i++) {
+      page.add(items[slot(lastKey - i)]);
+    }
+    return page.build();
+  }
+
+  /**
+   * Returns the key of the most recent item older than the specified item which executed the same
+   * method, so that their responses can be compared, or {@code null} if there is none. Only the
+   * metadata of the items is read, the body of the previous item is only decompressed or loaded
+   * once it is retrieved with {@link #getHistoryItem(String)}.
+   */
+  public String findPreviousExecution(HistoryItem item) {
+    String methodId = item.getRequest().getMethod().getId();
+    int key;
+    try {
+      key = Integer.parseInt(item.getKey());
+    } catch (NumberFormatException e) {
+      return null;
+    }
+
+    for (int previous = Math.min(key, lastKey + 1) - 1; previous > 0; previous--) {
+      if (items[slot(previous)].getRequest().getMethod().getId().equals(methodId)) {
+        return Integer.toString(previous);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns a page of the records which previous sessions saved in the persistent history, in
+   * reverse chronological order, so that they can be listed after the items of this session.
+   * Returns an empty list if the history is not persisted.
+   *
+   * @param offset Number of records to skip.
+   * @param limit Maximum number of records to return.
+   */
+  public List<HistoryRecord> listStoredRecords(int offset, int limit) {
+    if (persistentHistory == null) {
+      return ImmutableList.of();
+    }
+    return persistentHistory.listPreviousRecords(offset, limit);
+  }
+
+  /**
+   * Returns the number of items in the cache.
+   */
+  public int getItemCount() {
+    return lastKey;
+  }
+
+  /**
+   * Returns the number of items whose response bodies are retained.
+   */
+  public int getRetainedBodyCount() {
+    return lastKey - oldestRetainedBodyKey + 1;
+  }
+
+  /**
+   * Returns the number of items whose response bodies have been discarded.
+   */
+  public int getDiscardedBodyCount() {
+    return discardedBodyCount;
+  }
+
+  /**
+   * Returns the estimated number of bytes used by the retained response bodies.
+   */
+  public long getRetainedBodyBytes() {
+    return retainedBodyBytes;
+  }
+
+  /**
+   * Returns the number of response bodies which were compressed.
+   */
+  public int getCompressedBodyCount() {
+    return compressedBodyCount;
+  }
+
+  /**
+   * Returns the ratio between the original and compressed length of the compressed bodies, or
+   * {@code 0} if no body was compressed.
+   */
+  public double getCompressionRatio() {
+    return compressedChars == 0 ? 0 : (double) uncompressedChars / compressedChars;
+  }
+
+  /**
+   * Returns the total time in milliseconds spent compressing response bodies.
+   */
+  public long getCompressionMillis() {
+    return compressionMillis;
+  }
+
+  /**
+   * Returns the number of bytes of response bodies that the cache tries to stay under.
+   */
+  public long getBodyBudgetBytes() {
+    return bodyBudgetBytes;
+  }
+
+  /**
+   * Returns a human readable summary of the memory used by the cache.
+   */
+  public String getUsageSummary() {
+    String summary = getItemCount() + " requests, " + getRetainedBodyCount()
+        + " responses kept using " + formatMegabytes(retainedBodyBytes) + " of "
+        + formatMegabytes(bodyBudgetBytes) + ", " + discardedBodyCount + " discarded";
+    if (compressedBodyCount > 0) {
+      long ratioTenths = uncompressedChars * 10 / compressedChars;
+      summary += ", " + compressedBodyCount + " compressed " + (ratioTenths / 10) + "."
+          + (ratioTenths % 10) + ":1";
+      if (compressionMillis > 0) {
+        summary += " at " + formatMegabytes(2 * uncompressedChars * 1000 / compressionMillis)
+            + "/s";
+      }
+    }
+    return summary;
+  }
+
+  /**
+   * Returns the item with its response body compressed if the body is above the threshold and
+   * compression makes it smaller, or the item itself otherwise.
+   */
+  private HistoryItem compressBody(HistoryItem item) {
+    String body = item.getResponse().getBodyAsString();
+    if (body == null || body.length() < compressionThresholdChars) {
+      return item;
+    }
+
+    long start = System.currentTimeMillis();
+    String compressed = LzCodec.compress(body);
+    compressionMillis += System.currentTimeMillis() - start;
+    return withCompressedBody(item, body, compressed);
+  }
+
+  /**
+   * Returns the item with the compressed form of its body if that is smaller, or the item itself
+   * otherwise.
+   */
+  private HistoryItem withCompressedBody(HistoryItem item, String body, String compressed) {
+    if (compressed.length() >= body.length()) {
+      return item;
+    }
+
+    compressedBodyCount++;
+    uncompressedChars += body.length();
+    compressedChars += compressed.length();
+    return item.withCompressedResponseBody(compressed);
+  }
+
+  /**
+   * Queue the body of the item with the specified key to be compressed by an incremental command.
+   */
+  private void scheduleCompression(int key) {
+    pendingCompressions.add(key);
+    if (!compressionScheduled) {
+      compressionScheduled = true;
+      compressionScheduler.scheduleIncremental(new RepeatingCommand() {
+        @Override
+        public boolean execute() {
+          compressionScheduled = compressNextSlice();
+          return compressionScheduled;
+        }
+      });
+    }
+  }
+
+  /**
+   * Compress the next slice of the body which is being compressed, starting on the body of the
+   * next queued item if there is none. A body which is discarded before it is fully compressed is
+   * abandoned.
+   *
+   * @return Whether there are still bodies to compress.
+   */
+  private boolean compressNextSlice() {
+    if (compressor != null && !isBodyRetained(compressorKey)) {
+      compressor = null;
+    }
+    while (compressor == null && !pendingCompressions.isEmpty()) {
+      int key = pendingCompressions.removeFirst();
+      if (isBodyRetained(key)) {
+        String body = items[slot(key)].getResponse().getBodyAsString();
+        if (body != null && body.length() >= compressionThresholdChars) {
+          compressor = new LzCodec.Compressor(body);
+          compressorKey = key;
+        }
+      }
+    }
+    if (compressor == null) {
+      return false;
+    }
+
+    long start = System.currentTimeMillis();
+    boolean done = compressor.compress(COMPRESSION_SLICE_CHARS);
+    compressionMillis += System.currentTimeMillis() - start;
+    if (done) {
+      int slot = slot(compressorKey);
+      HistoryItem item = items[slot];
+      HistoryItem compressed = withCompressedBody(
+          item, item.getResponse().getBodyAsString(), compressor.getCompressed());
+      retainedBodyBytes += estimateBodyBytes(compressed.getResponse())
+          - estimateBodyBytes(item.getResponse());
+      items[slot] = compressed;
+      compressor = null;
+    }
+    return compressor != null || !pendingCompressions.isEmpty();
+  }
+
+  /**
+   * Returns whether the item with the specified key is still in the cache with its body.
+   */
+  private boolean isBodyRetained(int key) {
+    return key >= oldestRetainedBodyKey;
+  }
+
+  /**
+   * Discard the bodies of the oldest items until the retained bodies fit in the budget, always
+   * keeping the body of the newest item.
+   */
+  private void discardOldestBodies() {
+    while (retainedBodyBytes > bodyBudgetBytes && oldestRetainedBodyKey < lastKey) {
+      int slot = slot(oldestRetainedBodyKey++);
+      HistoryItem item = items[slot];
+      retainedBodyBytes -= estimateBodyBytes(item.getResponse());
+      items[slot] = item.withoutResponseBody();
+      discardedBodyCount++;
+    }
+  }
+
+  /**
+   * Double the size of the array of items, which keeps the cost of adding an item constant on
+   * average.
+   */
+  private void growItems() {
+    HistoryItem[] grown = new HistoryItem[2 * items.length];
+    System.arraycopy(items, 0, grown, 0, items.length);
+    items = grown;
+  }
+
+  /**
+   * Returns the item with the specified key, or {@code null} if there is no such item.
+   */
+  private HistoryItem getItem(String key) {
+    int numericKey;
+    try {
+      numericKey = Integer.parseInt(key);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+    return numericKey > 0 && numericKey <= lastKey ? items[slot(numericKey)] : null;
+  }
+
+  /**
+   * Returns the index in the array of the item with the specified key.
+   */
+  private int slot(int key) {
+    return key - 1;
+  }
+
+  /**
+   * Estimate the memory used by the body of a response, as held in the cache. Strings are stored
+   * with two bytes per character.
+   */
+  private static long estimateBodyBytes(ApiResponse response) {
+    String body = response.getCompressedBody();
+    if (body == null) {
+      body = response.getBodyAsString();
+    }
+    return body == null ? 0 : 2L * body.length();
+  }
+
+  private static String formatMegabytes(long bytes) {
+    long tenths = (bytes * 10 + BYTES_PER_MEGABYTE / 2) / BYTES_PER_MEGABYTE;
+    return (tenths / 10) + "." + (tenths % 10) + " MB";
   }
 }
@@ -92,6 +92,35 @@ public final class HistoryItem implements Comparable<HistoryItem> {
     return endTime;
   }
 
+  /**
+   * Returns a copy of this history item which no longer references the body of the response.
+   */
+  public HistoryItem withoutResponseBody() {
+    return new HistoryItem(key, request, response.withoutBody(), startTime, endTime);
+  }
+
+  /**
+   * Returns a copy of this history item whose response has the specified body.
+   */
+  public HistoryItem withResponseBody(String body) {
+    return new HistoryItem(key, request, response.withBody(body), startTime, endTime);
+  }
+
+  /**
+   * Returns a copy of this history item whose response holds only the compressed form of its body.
+   */
+  public HistoryItem withCompressedResponseBody(String compressedBody) {
+    return new HistoryItem(
+        key, request, response.withCompressedBody(compressedBody), startTime, endTime);
+  }
+
+  /**
+   * Returns a copy of this history item whose response does not hold the parse tree of its body.
+   */
+  public HistoryItem withoutParsedResponseBody() {
+    return new HistoryItem(key, request, response.withoutParsedBody(), startTime, endTime);
+  }
+
   @Override
   public int compareTo(HistoryItem o) {
     return new Long(endTime).compareTo(o.endTime);
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.history;
+
+import com.google.api.explorer.client.base.ApiRequest;
+import com.google.api.explorer.client.base.ApiResponse;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Lightweight metadata of a history item which is persisted between sessions, without the request
+ * and response objects or the response body.
+ *
+ */
+@Immutable
+public final class HistoryRecord {
+  private static final char SEPARATOR = '\n';
+  private static final char ESCAPE = '\\';
+  private static final int FIELD_COUNT = 8;
+
+  private final String id;
+  private final String methodId;
+  private final String httpMethod;
+  private final String requestPath;
+  private final int status;
+  private final String statusText;
+  private final long startTime;
+  private final long endTime;
+
+  /**
+   * Create a record from the specified data.
+   *
+   * @param id Identifier of the record in the persistent store.
+   * @param methodId Identifier of the method that was executed.
+   * @param httpMethod HTTP method of the request.
+   * @param requestPath Path and query of the request.
+   * @param status Status code of the response.
+   * @param statusText Text associated with the status code.
+   * @param startTime Time at which the request was started.
+   * @param endTime Time at which the request completed.
+   */
+  public HistoryRecord(String id, String methodId, String httpMethod, String requestPath,
+      int status, String statusText, long startTime, long endTime) {
+
+    this.id = Preconditions.checkNotNull(id);
+    this.methodId = Preconditions.checkNotNull(methodId);
+    this.httpMethod = Preconditions.checkNotNull(httpMethod);
+    this.requestPath = Preconditions.checkNotNull(requestPath);
+    this.status = status;
+    this.statusText = Preconditions.checkNotNull(statusText);
+    this.startTime = startTime;
+    this.endTime = endTime;
+  }
+
+  /**
+   * Create the record of a history item.
+   *
+   * @param id Identifier of the record in the persistent store.
+   * @param item Item from which to extract the metadata.
+   */
+  public static HistoryRecord forItem(String id, HistoryItem item) {
+    ApiRequest request = item.getRequest();
+    ApiResponse response = item.getResponse();
+    return new HistoryRecord(id,
+        request.getMethod().getId(),
+        request.getHttpMethod().name(),
+        request.getRequestPath(),
+        response.getStatus(),
+        response.getStatusText() == null ? "" : response.getStatusText(),
+        item.getStartTime(),
+        item.getEndTime());
+  }
+
+  /**
+   * Returns the identifier of the record in the persistent store.
+   */
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * Returns the identifier of the method that was executed.
+   */
+  public String getMethodId() {
+    return methodId;
+  }
+
+  /**
+   * Returns the HTTP method of the request.
+   */
+  public String getHttpMethod() {
+    return httpMethod;
+  }
+
+  /**
+   * Returns the path and query of the request.
+   */
+  public String getRequestPath() {
+    return requestPath;
+  }
+
+  /**
+   * Returns the status code of the response.
+   */
+  public int getStatus() {
+    return status;
+  }
+
+  /**
+   * Returns the text associated with the status code.
+   */
+  public String getStatusText() {
+    return statusText;
+  }
+
+  /**
+   * Returns the time at which the request was started.
+   */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  /**
+   * Returns the time at which the request completed.
+   */
+  public long getEndTime() {
+    return endTime;
+  }
+
+  /**
+   * Encode the record as a string, from which it can be recreated with {@link #decode(String)}.
+   */
+  public String encode() {
+    StringBuilder sb = new StringBuilder();
+    appendField(sb, id);
+    appendField(sb, methodId);
+    appendField(sb, httpMethod);
+    appendField(sb, requestPath);
+    appendField(sb, String.valueOf(status));
+    appendField(sb, statusText);
+    appendField(sb, String.valueOf(startTime));
+    appendField(sb, String.valueOf(endTime));
+    return sb.toString();
+  }
+
+  /**
+   * Recreate a record from the string generated by {@link #encode()}.
+   *
+   * @throws IllegalArgumentException if the string is not a valid record.
+   */
+  public static HistoryRecord decode(String encoded) {
+    List<String> fields = Lists.newArrayListWithCapacity(FIELD_COUNT);
+    StringBuilder field = new StringBuilder();
+    for (int i = 0; i < encoded.length(); i++) {
+      char c = encoded.charAt(i);
+      if (c == ESCAPE && i + 1 < encoded.length()) {
+        char escaped = encoded.charAt(++i);
+        field.append(escaped == 'n' ? SEPARATOR : escaped);
+      } else if (c == SEPARATOR) {
+        fields.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    Preconditions.checkArgument(fields.size() == FIELD_COUNT, "Invalid history record");
+
+    try {
+      return new HistoryRecord(fields.get(0), fields.get(1), fields.get(2), fields.get(3),
+          Integer.parseInt(fields.get(4)), fields.get(5), Long.parseLong(fields.get(6)),
+          Long.parseLong(fields.get(7)));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid history record", e);
+    }
+  }
+
+  private static void appendField(StringBuilder sb, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == ESCAPE) {
+        sb.append(ESCAPE).append(ESCAPE);
+      } else if (c == SEPARATOR) {
+        sb.append(ESCAPE).append('n');
+      } else {
+        sb.append(c);
+      }
+    }
+    sb.append(SEPARATOR);
+  }
+}
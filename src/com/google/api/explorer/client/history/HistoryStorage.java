@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.history;
+
+import com.google.gwt.storage.client.Storage;
+
+/**
+ * Key value storage in which the request history is persisted between sessions.
+ *
+ */
+public interface HistoryStorage {
+  /**
+   * Returns the value stored for the key, or {@code null} if there is none.
+   */
+  String getItem(String key);
+
+  /**
+   * Store the value for the key.
+   *
+   * @throws RuntimeException if the storage is full.
+   */
+  void setItem(String key, String value);
+
+  /**
+   * Remove the value stored for the key, if any.
+   */
+  void removeItem(String key);
+
+  /**
+   * History storage backed by the local storage of the browser.
+   */
+  public static class LocalHistoryStorage implements HistoryStorage {
+    private final Storage storage;
+
+    private LocalHistoryStorage(Storage storage) {
+      this.storage = storage;
+    }
+
+    /**
+     * Returns storage backed by the local storage of the browser, or {@code null} if the browser
+     * does not support it.
+     */
+    public static HistoryStorage createIfSupported() {
+      Storage storage = Storage.getLocalStorageIfSupported();
+      return storage == null ? null : new LocalHistoryStorage(storage);
+    }
+
+    @Override
+    public String getItem(String key) {
+      return storage.getItem(key);
+    }
+
+    @Override
+    public void setItem(String key, String value) {
+      storage.setItem(key, value);
+    }
+
+    @Override
+    public void removeItem(String key) {
+      storage.removeItem(key);
+    }
+  }
+}
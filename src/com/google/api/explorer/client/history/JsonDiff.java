@@ -0,0 +1,763 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.history;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Structural difference between two JSON documents, typically the response bodies of two
+ * executions of the same method.
+ *
+ * <p>
+ * Both documents are parsed into trees in which every node carries a hash of its subtree, so that
+ * subtrees which differ are told apart without being walked. Subtrees whose hashes match are only
+ * walked once to confirm that they are equal, rather than compared path by path, so the number of
+ * comparisons depends mostly on the size of the changes. Object members are matched by key
+ * regardless of their order, and arrays are aligned by trimming the elements they have in common
+ * at either end, so that inserting or removing elements near the start of a list does not report
+ * every following element.
+ * </p>
+ *
+ * <p>
+ * The work is performed in slices by {@link #step(int)}, so that large documents can be compared
+ * without blocking the UI. Every node parsed, and every pair of nodes visited while confirming that
+ * two subtrees are equal, counts against the budget of a slice, and a confirmation or the trimming
+ * of the common ends of two arrays which uses up the budget resumes in the next slice. Differences
+ * are reported in document order as they are found.
+ * </p>
+ *
+ */
+public final class JsonDiff {
+  /** Maximum number of differences reported, the comparison stops once it is reached. */
+  public static final int MAX_DIFFERENCES = 1000;
+
+  /**
+   * Kind of change made to a path of the document.
+   */
+  public enum ChangeType {
+    ADDED, REMOVED, CHANGED
+  }
+
+  /**
+   * A path of the document which differs between the two documents.
+   */
+  public static final class Difference {
+    private final ChangeType type;
+    private final String path;
+    private final String oldValue;
+    private final String newValue;
+
+    Difference(ChangeType type, String path, @Nullable String oldValue,
+        @Nullable String newValue) {
+      this.type = type;
+      this.path = path;
+      this.oldValue = oldValue;
+      this.newValue = newValue;
+    }
+
+    /** Returns the kind of change. */
+    public ChangeType getType() {
+      return type;
+    }
+
+    /** Returns the JSONPath expression of the node which changed, such as {@code $.items[2].id}. */
+    public String getPath() {
+      return path;
+    }
+
+    /** Returns a summary of the old value, or {@code null} if the value was added. */
+    @Nullable
+    public String getOldValue() {
+      return oldValue;
+    }
+
+    /** Returns a summary of the new value, or {@code null} if the value was removed. */
+    @Nullable
+    public String getNewValue() {
+      return newValue;
+    }
+
+    @Override
+    public String toString() {
+      return type + " " + path + ": " + oldValue + " -> " + newValue;
+    }
+  }
+
+  private final Parser oldParser;
+  private final Parser newParser;
+
+  /** Pending comparisons, the next one to perform is at the end. */
+  private final List<Comparison> pending = Lists.newArrayList();
+
+  /** Comparison waiting for {@link #check} to tell whether its subtrees are equal. */
+  private Comparison current;
+  private EqualityCheck check;
+
+  /** Arrays whose common ends are being trimmed, or {@code null} if none. */
+  private ArrayAlignment alignment;
+
+  private final List<Difference> differences = Lists.newArrayList();
+  private boolean comparing = false;
+  private boolean complete = false;
+  private String error;
+
+  /**
+   * Prepare the comparison of two JSON documents, no work is performed until {@link #step(int)} is
+   * invoked.
+   */
+  public JsonDiff(String oldJson, String newJson) {
+    this.oldParser = new Parser(Preconditions.checkNotNull(oldJson));
+    this.newParser = new Parser(Preconditions.checkNotNull(newJson));
+  }
+
+  /**
+   * Prepare the comparison of the response bodies of two history items.
+   *
+   * @param older Item whose body is the old version of the document.
+   * @param newer Item whose body is the new version of the document.
+   */
+  public static JsonDiff between(HistoryItem older, HistoryItem newer) {
+    String oldBody = older.getResponse().getBodyAsString();
+    String newBody = newer.getResponse().getBodyAsString();
+    return new JsonDiff(oldBody == null ? "" : oldBody, newBody == null ? "" : newBody);
+  }
+
+  /**
+   * Perform the next slice of the comparison.
+   *
+   * @param budget Number of nodes to parse, or pairs of nodes to compare, in this slice.
+   * @return Whether there is work left.
+   */
+  public boolean step(int budget) {
+    Preconditions.checkArgument(budget > 0);
+    try {
+      while (budget > 0 && !complete) {
+        if (!oldParser.isDone()) {
+          budget = oldParser.parse(budget);
+        } else if (!newParser.isDone()) {
+          budget = newParser.parse(budget);
+        } else if (!comparing) {
+          comparing = true;
+          pending.add(new Comparison("$", oldParser.getRoot(), newParser.getRoot()));
+        } else if (alignment != null) {
+          budget = alignment.align(budget);
+          if (alignment.isDone()) {
+            schedule(alignment.getComparisons());
+            alignment = null;
+          }
+        } else if (check != null) {
+          budget = check.visit(budget);
+          if (check.isDone()) {
+            if (!check.isEqual()) {
+              compareDifferent(current);
+            }
+            current = null;
+            check = null;
+          }
+        } else if (pending.isEmpty() || differences.size() >= MAX_DIFFERENCES) {
+          complete = true;
+        } else {
+          compare(pending.remove(pending.size() - 1));
+          budget--;
+        }
+      }
+    } catch (IllegalArgumentException e) {
+      error = e.getMessage();
+      complete = true;
+    }
+    return !complete;
+  }
+
+  /**
+   * Perform the whole comparison at once.
+   *
+   * @return This comparison.
+   */
+  public JsonDiff run() {
+    while (step(Integer.MAX_VALUE)) {
+      // Keep going.
+    }
+    return this;
+  }
+
+  /**
+   * Returns whether the comparison is complete.
+   */
+  public boolean isComplete() {
+    return complete;
+  }
+
+  /**
+   * Returns why the documents could not be compared, or {@code null} if they could.
+   */
+  @Nullable
+  public String getError() {
+    return error;
+  }
+
+  /**
+   * Returns whether the comparison stopped at {@link #MAX_DIFFERENCES} differences.
+   */
+  public boolean isTruncated() {
+    return differences.size() >= MAX_DIFFERENCES && !pending.isEmpty();
+  }
+
+  /**
+   * Returns the differences found so far, in document order.
+   */
+  public List<Difference> getDifferences() {
+    return ImmutableList.copyOf(differences);
+  }
+
+  /**
+   * Returns the differences found after the first {@code from}, so that views can add the
+   * differences found by each slice.
+   */
+  public List<Difference> getDifferences(int from) {
+    return ImmutableList.copyOf(differences.subList(Math.min(from, differences.size()),
+        differences.size()));
+  }
+
+  /**
+   * Report the nodes of a comparison if only one of them exists, or start checking whether their
+   * subtrees are equal otherwise.
+   */
+  private void compare(Comparison comparison) {
+    Node oldNode = comparison.oldNode;
+    Node newNode = comparison.newNode;
+    String path = comparison.path;
+    if (oldNode == null) {
+      differences.add(new Difference(ChangeType.ADDED, path, null, newNode.summary()));
+    } else if (newNode == null) {
+      differences.add(new Difference(ChangeType.REMOVED, path, oldNode.summary(), null));
+    } else {
+      current = comparison;
+      check = new EqualityCheck(oldNode, newNode);
+    }
+  }
+
+  /**
+   * Report or break down the comparison of two subtrees which are not equal.
+   */
+  private void compareDifferent(Comparison comparison) {
+    Node oldNode = comparison.oldNode;
+    Node newNode = comparison.newNode;
+    String path = comparison.path;
+    if (oldNode.type != newNode.type || oldNode.type == NodeType.VALUE) {
+      differences.add(
+          new Difference(ChangeType.CHANGED, path, oldNode.summary(), newNode.summary()));
+    } else if (oldNode.type == NodeType.OBJECT) {
+      compareObjects(path, oldNode, newNode);
+    } else {
+      alignment = new ArrayAlignment(path, oldNode.children, newNode.children);
+    }
+  }
+
+  private void compareObjects(String path, Node oldNode, Node newNode) {
+    Map<String, Node> newMembers = Maps.newHashMap();
+    for (int i = 0; i < newNode.children.size(); i++) {
+      newMembers.put(newNode.keys.get(i), newNode.children.get(i));
+    }
+
+    List<Comparison> next = Lists.newArrayList();
+    Map<String, Node> oldMembers = Maps.newHashMap();
+    for (int i = 0; i < oldNode.children.size(); i++) {
+      String key = oldNode.keys.get(i);
+      oldMembers.put(key, oldNode.children.get(i));
+      next.add(new Comparison(memberPath(path, key), oldNode.children.get(i), newMembers.get(key)));
+    }
+    for (int i = 0; i < newNode.children.size(); i++) {
+      String key = newNode.keys.get(i);
+      if (!oldMembers.containsKey(key)) {
+        next.add(new Comparison(memberPath(path, key), null, newNode.children.get(i)));
+      }
+    }
+    schedule(next);
+  }
+
+  /**
+   * Add comparisons to be performed before the pending ones, in the order given.
+   */
+  private void schedule(List<Comparison> next) {
+    for (int i = next.size() - 1; i >= 0; i--) {
+      pending.add(next.get(i));
+    }
+  }
+
+  /**
+   * Returns the JSONPath of a member of an object, in dot notation when the key allows it.
+   */
+  private static String memberPath(String path, String key) {
+    boolean identifier = !key.isEmpty() && !Character.isDigit(key.charAt(0));
+    for (int i = 0; i < key.length() && identifier; i++) {
+      char c = key.charAt(i);
+      identifier = Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+    if (identifier) {
+      return path + "." + key;
+    }
+    return path + "['" + key.replace("\\", "\\\\").replace("'", "\\'") + "']";
+  }
+
+  /**
+   * Comparison of the nodes found at the same path in both documents, one of which may be
+   * {@code null} if the path only exists in one of them.
+   */
+  private static class Comparison {
+    final String path;
+    final Node oldNode;
+    final Node newNode;
+
+    Comparison(String path, @Nullable Node oldNode, @Nullable Node newNode) {
+      this.path = path;
+      this.oldNode = oldNode;
+      this.newNode = newNode;
+    }
+  }
+
+  /**
+   * Alignment of the elements of two arrays, which skips the elements that are equal at the start
+   * and at the end and pairs up the others by position. Each element is checked in turn by an
+   * {@link EqualityCheck}, so the alignment can be performed in several slices.
+   */
+  private static class ArrayAlignment {
+    private final String path;
+    private final List<Node> oldElements;
+    private final List<Node> newElements;
+    private final int maxPrefix;
+    private int prefix = 0;
+    private int suffix = 0;
+    private boolean trimmingSuffix = false;
+    private boolean done = false;
+    private EqualityCheck check;
+
+    ArrayAlignment(String path, List<Node> oldElements, List<Node> newElements) {
+      this.path = path;
+      this.oldElements = oldElements;
+      this.newElements = newElements;
+      this.maxPrefix = Math.min(oldElements.size(), newElements.size());
+    }
+
+    boolean isDone() {
+      return done;
+    }
+
+    /**
+     * Trim the common ends of the arrays with up to the specified number of node comparisons.
+     *
+     * @return The budget left.
+     */
+    int align(int budget) {
+      while (budget > 0 && !done) {
+        if (check != null) {
+          budget = check.visit(budget);
+          if (!check.isDone()) {
+            break;
+          }
+          boolean equal = check.isEqual();
+          check = null;
+          if (!trimmingSuffix) {
+            if (equal) {
+              prefix++;
+            } else {
+              trimmingSuffix = true;
+            }
+          } else if (equal) {
+            suffix++;
+          } else {
+            done = true;
+          }
+        } else if (!trimmingSuffix) {
+          if (prefix < maxPrefix) {
+            check = new EqualityCheck(oldElements.get(prefix), newElements.get(prefix));
+          } else {
+            trimmingSuffix = true;
+          }
+        } else if (suffix < maxPrefix - prefix) {
+          check = new EqualityCheck(oldElements.get(oldElements.size() - 1 - suffix),
+              newElements.get(newElements.size() - 1 - suffix));
+        } else {
+          done = true;
+        }
+      }
+      return budget;
+    }
+
+    /**
+     * Returns the comparisons of the elements which remain once the common ends are trimmed,
+     * paired up by position. The extra elements of the longer array were added or removed.
+     */
+    List<Comparison> getComparisons() {
+      List<Comparison> comparisons = Lists.newArrayList();
+      int oldEnd = oldElements.size() - suffix;
+      int newEnd = newElements.size() - suffix;
+      for (int i = prefix; i < Math.max(oldEnd, newEnd); i++) {
+        Node oldElement = i < oldEnd ? oldElements.get(i) : null;
+        Node newElement = i < newEnd ? newElements.get(i) : null;
+        comparisons.add(new Comparison(path + "[" + i + "]", oldElement, newElement));
+      }
+      return comparisons;
+    }
+  }
+
+  /**
+   * Check of whether two subtrees are identical, which visits one pair of nodes per unit of budget
+   * and can be resumed in the next slice. Subtrees whose hashes differ are rejected at once, the
+   * others are compared value by value, since different values may have the same hash. Object
+   * members are compared by key regardless of their order.
+   */
+  static final class EqualityCheck {
+    private final List<Node> pending;
+    private boolean done = false;
+    private boolean equal = false;
+
+    EqualityCheck(Node a, Node b) {
+      pending = Lists.newArrayList(a, b);
+    }
+
+    boolean isDone() {
+      return done;
+    }
+
+    /** Returns whether the subtrees are identical, once the check is done. */
+    boolean isEqual() {
+      return equal;
+    }
+
+    /**
+     * Visit up to the specified number of pairs of nodes.
+     *
+     * @return The budget left.
+     */
+    int visit(int budget) {
+      while (budget > 0 && !done) {
+        if (pending.isEmpty()) {
+          finish(true);
+          break;
+        }
+        Node b = pending.remove(pending.size() - 1);
+        Node a = pending.remove(pending.size() - 1);
+        budget--;
+        if (a.hash != b.hash || a.size != b.size || a.type != b.type) {
+          finish(false);
+        } else if (a.type == NodeType.VALUE) {
+          if (!a.value.equals(b.value)) {
+            finish(false);
+          }
+        } else if (a.children.size() != b.children.size()) {
+          finish(false);
+        } else if (a.type == NodeType.ARRAY || a.keys.equals(b.keys)) {
+          for (int i = 0; i < a.children.size(); i++) {
+            pending.add(a.children.get(i));
+            pending.add(b.children.get(i));
+          }
+        } else {
+          addMembers(a, b);
+        }
+      }
+      return budget;
+    }
+
+    /**
+     * Add the pairs of members of two objects whose keys are in a different order.
+     */
+    private void addMembers(Node a, Node b) {
+      Map<String, Node> members = Maps.newHashMap();
+      for (int i = 0; i < b.children.size(); i++) {
+        members.put(b.keys.get(i), b.children.get(i));
+      }
+      if (members.size() != b.children.size()) {
+        // Repeated keys in a different order, let the caller compare them member by member.
+        finish(false);
+        return;
+      }
+      for (int i = 0; i < a.children.size(); i++) {
+        Node member = members.get(a.keys.get(i));
+        if (member == null) {
+          finish(false);
+          return;
+        }
+        pending.add(a.children.get(i));
+        pending.add(member);
+      }
+    }
+
+    private void finish(boolean result) {
+      done = true;
+      equal = result;
+      pending.clear();
+    }
+  }
+
+  private enum NodeType {
+    OBJECT, ARRAY, VALUE
+  }
+
+  /**
+   * Node of a parsed document. Values keep their source text, and containers their children, the
+   * keys of the children of objects, and a hash of their subtree once they are complete.
+   */
+  static final class Node {
+    final NodeType type;
+    final String value;
+    final List<String> keys;
+    final List<Node> children;
+    int hash;
+    int size = 1;
+
+    Node(NodeType type, @Nullable String value) {
+      this.type = type;
+      this.value = value;
+      this.keys = type == NodeType.OBJECT ? Lists.<String>newArrayList() : null;
+      this.children = type == NodeType.VALUE ? null : Lists.<Node>newArrayList();
+      if (type == NodeType.VALUE) {
+        hash = value.hashCode();
+      }
+    }
+
+    /**
+     * Compute the hash of the subtree, after all of the children have been added. Object members
+     * are hashed independently of their order.
+     */
+    void complete() {
+      int h = type == NodeType.OBJECT ? 0x3a5f : 0x7c1d;
+      for (int i = 0; i < children.size(); i++) {
+        Node child = children.get(i);
+        size += child.size;
+        if (type == NodeType.OBJECT) {
+          h += mix(keys.get(i).hashCode() * 31 + child.hash);
+        } else {
+          h = mix(h * 31 + child.hash);
+        }
+      }
+      hash = mix(h + children.size());
+    }
+
+    String summary() {
+      switch (type) {
+        case OBJECT:
+          return "{" + children.size() + (children.size() == 1 ? " property}" : " properties}");
+        case ARRAY:
+          return "[" + children.size() + (children.size() == 1 ? " element]" : " elements]");
+        default:
+          return value;
+      }
+    }
+
+    private static int mix(int h) {
+      h ^= h >>> 16;
+      h *= 0x45d9f3b;
+      h ^= h >>> 16;
+      return h;
+    }
+  }
+
+  /**
+   * Parser which builds the tree of a document in slices, using an explicit stack so that deeply
+   * nested documents do not exhaust the call stack.
+   */
+  static final class Parser {
+    private final String text;
+    private final List<Node> open = Lists.newArrayList();
+    private Node root;
+    private int pos = 0;
+    private boolean done = false;
+
+    Parser(String text) {
+      this.text = text;
+    }
+
+    boolean isDone() {
+      return done;
+    }
+
+    Node getRoot() {
+      return root;
+    }
+
+    /**
+     * Parse up to the specified number of values.
+     *
+     * @return The budget left.
+     * @throws IllegalArgumentException if the document is not valid JSON.
+     */
+    int parse(int budget) {
+      while (budget > 0 && !done) {
+        skipWhitespace();
+        if (open.isEmpty()) {
+          if (root == null) {
+            root = parseValue(null, null);
+            budget--;
+          } else {
+            check(pos == text.length(), "Unexpected content after the document");
+            done = true;
+          }
+          continue;
+        }
+
+        Node container = open.get(open.size() - 1);
+        char close = container.type == NodeType.OBJECT ? '}' : ']';
+        if (peek() == close) {
+          pos++;
+          open.remove(open.size() - 1);
+          container.complete();
+          continue;
+        }
+
+        if (!container.children.isEmpty()) {
+          expect(',');
+          skipWhitespace();
+        }
+        String key = null;
+        if (container.type == NodeType.OBJECT) {
+          check(peek() == '"', "Expected a key");
+          key = unescape(readString());
+          skipWhitespace();
+          expect(':');
+          skipWhitespace();
+        }
+        parseValue(container, key);
+        budget--;
+      }
+      return budget;
+    }
+
+    private Node parseValue(@Nullable Node parent, @Nullable String key) {
+      char c = peek();
+      Node node;
+      if (c == '{' || c == '[') {
+        pos++;
+        node = new Node(c == '{' ? NodeType.OBJECT : NodeType.ARRAY, null);
+        open.add(node);
+      } else if (c == '"') {
+        node = new Node(NodeType.VALUE, readString());
+      } else {
+        int start = pos;
+        while (pos < text.length() && isLiteralChar(text.charAt(pos))) {
+          pos++;
+        }
+        check(pos > start, "Unexpected character");
+        node = new Node(NodeType.VALUE, text.substring(start, pos));
+      }
+
+      if (parent != null) {
+        if (key != null) {
+          parent.keys.add(key);
+        }
+        parent.children.add(node);
+      }
+      return node;
+    }
+
+    /**
+     * Read a string, including its quotes and without unescaping it.
+     */
+    private String readString() {
+      int start = pos++;
+      while (true) {
+        check(pos < text.length(), "Unterminated string");
+        char c = text.charAt(pos++);
+        if (c == '\\') {
+          pos++;
+        } else if (c == '"') {
+          return text.substring(start, pos);
+        }
+      }
+    }
+
+    private String unescape(String quoted) {
+      String s = quoted.substring(1, quoted.length() - 1);
+      if (s.indexOf('\\') < 0) {
+        return s;
+      }
+
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < s.length(); i++) {
+        char c = s.charAt(i);
+        if (c != '\\' || i + 1 == s.length()) {
+          sb.append(c);
+          continue;
+        }
+        char escaped = s.charAt(++i);
+        switch (escaped) {
+          case 'n':
+            sb.append('\n');
+            break;
+          case 't':
+            sb.append('\t');
+            break;
+          case 'r':
+            sb.append('\r');
+            break;
+          case 'b':
+            sb.append('\b');
+            break;
+          case 'f':
+            sb.append('\f');
+            break;
+          case 'u':
+            check(i + 4 < s.length(), "Invalid escape");
+            sb.append((char) Integer.parseInt(s.substring(i + 1, i + 5), 16));
+            i += 4;
+            break;
+          default:
+            sb.append(escaped);
+        }
+      }
+      return sb.toString();
+    }
+
+    private static boolean isLiteralChar(char c) {
+      return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '+'
+          || c == '.' || c == 'E';
+    }
+
+    private void skipWhitespace() {
+      while (pos < text.length()) {
+        char c = text.charAt(pos);
+        if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+          return;
+        }
+        pos++;
+      }
+    }
+
+    private char peek() {
+      check(pos < text.length(), "Unexpected end of the document");
+      return text.charAt(pos);
+    }
+
+    private void expect(char c) {
+      check(peek() == c, "Expected '" + c + "'");
+      pos++;
+    }
+
+    private void check(boolean condition, String message) {
+      if (!condition) {
+        throw new IllegalArgumentException(message + " at character " + pos);
+      }
+    }
+  }
+}
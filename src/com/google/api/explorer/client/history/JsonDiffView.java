@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.history;
+
+import com.google.api.explorer.client.history.JsonDiff.Difference;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
+import com.google.gwt.dom.client.Style.WhiteSpace;
+import com.google.gwt.user.client.ui.Composite;
+import com.google.gwt.user.client.ui.FlowPanel;
+import com.google.gwt.user.client.ui.Label;
+
+import java.util.List;
+
+/**
+ * View of the differences between two JSON responses, which only renders the paths that changed.
+ * The comparison runs in slices scheduled as an incremental command, and the differences found by
+ * each slice are added as they come in.
+ *
+ */
+public class JsonDiffView extends Composite {
+  /** Number of nodes parsed or compared by each slice. */
+  private static final int NODES_PER_SLICE = 5000;
+
+  /** Length beyond which values are shortened. */
+  private static final int MAX_VALUE_LENGTH = 200;
+
+  private static final String ADDED_COLOR = "#080";
+  private static final String REMOVED_COLOR = "#c00";
+  private static final String CHANGED_COLOR = "#a60";
+
+  private final JsonDiff diff;
+  private final Label status = new Label("Comparing responses...");
+  private final FlowPanel rows = new FlowPanel();
+  private int renderedCount = 0;
+
+  /**
+   * Create a view which performs the comparison and shows its results.
+   *
+   * @param diff Comparison to perform, which must not have been started.
+   * @param scheduler Scheduler used to perform the comparison in slices.
+   */
+  public JsonDiffView(JsonDiff diff, Scheduler scheduler) {
+    this.diff = diff;
+
+    FlowPanel panel = new FlowPanel();
+    panel.add(status);
+    panel.add(rows);
+    initWidget(panel);
+
+    scheduler.scheduleIncremental(new RepeatingCommand() {
+      @Override
+      public boolean execute() {
+        boolean more = JsonDiffView.this.diff.step(NODES_PER_SLICE);
+        renderNewDifferences();
+        return more;
+      }
+    });
+  }
+
+  private void renderNewDifferences() {
+    List<Difference> differences = diff.getDifferences(renderedCount);
+    for (Difference difference : differences) {
+      rows.add(createRow(difference));
+    }
+    renderedCount += differences.size();
+
+    if (!diff.isComplete()) {
+      status.setText("Comparing responses, " + renderedCount + " differences so far...");
+    } else if (diff.getError() != null) {
+      status.setText("The responses could not be compared: " + diff.getError());
+    } else if (renderedCount == 0) {
+      status.setText("The responses are identical.");
+    } else {
+      status.setText((diff.isTruncated() ? "First " : "") + renderedCount
+          + (renderedCount == 1 ? " difference:" : " differences:"));
+    }
+  }
+
+  private static Label createRow(Difference difference) {
+    String text;
+    String color;
+    switch (difference.getType()) {
+      case ADDED:
+        text = "+ " + difference.getPath() + ": " + shorten(difference.getNewValue());
+        color = ADDED_COLOR;
+        break;
+      case REMOVED:
+        text = "- " + difference.getPath() + ": " + shorten(difference.getOldValue());
+        color = REMOVED_COLOR;
+        break;
+      default:
+        text = "~ " + difference.getPath() + ": " + shorten(difference.getOldValue()) + " -> "
+            + shorten(difference.getNewValue());
+        color = CHANGED_COLOR;
+        break;
+    }
+
+    Label row = new Label(text);
+    row.getElement().getStyle().setColor(color);
+    row.getElement().getStyle().setWhiteSpace(WhiteSpace.PRE_WRAP);
+    return row;
+  }
+
+  private static String shorten(String value) {
+    return value.length() <= MAX_VALUE_LENGTH ? value
+        : value.substring(0, MAX_VALUE_LENGTH) + "...";
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.history;
+
+import com.google.api.explorer.client.Resources.Css;
+import com.google.common.base.Preconditions;
+import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
+
+/**
+ * Lightweight syntax highlighter which turns JSON text into a single block of HTML, keeping the
+ * original formatting. Unlike the {@link JsonPrettifier} it does not parse the text or create any
+ * widgets, so it is suitable for bodies that are too large to prettify, and it is lenient about
+ * invalid or partial documents.
+ *
+ */
+public class JsonHighlighter {
+  private final Css style;
+
+  /**
+   * Create a highlighter that uses the JSON classes of the specified style.
+   */
+  public JsonHighlighter(Css style) {
+    this.style = Preconditions.checkNotNull(style);
+  }
+
+  /**
+   * Highlight the whole of the text specified.
+   */
+  public void highlight(String text, SafeHtmlBuilder out) {
+    highlight(text, 0, text.length(), false, out);
+  }
+
+  /**
+   * Highlight a range of the text specified.
+   *
+   * @param text Text containing the range to highlight.
+   * @param start Index of the first character to highlight.
+   * @param end Index after the last character to highlight.
+   * @param startsInString Whether the range starts inside of a string literal.
+   * @param out Builder to which the highlighted HTML is appended.
+   */
+  public void highlight(
+      String text, int start, int end, boolean startsInString, SafeHtmlBuilder out) {
+
+    int pos = start;
+    if (startsInString) {
+      int stringEnd = findStringEnd(text, pos, end);
+      appendSpan(text, pos, stringEnd, style.jsonString(), out);
+      pos = stringEnd;
+    }
+
+    int plainStart = pos;
+    while (pos < end) {
+      char c = text.charAt(pos);
+      int tokenEnd;
+      String tokenStyle;
+      if (c == '"') {
+        tokenEnd = findStringEnd(text, pos + 1, end);
+        tokenStyle = isKey(text, tokenEnd, end) ? style.jsonKey() : style.jsonString();
+      } else if (c == '-' || (c >= '0' && c <= '9')) {
+        tokenEnd = findWordEnd(text, pos, end);
+        tokenStyle = style.jsonNumber();
+      } else if (isLiteral(text, pos, end, "true") || isLiteral(text, pos, end, "false")) {
+        tokenEnd = findWordEnd(text, pos, end);
+        tokenStyle = style.jsonBoolean();
+      } else if (isLiteral(text, pos, end, "null")) {
+        tokenEnd = findWordEnd(text, pos, end);
+        tokenStyle = style.jsonNull();
+      } else {
+        pos++;
+        continue;
+      }
+
+      appendPlain(text, plainStart, pos, out);
+      appendSpan(text, pos, tokenEnd, tokenStyle, out);
+      pos = tokenEnd;
+      plainStart = pos;
+    }
+    appendPlain(text, plainStart, end, out);
+  }
+
+  /**
+   * Split the text into lines which are at most the specified length, so that it can be displayed
+   * a window at a time. Lines which are too long, such as in unformatted JSON, are broken up.
+   */
+  public static Lines splitLines(String text, int maxLineLength) {
+    Preconditions.checkArgument(maxLineLength > 0);
+
+    Lines lines = new Lines(text);
+    boolean inString = false;
+    int lineStart = 0;
+    lines.add(0, false);
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '\n') {
+        lineStart = i + 1;
+        if (lineStart < text.length()) {
+          lines.add(lineStart, inString);
+        }
+        continue;
+      }
+
+      if (i - lineStart >= maxLineLength) {
+        lineStart = i;
+        lines.add(lineStart, inString);
+      }
+
+      if (inString) {
+        if (c == '\\' && i + 1 < text.length() && text.charAt(i + 1) != '\n') {
+          i++;
+        } else if (c == '"') {
+          inString = false;
+        }
+      } else if (c == '"') {
+        inString = true;
+      }
+    }
+    return lines;
+  }
+
+  /**
+   * Returns the index after the closing quote of the string starting at the position specified, or
+   * the end of the range if the string is not closed within it.
+   */
+  private static int findStringEnd(String text, int pos, int end) {
+    while (pos < end) {
+      char c = text.charAt(pos++);
+      if (c == '\\') {
+        pos++;
+      } else if (c == '"') {
+        return pos;
+      }
+    }
+    return end;
+  }
+
+  private static int findWordEnd(String text, int pos, int end) {
+    while (pos < end) {
+      char c = text.charAt(pos);
+      if (c == ',' || c == '}' || c == ']' || c == ':' || isWhitespace(c)) {
+        break;
+      }
+      pos++;
+    }
+    return pos;
+  }
+
+  /**
+   * Returns whether the string ending at the position specified is an object key.
+   */
+  private static boolean isKey(String text, int pos, int end) {
+    while (pos < end && isWhitespace(text.charAt(pos))) {
+      pos++;
+    }
+    return pos < end && text.charAt(pos) == ':';
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+  }
+
+  private static boolean isLiteral(String text, int pos, int end, String literal) {
+    return end - pos >= literal.length() && text.startsWith(literal, pos);
+  }
+
+  private static void appendPlain(String text, int start, int end, SafeHtmlBuilder out) {
+    if (start < end) {
+      out.appendEscaped(text.substring(start, end));
+    }
+  }
+
+  private static void appendSpan(
+      String text, int start, int end, String className, SafeHtmlBuilder out) {
+    out.appendHtmlConstant("<span class=\"" + className + "\">");
+    out.appendEscaped(text.substring(start, Math.min(end, text.length())));
+    out.appendHtmlConstant("</span>");
+  }
+
+  /**
+   * Offsets of the lines of a text, and whether each of them starts inside of a string literal.
+   */
+  public static class Lines {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final String text;
+    private int[] starts = new int[INITIAL_CAPACITY];
+    private boolean[] startsInString = new boolean[INITIAL_CAPACITY];
+    private int count;
+
+    private Lines(String text) {
+      this.text = text;
+    }
+
+    private void add(int start, boolean inString) {
+      if (count == starts.length) {
+        int[] grownStarts = new int[count * 2];
+        boolean[] grownInString = new boolean[count * 2];
+        System.arraycopy(starts, 0, grownStarts, 0, count);
+        System.arraycopy(startsInString, 0, grownInString, 0, count);
+        starts = grownStarts;
+        startsInString = grownInString;
+      }
+      starts[count] = start;
+      startsInString[count] = inString;
+      count++;
+    }
+
+    /** Returns the number of lines. */
+    public int count() {
+      return count;
+    }
+
+    /** Returns the index of the first character of the line. */
+    public int start(int line) {
+      return starts[line];
+    }
+
+    /** Returns the index after the last character of the line, excluding the line break. */
+    public int end(int line) {
+      int end = line + 1 < count ? starts[line + 1] : text.length();
+      if (end > starts[line] && text.charAt(end - 1) == '\n') {
+        end--;
+      }
+      return end;
+    }
+
+    /** Returns whether the line starts inside of a string literal. */
+    public boolean startsInString(int line) {
+      return startsInString[line];
+    }
+  }
+}
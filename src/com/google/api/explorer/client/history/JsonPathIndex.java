@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.history;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.gwt.user.client.ui.Widget;
+
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * Flat index of every node in a prettified JSON document, which can be used to filter the rendered
+ * document down to the subtrees matching a query without rendering it again.
+ *
+ * <p>
+ * Nodes are recorded in document (pre-)order, so the descendants of a node always occupy the
+ * contiguous range of node ids directly after it. Queries are either a case-insensitive substring
+ * of a key, or a simple JSONPath expression such as {@code $.items[*].id} or {@code $..etag}.
+ * </p>
+ *
+ */
+public final class JsonPathIndex {
+  /** Node id of the root of the document. */
+  public static final int ROOT = 0;
+
+  private static final String ROOT_KEY = "$";
+  private static final String WILDCARD = "*";
+  private static final int INITIAL_CAPACITY = 64;
+
+  /** Maximum number of path components, so that matcher states fit in the bits of an int. */
+  private static final int MAX_PATH_COMPONENTS = 30;
+
+  private final List<String> keys = Lists.newArrayList();
+  private final List<Widget> widgets = Lists.newArrayList();
+  private int[] parents = new int[INITIAL_CAPACITY];
+  private int[] subtreeEnds = new int[INITIAL_CAPACITY];
+  private List<String> lowerCaseKeys;
+
+  /** Visibility currently applied to the widgets, used to only touch widgets which change. */
+  private boolean[] shown;
+
+  /**
+   * Record a new node in the index. Nodes must be added in document order, with the children of a
+   * node added after it and before {@link #completeNode(int, Widget)} is invoked for it.
+   *
+   * @param parent Node id of the parent, or {@code -1} when adding the root.
+   * @param key Object key or array index under which the node is found in its parent.
+   * @return Node id of the new node.
+   */
+  public int addNode(int parent, String key) {
+    int node = keys.size();
+    Preconditions.checkArgument(parent < node);
+    Preconditions.checkArgument(parent >= 0 || node == ROOT);
+
+    if (node == parents.length) {
+      parents = grow(parents);
+      subtreeEnds = grow(subtreeEnds);
+    }
+    parents[node] = parent;
+    subtreeEnds[node] = node;
+    keys.add(key);
+    widgets.add(null);
+    lowerCaseKeys = null;
+    return node;
+  }
+
+  /**
+   * Mark the node and all of its children as complete, associating it with the widget that
+   * displays it.
+   */
+  public void completeNode(int node, @Nullable Widget widget) {
+    subtreeEnds[node] = keys.size() - 1;
+    widgets.set(node, widget);
+  }
+
+  /**
+   * Returns the number of nodes in the index.
+   */
+  public int size() {
+    return keys.size();
+  }
+
+  /**
+   * Find the nodes matched by the query.
+   *
+   * @param query Key substring, or JSONPath expression when it starts with {@code $}.
+   * @return Ids of the matching nodes in document order, or {@code null} if the query is empty and
+   *         nothing should be filtered.
+   * @throws IllegalArgumentException when the query is not a supported JSONPath expression.
+   */
+  public int[] match(String query) {
+    String trimmed = Strings.nullToEmpty(query).trim();
+    if (trimmed.isEmpty()) {
+      return null;
+    }
+
+    int[] matches = new int[size()];
+    int matchCount = trimmed.startsWith(ROOT_KEY)
+        ? matchPath(parsePath(trimmed), matches) : matchKeySubstring(trimmed, matches);
+
+    int[] result = new int[matchCount];
+    System.arraycopy(matches, 0, result, 0, matchCount);
+    return result;
+  }
+
+  /**
+   * Compute which nodes need to be visible to show the matching nodes: the matches, all of their
+   * descendants and all of their ancestors.
+   *
+   * @param matches Matching node ids in document order, or {@code null} to show everything.
+   */
+  public boolean[] visibleNodes(@Nullable int[] matches) {
+    boolean[] visible = new boolean[size()];
+    if (matches == null) {
+      for (int i = 0; i < visible.length; i++) {
+        visible[i] = true;
+      }
+      return visible;
+    }
+
+    int coveredUntil = -1;
+    for (int match : matches) {
+      // Descendants form a contiguous range, and matches are sorted, so each node is only visited
+      // once even when matches are nested.
+      for (int i = Math.max(match, coveredUntil + 1); i <= subtreeEnds[match]; i++) {
+        visible[i] = true;
+      }
+      coveredUntil = Math.max(coveredUntil, subtreeEnds[match]);
+
+      for (int ancestor = parents[match]; ancestor >= 0 && !visible[ancestor];
+          ancestor = parents[ancestor]) {
+        visible[ancestor] = true;
+      }
+    }
+    return visible;
+  }
+
+  /**
+   * Filter the rendered widgets down to the nodes matching the query.
+   *
+   * @return The number of matching nodes, or {@code -1} if the query was empty and all nodes are
+   *         displayed again.
+   * @throws IllegalArgumentException when the query is not a supported JSONPath expression.
+   */
+  public int filter(String query) {
+    int[] matches = match(query);
+    boolean[] visible = visibleNodes(matches);
+
+    if (shown == null) {
+      shown = visibleNodes(null);
+    }
+
+    // The root is always displayed, it is only ever the container of the matches.
+    visible[ROOT] = true;
+
+    for (int node = ROOT + 1; node < visible.length; node++) {
+      // Widgets under a hidden parent are not displayed regardless of their own visibility, so
+      // they are left alone until their parent is shown again.
+      if (!visible[parents[node]]) {
+        continue;
+      }
+
+      Widget widget = widgets.get(node);
+      if (widget != null && shown[node] != visible[node]) {
+        widget.setVisible(visible[node]);
+        shown[node] = visible[node];
+      }
+    }
+    return matches == null ? -1 : matches.length;
+  }
+
+  private int matchKeySubstring(String query, int[] matches) {
+    if (lowerCaseKeys == null) {
+      lowerCaseKeys = Lists.newArrayListWithCapacity(keys.size());
+      for (String key : keys) {
+        lowerCaseKeys.add(key.toLowerCase());
+      }
+    }
+
+    String lowerQuery = query.toLowerCase();
+    int matchCount = 0;
+    for (int node = ROOT + 1; node < size(); node++) {
+      if (lowerCaseKeys.get(node).contains(lowerQuery)) {
+        matches[matchCount++] = node;
+      }
+    }
+    return matchCount;
+  }
+
+  /**
+   * Match the path against every node in a single pass. The state of each node is the set of path
+   * components which have been consumed by the keys leading to it, stored as a bitmask, which is
+   * computed from the state of its parent.
+   */
+  private int matchPath(PathComponent[] path, int[] matches) {
+    int[] states = new int[size()];
+    int complete = 1 << path.length;
+    int matchCount = 0;
+
+    states[ROOT] = 1;
+    if (path.length == 0) {
+      matches[matchCount++] = ROOT;
+    }
+
+    for (int node = ROOT + 1; node < size(); node++) {
+      int parentState = states[parents[node]];
+      if (parentState == 0) {
+        continue;
+      }
+
+      String key = keys.get(node);
+      int state = 0;
+      for (int component = 0; component < path.length; component++) {
+        if ((parentState & (1 << component)) != 0) {
+          if (path[component].anyDepth) {
+            state |= 1 << component;
+          }
+          if (path[component].matches(key)) {
+            state |= 1 << (component + 1);
+          }
+        }
+      }
+
+      states[node] = state;
+      if ((state & complete) != 0) {
+        matches[matchCount++] = node;
+      }
+    }
+    return matchCount;
+  }
+
+  /**
+   * Parse a simple JSONPath expression: {@code $} followed by any number of {@code .key},
+   * {@code ..key}, {@code [index]}, {@code ['key']} or wildcard ({@code *}) components.
+   */
+  static PathComponent[] parsePath(String expression) {
+    Preconditions.checkArgument(expression.startsWith(ROOT_KEY), "Path must start with $");
+
+    List<PathComponent> components = Lists.newArrayList();
+    int pos = ROOT_KEY.length();
+    while (pos < expression.length()) {
+      char next = expression.charAt(pos);
+      if (next == '.') {
+        boolean anyDepth = pos + 1 < expression.length() && expression.charAt(pos + 1) == '.';
+        int start = pos + (anyDepth ? 2 : 1);
+        int end = start;
+        while (end < expression.length() && expression.charAt(end) != '.'
+            && expression.charAt(end) != '[') {
+          end++;
+        }
+        Preconditions.checkArgument(end > start, "Empty key in path: " + expression);
+        components.add(new PathComponent(expression.substring(start, end), anyDepth));
+        pos = end;
+      } else if (next == '[') {
+        int end = expression.indexOf(']', pos);
+        Preconditions.checkArgument(end > pos + 1, "Unterminated index in path: " + expression);
+        String key = expression.substring(pos + 1, end).trim();
+        if (key.length() >= 2 && (key.charAt(0) == '\'' || key.charAt(0) == '"')
+            && key.charAt(key.length() - 1) == key.charAt(0)) {
+          key = key.substring(1, key.length() - 1);
+        }
+        components.add(new PathComponent(key, false));
+        pos = end + 1;
+      } else {
+        throw new IllegalArgumentException("Unexpected character in path: " + expression);
+      }
+    }
+
+    Preconditions.checkArgument(
+        components.size() <= MAX_PATH_COMPONENTS, "Path is too long: " + expression);
+    return components.toArray(new PathComponent[components.size()]);
+  }
+
+  private static int[] grow(int[] array) {
+    int[] grown = new int[array.length * 2];
+    System.arraycopy(array, 0, grown, 0, array.length);
+    return grown;
+  }
+
+  /**
+   * Single component of a parsed JSONPath expression.
+   */
+  static class PathComponent {
+    private final String key;
+    private final boolean anyDepth;
+
+    PathComponent(String key, boolean anyDepth) {
+      this.key = key;
+      this.anyDepth = anyDepth;
+    }
+
+    boolean matches(String nodeKey) {
+      return WILDCARD.equals(key) || key.equals(nodeKey);
+    }
+  }
+}
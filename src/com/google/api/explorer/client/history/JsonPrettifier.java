@@ -20,12 +20,15 @@ import com.google.api.explorer.client.Resources;
 import com.google.api.explorer.client.Resources.Css;
 import com.google.api.explorer.client.base.ApiMethod;
 import com.google.api.explorer.client.base.ApiMethod.HttpMethod;
+import com.google.api.explorer.client.base.ApiResponse;
+import com.google.api.explorer.client.base.ApiResponse.BodySummary;
 import com.google.api.explorer.client.base.ApiService;
 import com.google.api.explorer.client.base.Config;
 import com.google.api.explorer.client.base.Schema;
 import com.google.api.explorer.client.base.dynamicjso.DynamicJsArray;
 import com.google.api.explorer.client.base.dynamicjso.DynamicJso;
 import com.google.api.explorer.client.base.dynamicjso.JsType;
+import com.google.api.explorer.client.history.ExplorerLinkCache.ExplorerLink;
 import com.google.api.explorer.client.routing.HistoryWrapper;
 import com.google.api.explorer.client.routing.HistoryWrapperImpl;
 import com.google.api.explorer.client.routing.URLFragment;
@@ -185,6 +188,97 @@ public class JsonPrettifier {
     }
   }
 
+  /**
+   * Click handler which builds the "use this resource" menu on the first click of its button, and
+   * shows it on every click. Most menus are never opened, so the serialized resource and the
+   * destination URLs are not computed until they are needed.
+   */
+  private static class LazyRequestMenu implements ClickHandler {
+    private final Widget menuButton;
+    private final Collection<ApiMethod> methods;
+    private final ApiService service;
+    private final DynamicJso objectToPackage;
+    private final PrettifierLinkFactory linkFactory;
+
+    private PopupPanel popupMenu;
+
+    public LazyRequestMenu(Widget menuButton, Collection<ApiMethod> methods, ApiService service,
+        DynamicJso objectToPackage, PrettifierLinkFactory linkFactory) {
+
+      this.menuButton = menuButton;
+      this.methods = methods;
+      this.service = service;
+      this.objectToPackage = objectToPackage;
+      this.linkFactory = linkFactory;
+    }
+
+    @Override
+    public void onClick(ClickEvent event) {
+      if (popupMenu == null) {
+        popupMenu = createPopupMenu();
+      }
+
+      popupMenu.setPopupPositionAndShow(new PositionCallback() {
+        @Override
+        public void setPosition(int offsetWidth, int offsetHeight) {
+          popupMenu.setPopupPosition(
+              menuButton.getAbsoluteLeft() + menuButton.getOffsetWidth() - offsetWidth,
+              menuButton.getAbsoluteTop() + menuButton.getOffsetHeight());
+        }
+      });
+    }
+
+    private PopupPanel createPopupMenu() {
+      // Create the parameters that will be passed to the destination menu.
+      String resourceContents = new JSONObject(objectToPackage).toString();
+      Multimap<String, String> resourceParams =
+          ImmutableMultimap.of(UrlBuilder.BODY_QUERY_PARAM_KEY, resourceContents);
+
+      // Create the menu itself.
+      FlowPanel menuContents = new FlowPanel();
+
+      // Add a description of what the menu does.
+      Label header = new Label("Use this resource in one of the following methods:");
+      header.addStyleName(style.dropDownMenuItem());
+      menuContents.add(header);
+
+      // Add a menu item for each method.
+      for (ApiMethod method : methods) {
+        PushButton methodItem = new PushButton();
+        methodItem.addStyleName(style.dropDownMenuItem());
+        methodItem.addStyleName(style.selectableDropDownMenuItem());
+        methodItem.setText(method.getId());
+        menuContents.add(methodItem);
+
+        // When clicked, Navigate to the menu item.
+        UrlBuilder builder = new UrlBuilder();
+        String newUrl = builder
+            .addRootNavigationItem(RootNavigationItem.ALL_VERSIONS)
+            .addService(service.getName(), service.getVersion())
+            .addMethodName(method.getId())
+            .addQueryParams(resourceParams)
+            .toString();
+        methodItem.addClickHandler(linkFactory.generateMenuHandler(newUrl));
+      }
+
+      // Create the panel which will be disclosed.
+      final PopupPanel popup = new PopupPanel(/* auto hide */ true);
+      popup.setStyleName(style.dropDownMenuPopup());
+
+      FocusPanel focusContents = new FocusPanel();
+      focusContents.addMouseOutHandler(new MouseOutHandler() {
+        @Override
+        public void onMouseOut(MouseOutEvent event) {
+          popup.hide();
+        }
+      });
+      focusContents.setWidget(menuContents);
+
+      popup.setWidget(focusContents);
+      return popup;
+    }
+  }
+
   /**
    * This abstraction of an array creates formatted widgets from all children.
    */
@@ -193,13 +287,17 @@ public class JsonPrettifier {
     private final int depth;
     private final ApiService service;
     private final PrettifierLinkFactory linkFactory;
+    private final JsonPathIndex index;
+    private final int indexNode;
 
-    public JsArrayIterable(
-        ApiService service, DynamicJsArray array, int depth, PrettifierLinkFactory linkFactory) {
+    public JsArrayIterable(ApiService service, DynamicJsArray array, int depth,
+        PrettifierLinkFactory linkFactory, JsonPathIndex index, int indexNode) {
       this.backingObj = array;
       this.depth = depth;
       this.service = service;
       this.linkFactory = linkFactory;
+      this.index = index;
+      this.indexNode = indexNode;
     }
 
     @Override
@@ -217,12 +315,16 @@ public class JsonPrettifier {
           if (!hasNext()) {
             throw new NoSuchElementException();
           }
+          int childNode = index.addNode(indexNode, String.valueOf(nextOffset));
           Widget next = formatArrayValue(service,
               backingObj,
               nextOffset,
               depth,
               nextOffset + 1 < backingObj.length(),
-              linkFactory);
+              linkFactory,
+              index,
+              childNode);
+          index.completeNode(childNode, next);
           nextOffset++;
           return next;
         }
@@ -243,14 +345,18 @@ public class JsonPrettifier {
     private final int depth;
     private final ApiService service;
     private final PrettifierLinkFactory linkFactory;
+    private final JsonPathIndex index;
+    private final int indexNode;
 
-    public JsObjectIterable(
-        ApiService service, DynamicJso obj, int depth, PrettifierLinkFactory linkFactory) {
+    public JsObjectIterable(ApiService service, DynamicJso obj, int depth,
+        PrettifierLinkFactory linkFactory, JsonPathIndex index, int indexNode) {
 
       this.backingObj = obj;
       this.depth = depth;
       this.service = service;
       this.linkFactory = linkFactory;
+      this.index = index;
+      this.indexNode = indexNode;
     }
 
     @Override
@@ -268,9 +374,11 @@ public class JsonPrettifier {
           if (!hasNext()) {
             throw new NoSuchElementException();
           }
-          Widget next =
-              formatValue(service, backingObj, backingObj.keys().get(nextOffset), depth,
-                  nextOffset + 1 < backingObj.keys().length(), linkFactory);
+          String key = backingObj.keys().get(nextOffset);
+          int childNode = index.addNode(indexNode, key);
+          Widget next = formatValue(service, backingObj, key, depth,
+              nextOffset + 1 < backingObj.keys().length(), linkFactory, index, childNode);
+          index.completeNode(childNode, next);
           nextOffset++;
           return next;
         }
@@ -301,9 +409,11 @@ public class JsonPrettifier {
    * @param jsonString String to format
    * @param linkFactory Which links factory should be used when generating links and navigation
    *        menus.
+   * @return Index of the rendered nodes which can be used to filter the output, or {@code null} if
+   *         the text was not rendered as a document.
    * @throws JsonFormatException when parsing the Json causes an error
    */
-  public static void prettify(
+  public static JsonPathIndex prettify(
       ApiService service, Panel destination, String jsonString, PrettifierLinkFactory linkFactory)
       throws JsonFormatException {
 
@@ -317,7 +427,7 @@ public class JsonPrettifier {
     boolean empty = Strings.isNullOrEmpty(jsonString);
     destination.setVisible(!empty);
     if (empty) {
-      return;
+      return null;
     }
 
     if (!GWT.isScript()) {
@@ -325,15 +435,12 @@ public class JsonPrettifier {
       // responses), but very fast when compiled and run as JS (~30ms). For the
       // sake of my sanity, syntax highlighting is disabled in Development
       destination.add(new InlineLabel(jsonString));
+      return null;
     } else {
 
       try {
-        DynamicJso root = JsonUtils.<DynamicJso>safeEval(jsonString);
-        Collection<ApiMethod> compatibleMethods = computeCompatibleMethods(root, service);
-        Widget menuForMethods = createRequestMenu(compatibleMethods, service, root, linkFactory);
-        JsObjectIterable rootObject = new JsObjectIterable(service, root, 1, linkFactory);
-        Widget object = formatGroup(rootObject, "", 0, "{", "}", false, menuForMethods);
-        destination.add(object);
+        return render(service, destination, JsonUtils.<DynamicJso>safeEval(jsonString),
+            linkFactory);
       } catch (IllegalArgumentException e) {
         // JsonUtils will throw an IllegalArgumentException when it gets invalid
         // Json data. Rewrite as a checked exception and throw.
@@ -342,6 +449,60 @@ public class JsonPrettifier {
     }
   }
 
+  /**
+   * Format the body of a response, using the tree which the response parsed and shared with its
+   * other consumers rather than parsing the body again.
+   *
+   * @param destination Destination GWT object where the results will be placed
+   * @param response Response whose body is formatted
+   * @param linkFactory Which links factory should be used when generating links and navigation
+   *        menus.
+   * @return Index of the rendered nodes which can be used to filter the output, or {@code null} if
+   *         the body was not rendered as a document.
+   * @throws JsonFormatException when the body is not valid Json
+   */
+  public static JsonPathIndex prettify(ApiService service, Panel destination,
+      ApiResponse response, PrettifierLinkFactory linkFactory) throws JsonFormatException {
+
+    Preconditions.checkState(style != null, "Must call setStyle before using.");
+
+    Preconditions.checkNotNull(service);
+    Preconditions.checkNotNull(destination);
+
+    BodySummary summary = response.getBodySummary();
+    boolean empty = summary.getSize() == 0;
+    destination.setVisible(!empty);
+    if (empty) {
+      return null;
+    }
+
+    if (!GWT.isScript()) {
+      // Syntax highlighting is disabled in Development Mode, see above.
+      destination.add(new InlineLabel(response.getBodyAsString()));
+      return null;
+    }
+
+    if (!summary.isJson()) {
+      throw new JsonFormatException("Invalid json.", null);
+    }
+    return render(service, destination, response.getParsedBody(), linkFactory);
+  }
+
+  private static JsonPathIndex render(ApiService service, Panel destination, DynamicJso root,
+      PrettifierLinkFactory linkFactory) {
+
+    Collection<ApiMethod> compatibleMethods = computeCompatibleMethods(root, service);
+    Widget menuForMethods = createRequestMenu(compatibleMethods, service, root, linkFactory);
+    JsonPathIndex index = new JsonPathIndex();
+    int rootNode = index.addNode(-1, "$");
+    JsObjectIterable rootObject =
+        new JsObjectIterable(service, root, 1, linkFactory, index, rootNode);
+    Widget object = formatGroup(rootObject, "", 0, "{", "}", false, menuForMethods);
+    index.completeNode(rootNode, object);
+    destination.add(object);
+    return index;
+  }
+
   /**
    * Check the provided javascript object for a "kind" key and, and find all methods from the
    * provided service that accept the specified type for the request body.
@@ -420,7 +581,9 @@ public class JsonPrettifier {
       int index,
       int depth,
       boolean hasSeparator,
-      PrettifierLinkFactory linkFactory) {
+      PrettifierLinkFactory linkFactory,
+      JsonPathIndex pathIndex,
+      int indexNode) {
 
     JsType type = obj.typeofIndex(index);
     if (type == null) {
@@ -446,7 +609,8 @@ public class JsonPrettifier {
 
       case ARRAY:
         return formatGroup(
-            new JsArrayIterable(service, obj.<DynamicJsArray>get(index), depth + 1, linkFactory),
+            new JsArrayIterable(service, obj.<DynamicJsArray>get(index), depth + 1, linkFactory,
+                pathIndex, indexNode),
             title, depth, "[", "]", hasSeparator, null);
 
       case OBJECT:
@@ -456,7 +620,8 @@ public class JsonPrettifier {
         Collection<ApiMethod> compatibleMethods = computeCompatibleMethods(subObject, service);
         Widget menuFromMethods =
             createRequestMenu(compatibleMethods, service, subObject, linkFactory);
-        JsObjectIterable objIter = new JsObjectIterable(service, subObject, depth + 1, linkFactory);
+        JsObjectIterable objIter = new JsObjectIterable(
+            service, subObject, depth + 1, linkFactory, pathIndex, indexNode);
         return formatGroup(objIter, title, depth, "{", "}", hasSeparator, menuFromMethods);
     }
     return new FlowPanel();
@@ -467,7 +632,9 @@ public class JsonPrettifier {
       String key,
       int depth,
       boolean hasSeparator,
-      PrettifierLinkFactory linkFactory) {
+      PrettifierLinkFactory linkFactory,
+      JsonPathIndex pathIndex,
+      int indexNode) {
 
     JsType type = obj.typeofKey(key);
     if (type == null) {
@@ -493,7 +660,8 @@ public class JsonPrettifier {
 
       case ARRAY:
         return formatGroup(
-            new JsArrayIterable(service, obj.<DynamicJsArray>get(key), depth + 1, linkFactory),
+            new JsArrayIterable(service, obj.<DynamicJsArray>get(key), depth + 1, linkFactory,
+                pathIndex, indexNode),
             title, depth, "[", "]", hasSeparator, null);
 
       case OBJECT:
@@ -501,7 +669,8 @@ public class JsonPrettifier {
 
         // Determine if this object can be used as the request parameter for another method.
         Collection<ApiMethod> compatibleMethods = computeCompatibleMethods(subObject, service);
-        JsObjectIterable objIter = new JsObjectIterable(service, subObject, depth + 1, linkFactory);
+        JsObjectIterable objIter = new JsObjectIterable(
+            service, subObject, depth + 1, linkFactory, pathIndex, indexNode);
         return formatGroup(objIter, title, depth, "{", "}", hasSeparator, null);
     }
     return new FlowPanel();
@@ -546,23 +715,12 @@ public class JsonPrettifier {
       List<Widget> response = Lists.newArrayList();
       response.add(new InlineLabel("\""));
 
-      boolean createdExplorerLink = false;
-      try {
-        ApiMethod method = getMethodForUrl(service, rawText);
-        if (method != null) {
-          String explorerLink = createExplorerLink(service, rawText, method);
-          Widget linkObject = linkFactory.generateAnchor(rawText, explorerLink);
-          linkObject.addStyleName(style.jsonStringExplorerLink());
-          response.add(linkObject);
-          createdExplorerLink = true;
-        }
-      } catch (IndexOutOfBoundsException e) {
-        // Intentionally blank - this will only happen when iterating the method
-        // url template in parallel with the url components and you run out of
-        // components
-      }
-
-      if (!createdExplorerLink) {
+      ExplorerLink explorerLink = ExplorerLinkCache.getInstance().classify(service, rawText);
+      if (explorerLink != null) {
+        Widget linkObject = linkFactory.generateAnchor(rawText, explorerLink.getExplorerLink());
+        linkObject.addStyleName(style.jsonStringExplorerLink());
+        response.add(linkObject);
+      } else {
         Anchor linkObject = new Anchor(rawText, rawText, OPEN_IN_NEW_WINDOW);
         linkObject.addStyleName(style.jsonStringLink());
         response.add(linkObject);
@@ -668,8 +826,8 @@ public class JsonPrettifier {
   }
 
   /**
-   * Create a drop down menu that allows the user to navigate to compatible methods for the
-   * specified resource.
+   * Create a drop down menu button that allows the user to navigate to compatible methods for the
+   * specified resource. The menu itself is only built the first time that the button is clicked.
    *
    * @param methods Methods for which to build the menu.
    * @param service Service to which the methods correspond.
@@ -678,78 +836,19 @@ public class JsonPrettifier {
    * @return A button that will show the menu that was generated or {@code null} if there are no
    *         compatible methods.
    */
-  private static PushButton createRequestMenu(final Collection<ApiMethod> methods,
-      final ApiService service, DynamicJso objectToPackage, PrettifierLinkFactory linkFactory) {
+  private static PushButton createRequestMenu(Collection<ApiMethod> methods,
+      ApiService service, DynamicJso objectToPackage, PrettifierLinkFactory linkFactory) {
 
     // Determine if a menu even needs to be generated.
     if (methods.isEmpty()) {
       return null;
     }
 
-    // Create the parameters that will be passed to the destination menu.
-    String resourceContents = new JSONObject(objectToPackage).toString();
-    final Multimap<String, String> resourceParams =
-        ImmutableMultimap.of(UrlBuilder.BODY_QUERY_PARAM_KEY, resourceContents);
-
-    // Create the menu itself.
-    FlowPanel menuContents = new FlowPanel();
-
-    // Add a description of what the menu does.
-    Label header = new Label("Use this resource in one of the following methods:");
-    header.addStyleName(style.dropDownMenuItem());
-    menuContents.add(header);
-
-    // Add a menu item for each method.
-    for (ApiMethod method : methods) {
-      PushButton methodItem = new PushButton();
-      methodItem.addStyleName(style.dropDownMenuItem());
-      methodItem.addStyleName(style.selectableDropDownMenuItem());
-      methodItem.setText(method.getId());
-      menuContents.add(methodItem);
-
-      // When clicked, Navigate to the menu item.
-      UrlBuilder builder = new UrlBuilder();
-      String newUrl = builder
-          .addRootNavigationItem(RootNavigationItem.ALL_VERSIONS)
-          .addService(service.getName(), service.getVersion())
-          .addMethodName(method.getId())
-          .addQueryParams(resourceParams)
-          .toString();
-      methodItem.addClickHandler(linkFactory.generateMenuHandler(newUrl));
-    }
-
-    // Create the panel which will be disclosed.
-    final PopupPanel popupMenu = new PopupPanel(/* auto hide */ true);
-    popupMenu.setStyleName(style.dropDownMenuPopup());
-
-    FocusPanel focusContents = new FocusPanel();
-    focusContents.addMouseOutHandler(new MouseOutHandler() {
-      @Override
-      public void onMouseOut(MouseOutEvent event) {
-        popupMenu.hide();
-      }
-    });
-    focusContents.setWidget(menuContents);
-
-    popupMenu.setWidget(focusContents);
-
     // Create the button which will disclose the menu.
-    final PushButton menuButton = new PushButton(new Image(resources.downArrow()));
+    PushButton menuButton = new PushButton(new Image(resources.downArrow()));
     menuButton.addStyleName(style.reusableResourceButton());
-
-    menuButton.addClickHandler(new ClickHandler() {
-      @Override
-      public void onClick(ClickEvent event) {
-        popupMenu.setPopupPositionAndShow(new PositionCallback() {
-          @Override
-          public void setPosition(int offsetWidth, int offsetHeight) {
-            popupMenu.setPopupPosition(
-                menuButton.getAbsoluteLeft() + menuButton.getOffsetWidth() - offsetWidth,
-                menuButton.getAbsoluteTop() + menuButton.getOffsetHeight());
-          }
-        });
-      }
-    });
+    menuButton.addClickHandler(
+        new LazyRequestMenu(menuButton, methods, service, objectToPackage, linkFactory));
 
     // Return only the button to the caller.
     return menuButton;
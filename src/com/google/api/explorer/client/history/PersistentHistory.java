@@ -0,0 +1,332 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.history;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists the request history so that it survives reloads of the page.
+ *
+ * <p>
+ * Nothing is read from the storage until it is needed: records are only read a page at a time as
+ * the stored history is listed, and a response body is only read when its item is opened. Writes
+ * are queued and performed in small batches by an incremental command, so that executing a request
+ * never waits on the storage. Only the most recent records are kept, and the oldest records are
+ * removed first when the storage is full.
+ * </p>
+ *
+ * <p>
+ * The storage is shared by every page of the explorer which is open in the browser, so the index
+ * of records is read again before each batch of writes and the new records are appended to it,
+ * rather than overwriting it with the index this page last saw. Response bodies above a size limit
+ * are not stored at all, so that a single large body never removes the other records.
+ * </p>
+ *
+ */
+public class PersistentHistory {
+  /** Default maximum number of records that are kept in the storage. */
+  public static final int DEFAULT_MAX_RECORDS = 100;
+
+  /**
+   * Default length in characters above which response bodies are not stored, a fifth of the
+   * smallest common local storage quota.
+   */
+  public static final int DEFAULT_MAX_BODY_CHARS = 512 * 1024;
+
+  private static final String PREFIX = "explorer.history.";
+  private static final String INDEX_KEY = PREFIX + "index";
+  private static final String RECORD_PREFIX = PREFIX + "record.";
+  private static final String BODY_PREFIX = PREFIX + "body.";
+  private static final char INDEX_SEPARATOR = ',';
+
+  /** Number of records written by each run of the write command. */
+  private static final int WRITE_BATCH_SIZE = 4;
+
+  private final HistoryStorage storage;
+  private final Scheduler scheduler;
+  private final int maxRecords;
+  private final int maxBodyChars;
+
+  /** Prefix of the identifiers of the records of this session, to keep them unique. */
+  private final String sessionId;
+
+  /** Records and bodies waiting to be written, in the order in which they were saved. */
+  private final Map<String, PendingWrite> pendingWrites = Maps.newLinkedHashMap();
+
+  /** Identifiers of the records which were saved but which are not yet in the index. */
+  private final List<String> unindexed = Lists.newArrayList();
+
+  private boolean writeScheduled = false;
+
+  /**
+   * Create persistent history which keeps up to {@link #DEFAULT_MAX_RECORDS}.
+   *
+   * @param storage Storage in which to persist the history.
+   * @param scheduler Scheduler used to perform the writes in the background.
+   */
+  public PersistentHistory(HistoryStorage storage, Scheduler scheduler) {
+    this(storage, scheduler, DEFAULT_MAX_RECORDS, String.valueOf(System.currentTimeMillis()));
+  }
+
+  PersistentHistory(
+      HistoryStorage storage, Scheduler scheduler, int maxRecords, String sessionId) {
+    this(storage, scheduler, maxRecords, DEFAULT_MAX_BODY_CHARS, sessionId);
+  }
+
+  PersistentHistory(HistoryStorage storage, Scheduler scheduler, int maxRecords,
+      int maxBodyChars, String sessionId) {
+
+    Preconditions.checkArgument(maxRecords > 0);
+    Preconditions.checkArgument(maxBodyChars >= 0);
+    this.storage = Preconditions.checkNotNull(storage);
+    this.scheduler = Preconditions.checkNotNull(scheduler);
+    this.maxRecords = maxRecords;
+    this.maxBodyChars = maxBodyChars;
+    this.sessionId = Preconditions.checkNotNull(sessionId);
+  }
+
+  /**
+   * Returns the identifier under which the history item with the specified cache key is stored.
+   */
+  public String recordId(String key) {
+    return sessionId + "-" + key;
+  }
+
+  /**
+   * Queue the history item to be written to the storage.
+   */
+  public void save(HistoryItem item) {
+    save(HistoryRecord.forItem(recordId(item.getKey()), item),
+        item.getResponse().getBodyAsString());
+  }
+
+  /**
+   * Queue the record and the response body, which may be {@code null}, to be written to the
+   * storage.
+   */
+  void save(HistoryRecord record, String body) {
+    pendingWrites.put(record.getId(), new PendingWrite(record, body));
+    unindexed.add(record.getId());
+
+    if (!writeScheduled) {
+      writeScheduled = true;
+      scheduler.scheduleIncremental(new RepeatingCommand() {
+        @Override
+        public boolean execute() {
+          writeScheduled = writeBatch();
+          return writeScheduled;
+        }
+      });
+    }
+  }
+
+  /**
+   * Returns a page of the stored records, most recent first.
+   *
+   * @param offset Number of records to skip.
+   * @param limit Maximum number of records to return.
+   */
+  public List<HistoryRecord> listRecords(int offset, int limit) {
+    Preconditions.checkArgument(offset >= 0 && limit >= 0);
+
+    List<String> ids = readIndex();
+    ids.addAll(unindexed);
+    return loadPage(ids, offset, limit);
+  }
+
+  /**
+   * Returns a page of the stored records which were saved by other sessions, such as previous
+   * loads of the page, most recent first.
+   *
+   * @param offset Number of records to skip.
+   * @param limit Maximum number of records to return.
+   */
+  public List<HistoryRecord> listPreviousRecords(int offset, int limit) {
+    Preconditions.checkArgument(offset >= 0 && limit >= 0);
+
+    String ownPrefix = recordId("");
+    List<String> ids = Lists.newArrayList();
+    for (String id : readIndex()) {
+      if (!id.startsWith(ownPrefix)) {
+        ids.add(id);
+      }
+    }
+    return loadPage(ids, offset, limit);
+  }
+
+  /**
+   * Returns the response body stored with the record, or {@code null} if it is not available.
+   */
+  public String loadBody(String id) {
+    PendingWrite pending = pendingWrites.get(id);
+    return pending != null ? pending.body : storage.getItem(BODY_PREFIX + id);
+  }
+
+  /**
+   * Returns whether there are records waiting to be written.
+   */
+  public boolean hasPendingWrites() {
+    return !pendingWrites.isEmpty();
+  }
+
+  /**
+   * Write the next batch of pending records.
+   *
+   * @return Whether there are still records to write.
+   */
+  boolean writeBatch() {
+    // Start from the stored index, which other pages may have changed since this one last read it.
+    List<String> index = readIndex();
+    int written = 0;
+    while (!pendingWrites.isEmpty() && written < WRITE_BATCH_SIZE) {
+      String id = pendingWrites.keySet().iterator().next();
+      PendingWrite pending = pendingWrites.remove(id);
+      unindexed.remove(id);
+      if (!index.contains(id)) {
+        index.add(id);
+      }
+      write(pending, index);
+      written++;
+    }
+
+    while (index.size() > maxRecords) {
+      remove(index.remove(0));
+    }
+    setItemMakingRoom(INDEX_KEY, Joiner.on(INDEX_SEPARATOR).join(index), index);
+    return !pendingWrites.isEmpty();
+  }
+
+  /**
+   * Write a record and its body. The body is dropped if it is above the size limit or does not fit
+   * in the storage, and the record is dropped from the index if it does not fit either.
+   */
+  private void write(PendingWrite pending, List<String> index) {
+    String id = pending.record.getId();
+    if (!setItemMakingRoom(RECORD_PREFIX + id, pending.record.encode(), index)) {
+      index.remove(id);
+    } else if (pending.body != null && pending.body.length() <= maxBodyChars) {
+      setItemMakingRoom(BODY_PREFIX + id, pending.body, index);
+    }
+  }
+
+  /**
+   * Store the value, removing the oldest records if the storage is full. The most recent record is
+   * never removed to make room, and no more records are removed once they have freed as many
+   * characters as the value takes, since the storage is then full for another reason.
+   *
+   * @return Whether the value was stored.
+   */
+  private boolean setItemMakingRoom(String key, String value, List<String> index) {
+    long freedChars = 0;
+    while (true) {
+      try {
+        storage.setItem(key, value);
+        return true;
+      } catch (RuntimeException e) {
+        if (index.size() <= 1 || freedChars >= key.length() + value.length()) {
+          return false;
+        }
+        freedChars += remove(index.remove(0));
+      }
+    }
+  }
+
+  /**
+   * Remove a record and its body.
+   *
+   * @return Number of characters of the keys and values which were removed.
+   */
+  private int remove(String id) {
+    return removeItem(RECORD_PREFIX + id) + removeItem(BODY_PREFIX + id);
+  }
+
+  private int removeItem(String key) {
+    String value = storage.getItem(key);
+    if (value == null) {
+      return 0;
+    }
+    storage.removeItem(key);
+    return key.length() + value.length();
+  }
+
+  /**
+   * Returns a page of the records with the identifiers, which are listed oldest first, most recent
+   * first.
+   */
+  private List<HistoryRecord> loadPage(List<String> ids, int offset, int limit) {
+    ImmutableList.Builder<HistoryRecord> page = ImmutableList.builder();
+    for (int i = ids.size() - 1 - offset; i >= 0 && i >= ids.size() - offset - limit; i--) {
+      HistoryRecord record = loadRecord(ids.get(i));
+      if (record != null) {
+        page.add(record);
+      }
+    }
+    return page.build();
+  }
+
+  private HistoryRecord loadRecord(String id) {
+    PendingWrite pending = pendingWrites.get(id);
+    if (pending != null) {
+      return pending.record;
+    }
+
+    String encoded = storage.getItem(RECORD_PREFIX + id);
+    try {
+      return encoded == null ? null : HistoryRecord.decode(encoded);
+    } catch (IllegalArgumentException e) {
+      // Written by an incompatible version, skip it.
+      return null;
+    }
+  }
+
+  /**
+   * Returns a new list of the identifiers in the stored index, oldest first.
+   */
+  private List<String> readIndex() {
+    List<String> index = Lists.newArrayList();
+    String stored = storage.getItem(INDEX_KEY);
+    if (stored != null) {
+      for (String id : Splitter.on(INDEX_SEPARATOR).omitEmptyStrings().split(stored)) {
+        index.add(id);
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Record and body which are waiting to be written.
+   */
+  private static class PendingWrite {
+    private final HistoryRecord record;
+    private final String body;
+
+    PendingWrite(HistoryRecord record, String body) {
+      this.record = record;
+      this.body = body;
+    }
+  }
+}
@@ -16,11 +16,13 @@
 
 package com.google.api.explorer.client.history;
 
+import com.google.common.collect.Maps;
+import com.google.gwt.dom.client.Document;
 import com.google.gwt.dom.client.Element;
 import com.google.gwt.user.client.Timer;
 
 import java.util.Date;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
 /**
@@ -31,11 +33,19 @@ import java.util.Map;
  */
 public abstract class PrettyDate {
 
+  /** Interval between updates of the elements which are kept pretty. */
+  static final int UPDATE_INTERVAL_MILLIS = 60000;
+
+  /** Age after which the text of an element is no longer updated. */
+  static final long MAX_UPDATED_AGE_MILLIS = 3600000;
+
+  private static final Ticker<Element> TICKER = new ElementTicker();
+
   private PrettyDate() {
   }
 
-  private static String getPrettyText(Date date) {
-    long diff = (new Date().getTime() - date.getTime()) / 1000;
+  static String getPrettyText(Date date, long now) {
+    long diff = (now - date.getTime()) / 1000;
     double dayDiff = Math.floor(diff / 86400);
 
     if (diff < 0) {
@@ -63,38 +73,164 @@ public abstract class PrettyDate {
    * Sets the text to the pretty-date, once, and never again.
    */
   public static void makePretty(Date date, String prefix, Element element) {
-    element.setInnerText(prefix + getPrettyText(date));
+    element.setInnerText(prefix + getPrettyText(date, new Date().getTime()));
+  }
+
+  /**
+   * Sets the text to the pretty-date, and keeps updating it every minute until
+   * the text is more than an hour old, at which point it stops. The assumption is
+   * that nobody will wait for 60+ minutes for "one hour ago" to turn into "2 hours
+   * ago". The text also stops being updated once the element is removed from the
+   * page.
+   */
+  public static void keepMakingPretty(Date date, String prefix, Element element) {
+    TICKER.register(element, date, prefix);
   }
 
-  private static final Map<Element, Timer> TIMERS = new HashMap<Element, Timer>();
+  public static void stopMakingPretty(Element element) {
+    TICKER.unregister(element);
+  }
 
   /**
-   * Schedules a repeating timer to continually update the text with the
-   * pretty-date, every minute until the text is more than an hour old, at which
-   * point it stops. The assumption is that nobody will wait for 60+ minutes for
-   * "one hour ago" to turn into "2 hours ago"
+   * Keeps the text of a set of targets up to date with a single timer, which
+   * fires on minute boundaries and updates all of the targets at once. Targets
+   * are dropped once their text stops changing or once they are no longer
+   * displayed, so that nothing holds on to them after they leave the page.
+   *
+   * @param <E> Type of the targets whose text is updated.
    */
-  public static void keepMakingPretty(final Date date, final String prefix, final Element element) {
-    makePretty(date, prefix, element);
-    if (!TIMERS.containsKey(element)) {
-      Timer timer = new Timer() {
-        @Override
-        public void run() {
-          makePretty(date, prefix, element);
-          if (element.getInnerText().contains("hour")) {
-            stopMakingPretty(element);
-          }
+  abstract static class Ticker<E> {
+    private final Map<E, Registration> registrations = Maps.newLinkedHashMap();
+    private boolean scheduled = false;
+
+    /** Returns the current time in milliseconds. */
+    abstract long now();
+
+    /** Schedule {@link #tick()} to run once after the delay. */
+    abstract void schedule(int delayMillis);
+
+    /** Stop the scheduled {@link #tick()} from running. */
+    abstract void cancel();
+
+    /** Returns whether the target is still displayed. */
+    abstract boolean isDisplayed(E target);
+
+    abstract void setText(E target, String text);
+
+    /**
+     * Sets the text of the target to the pretty-date, and keeps it up to date
+     * until it is unregistered.
+     */
+    void register(E target, Date date, String prefix) {
+      Registration registration = new Registration(date, prefix);
+      long now = now();
+      registration.update(target, now);
+      if (now - date.getTime() < MAX_UPDATED_AGE_MILLIS) {
+        registrations.put(target, registration);
+        scheduleNextTick(now);
+      }
+    }
+
+    void unregister(E target) {
+      registrations.remove(target);
+      if (registrations.isEmpty() && scheduled) {
+        scheduled = false;
+        cancel();
+      }
+    }
+
+    /**
+     * Update the text of all of the registered targets, dropping those which no
+     * longer need updates.
+     */
+    void tick() {
+      scheduled = false;
+      long now = now();
+      for (Iterator<Map.Entry<E, Registration>> it = registrations.entrySet().iterator();
+          it.hasNext();) {
+        Map.Entry<E, Registration> entry = it.next();
+        Registration registration = entry.getValue();
+        if (!isDisplayed(entry.getKey())
+            || now - registration.date.getTime() >= MAX_UPDATED_AGE_MILLIS) {
+          it.remove();
+        } else {
+          registration.update(entry.getKey(), now);
+        }
+      }
+      scheduleNextTick(now);
+    }
+
+    /** Returns the number of targets which are kept up to date. */
+    int getRegisteredCount() {
+      return registrations.size();
+    }
+
+    private void scheduleNextTick(long now) {
+      if (!scheduled && !registrations.isEmpty()) {
+        scheduled = true;
+        schedule((int) (UPDATE_INTERVAL_MILLIS - now % UPDATE_INTERVAL_MILLIS));
+      }
+    }
+
+    /**
+     * Date and prefix of a registered target, with the text last set so that
+     * the target is only touched when its text changes.
+     */
+    private class Registration {
+      private final Date date;
+      private final String prefix;
+      private String text;
+
+      Registration(Date date, String prefix) {
+        this.date = date;
+        this.prefix = prefix;
+      }
+
+      void update(E target, long now) {
+        String newText = prefix + getPrettyText(date, now);
+        if (!newText.equals(text)) {
+          text = newText;
+          setText(target, newText);
         }
-      };
-      timer.scheduleRepeating(60000);
-      TIMERS.put(element, timer);
+      }
     }
   }
 
-  public static void stopMakingPretty(Element element) {
-    if (TIMERS.containsKey(element)) {
-      TIMERS.get(element).cancel();
-      TIMERS.remove(element);
+  /**
+   * Ticker which updates the inner text of elements, and considers elements to
+   * be displayed while they are attached to the document.
+   */
+  private static class ElementTicker extends Ticker<Element> {
+    private final Timer timer = new Timer() {
+      @Override
+      public void run() {
+        tick();
+      }
+    };
+
+    @Override
+    long now() {
+      return new Date().getTime();
+    }
+
+    @Override
+    void schedule(int delayMillis) {
+      timer.schedule(delayMillis);
+    }
+
+    @Override
+    void cancel() {
+      timer.cancel();
+    }
+
+    @Override
+    boolean isDisplayed(Element element) {
+      return Document.get().getBody().isOrHasChild(element);
+    }
+
+    @Override
+    void setText(Element element, String text) {
+      element.setInnerText(text);
     }
   }
 }
@@ -0,0 +1,315 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.history;
+
+import com.google.api.explorer.client.AuthManager;
+import com.google.api.explorer.client.RestRequestBuilder;
+import com.google.api.explorer.client.base.ApiMethod.HttpMethod;
+import com.google.api.explorer.client.base.ApiRequest;
+import com.google.api.explorer.client.base.ApiResponse;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.gwt.user.client.rpc.AsyncCallback;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Executes the requests of a set of history items again, for example to check that a set of calls
+ * still behave after a deploy.
+ *
+ * <p>
+ * At most a fixed number of replayed requests are in flight at any time, the next request is only
+ * sent once one of them completes. The response of each request is added to the history cache as
+ * soon as it arrives, and a summary of the outcome and latencies is produced once all of them have
+ * completed.
+ * </p>
+ *
+ * <p>
+ * Requests are sent in the order in which they were originally made. Read only requests may
+ * overlap each other, but a request which changes data, as reported by {@link #isReadOnly}, is only
+ * sent once every request before it has completed, and no request after it is sent until it has
+ * completed. A sequence such as an insert followed by a get of the inserted resource is therefore
+ * replayed as it happened. Replayed requests carry the current authorization of the user, so
+ * callers should only replay requests which change data when the user has explicitly chosen to.
+ * </p>
+ *
+ */
+public class RequestReplayer {
+  /** Default maximum number of requests in flight at once. */
+  public static final int DEFAULT_MAX_CONCURRENT = 4;
+
+  private static final Comparator<HistoryItem> CHRONOLOGICAL = new Comparator<HistoryItem>() {
+    @Override
+    public int compare(HistoryItem o1, HistoryItem o2) {
+      return o1.getStartTime() < o2.getStartTime() ? -1
+          : (o1.getStartTime() == o2.getStartTime() ? 0 : 1);
+    }
+  };
+
+  /**
+   * Creates the request used to replay a history item.
+   */
+  public interface RequestFactory {
+    /**
+     * Returns a new request equivalent to the request of the history item, which has not been sent.
+     */
+    ApiRequest rebuild(HistoryItem item);
+  }
+
+  /**
+   * Listener notified of the progress of a replay.
+   */
+  public interface ReplayListener {
+    /**
+     * Invoked when a replayed request completes, whether it succeeded or not.
+     *
+     * @param original Item which was replayed.
+     * @param key Key of the new history item, or {@code null} if the request failed without a
+     *        response.
+     * @param summary Summary of the requests which have completed so far.
+     */
+    void replayed(HistoryItem original, String key, ReplaySummary summary);
+
+    /**
+     * Invoked once all of the requests have completed.
+     */
+    void finished(ReplaySummary summary);
+  }
+
+  /**
+   * Outcome and latencies of the replayed requests. Requests pass if they receive a response with
+   * a 2xx status.
+   */
+  public static class ReplaySummary {
+    private final int total;
+    private final int passed;
+    private final int failed;
+    private final List<Long> sortedLatencies;
+
+    ReplaySummary(int total, int passed, int failed, List<Long> latencies) {
+      this.total = total;
+      this.passed = passed;
+      this.failed = failed;
+      List<Long> sorted = Lists.newArrayList(latencies);
+      Collections.sort(sorted);
+      this.sortedLatencies = ImmutableList.copyOf(sorted);
+    }
+
+    /** Returns the number of requests being replayed. */
+    public int getTotal() {
+      return total;
+    }
+
+    /** Returns the number of requests which completed with a 2xx status. */
+    public int getPassed() {
+      return passed;
+    }
+
+    /** Returns the number of requests which failed or completed with another status. */
+    public int getFailed() {
+      return failed;
+    }
+
+    /** Returns the number of requests which have completed. */
+    public int getCompleted() {
+      return passed + failed;
+    }
+
+    /**
+     * Returns the latency in milliseconds below which the specified percentage of the completed
+     * requests fall, or {@code 0} if none completed.
+     */
+    public long getLatencyPercentile(int percent) {
+      Preconditions.checkArgument(percent >= 0 && percent <= 100);
+      if (sortedLatencies.isEmpty()) {
+        return 0;
+      }
+      int index = (sortedLatencies.size() * percent + 99) / 100 - 1;
+      return sortedLatencies.get(Math.max(0, index));
+    }
+
+    /** Returns the mean latency in milliseconds of the completed requests. */
+    public long getMeanLatency() {
+      if (sortedLatencies.isEmpty()) {
+        return 0;
+      }
+      long sum = 0;
+      for (long latency : sortedLatencies) {
+        sum += latency;
+      }
+      return sum / sortedLatencies.size();
+    }
+
+    @Override
+    public String toString() {
+      return getCompleted() + "/" + total + " replayed, " + passed + " passed, " + failed
+          + " failed, latency median " + getLatencyPercentile(50) + " ms, 95th percentile "
+          + getLatencyPercentile(95) + " ms, max " + getLatencyPercentile(100) + " ms";
+    }
+  }
+
+  /**
+   * Factory which rebuilds REST requests with the same method, parameters and body, authorized
+   * with the current token of the service.
+   */
+  public static class RestRequestFactory implements RequestFactory {
+    private final AuthManager authManager;
+
+    public RestRequestFactory(AuthManager authManager) {
+      this.authManager = authManager;
+    }
+
+    @Override
+    public ApiRequest rebuild(HistoryItem item) {
+      ApiRequest original = item.getRequest();
+      return RestRequestBuilder.build(authManager, original.getService(), original.getMethod(),
+          original.getParamValues(), original.getRequestBody());
+    }
+  }
+
+  private final HistoryCache historyCache;
+  private final RequestFactory requestFactory;
+  private final int maxConcurrent;
+
+  /**
+   * Create a replayer which adds the responses to the specified cache.
+   *
+   * @param historyCache Cache to which the responses are added.
+   * @param requestFactory Factory which creates the replayed requests.
+   * @param maxConcurrent Maximum number of requests in flight at once.
+   */
+  public RequestReplayer(
+      HistoryCache historyCache, RequestFactory requestFactory, int maxConcurrent) {
+    Preconditions.checkArgument(maxConcurrent > 0);
+    this.historyCache = Preconditions.checkNotNull(historyCache);
+    this.requestFactory = Preconditions.checkNotNull(requestFactory);
+    this.maxConcurrent = maxConcurrent;
+  }
+
+  /**
+   * Returns whether requests with the specified method only read data, and can be replayed without
+   * side effects.
+   */
+  public static boolean isReadOnly(HttpMethod httpMethod) {
+    return httpMethod == HttpMethod.GET || httpMethod == HttpMethod.HEAD;
+  }
+
+  /**
+   * Replay the requests of the history items, in the order in which they were originally sent
+   * regardless of their order in the list.
+   *
+   * @param items Items to replay.
+   * @param listener Listener to notify of the progress.
+   */
+  public void replay(List<HistoryItem> items, ReplayListener listener) {
+    List<HistoryItem> chronological = Lists.newArrayList(items);
+    Collections.sort(chronological, CHRONOLOGICAL);
+    new Replay(ImmutableList.copyOf(chronological), Preconditions.checkNotNull(listener)).start();
+  }
+
+  /**
+   * State of a single replay of a set of items.
+   */
+  private class Replay {
+    private final List<HistoryItem> items;
+    private final ReplayListener listener;
+    private final List<Long> latencies = Lists.newArrayList();
+    private int next = 0;
+    private int inFlight = 0;
+
+    /** Whether the request in flight changes data, so no other request may be sent. */
+    private boolean writeInFlight = false;
+    private int passed = 0;
+    private int failed = 0;
+
+    Replay(List<HistoryItem> items, ReplayListener listener) {
+      this.items = items;
+      this.listener = listener;
+    }
+
+    void start() {
+      if (items.isEmpty()) {
+        listener.finished(summarize());
+        return;
+      }
+      sendMore();
+    }
+
+    /**
+     * Send the next requests until the limit of requests in flight is reached, or the next request
+     * changes data and has to wait for the requests in flight to complete.
+     */
+    private void sendMore() {
+      while (!writeInFlight && inFlight < maxConcurrent && next < items.size()) {
+        HistoryItem item = items.get(next);
+        boolean readOnly = isReadOnly(item.getRequest().getHttpMethod());
+        if (!readOnly && inFlight > 0) {
+          break;
+        }
+        next++;
+        writeInFlight = !readOnly;
+        send(item);
+      }
+    }
+
+    private void send(final HistoryItem original) {
+      final ApiRequest request = requestFactory.rebuild(original);
+      final long start = System.currentTimeMillis();
+      inFlight++;
+      request.send(new AsyncCallback<ApiResponse>() {
+        @Override
+        public void onSuccess(ApiResponse response) {
+          long end = System.currentTimeMillis();
+          int status = response.getStatus();
+          if (status >= 200 && status < 300) {
+            passed++;
+          } else {
+            failed++;
+          }
+          latencies.add(end - start);
+          String key = historyCache.addHistoryItem(request, response, start, end);
+          completed(original, key);
+        }
+
+        @Override
+        public void onFailure(Throwable caught) {
+          failed++;
+          latencies.add(System.currentTimeMillis() - start);
+          completed(original, null);
+        }
+      });
+    }
+
+    private void completed(HistoryItem original, String key) {
+      inFlight--;
+      writeInFlight = false;
+      listener.replayed(original, key, summarize());
+      if (passed + failed == items.size()) {
+        listener.finished(summarize());
+      } else {
+        sendMore();
+      }
+    }
+
+    private ReplaySummary summarize() {
+      return new ReplaySummary(items.size(), passed, failed, latencies);
+    }
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.history;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+
+/**
+ * Policy which decides how a response body should be displayed based on how large it is. Small
+ * bodies are fully prettified into interactive widgets, medium bodies are rendered as lightweight
+ * highlighted HTML, and huge bodies are shown in a virtualized view which only renders the lines
+ * that are scrolled into view.
+ *
+ */
+public class ResponseDisplayPolicy {
+  /** The different ways in which a response body can be displayed. */
+  public enum DisplayMode {
+    /** Interactive widgets with collapsers, links and resource menus. */
+    PRETTIFIED,
+
+    /** A single block of syntax highlighted HTML. */
+    HIGHLIGHTED,
+
+    /** A scrolling window which highlights only the visible lines. */
+    VIRTUALIZED,
+  }
+
+  /** Policy with the thresholds used when no other policy has been configured. */
+  public static final ResponseDisplayPolicy DEFAULT =
+      new ResponseDisplayPolicy(200 * 1024, 10000, 1024 * 1024);
+
+  private final int maxPrettifiedLength;
+  private final int maxPrettifiedNodes;
+  private final int maxHighlightedLength;
+
+  /**
+   * Create a policy with the specified thresholds.
+   *
+   * @param maxPrettifiedLength Maximum length in characters of a body that will be prettified.
+   * @param maxPrettifiedNodes Maximum number of JSON values in a body that will be prettified.
+   * @param maxHighlightedLength Maximum length in characters of a body that will be highlighted as a
+   *        whole, larger bodies are virtualized.
+   */
+  public ResponseDisplayPolicy(
+      int maxPrettifiedLength, int maxPrettifiedNodes, int maxHighlightedLength) {
+
+    Preconditions.checkArgument(maxPrettifiedLength <= maxHighlightedLength);
+    this.maxPrettifiedLength = maxPrettifiedLength;
+    this.maxPrettifiedNodes = maxPrettifiedNodes;
+    this.maxHighlightedLength = maxHighlightedLength;
+  }
+
+  /**
+   * Choose the display mode for the specified body.
+   *
+   * @param body Body of the response.
+   * @param canPrettify Whether full prettification is available, it is too slow to use in
+   *        development mode.
+   */
+  public DisplayMode choose(String body, boolean canPrettify) {
+    int length = Strings.nullToEmpty(body).length();
+    if (length > maxHighlightedLength) {
+      return DisplayMode.VIRTUALIZED;
+    }
+
+    if (canPrettify && length <= maxPrettifiedLength
+        && estimateNodeCount(body, maxPrettifiedNodes) <= maxPrettifiedNodes) {
+      return DisplayMode.PRETTIFIED;
+    }
+    return DisplayMode.HIGHLIGHTED;
+  }
+
+  /**
+   * Estimate the number of values in a JSON document without parsing it, by counting the object,
+   * array and separator characters that are not inside of strings.
+   *
+   * @param json Text of the document.
+   * @param limit Count at which to stop counting, since the exact count is not interesting beyond
+   *        it.
+   * @return The estimated count, or a number larger than the limit.
+   */
+  @VisibleForTesting
+  static int estimateNodeCount(String json, int limit) {
+    if (Strings.isNullOrEmpty(json)) {
+      return 0;
+    }
+
+    int count = 1;
+    boolean inString = false;
+    for (int i = 0; i < json.length() && count <= limit; i++) {
+      char c = json.charAt(i);
+      if (inString) {
+        if (c == '\\') {
+          i++;
+        } else if (c == '"') {
+          inString = false;
+        }
+      } else if (c == '"') {
+        inString = true;
+      } else if (c == '{' || c == '[' || c == ',') {
+        count++;
+      }
+    }
+    return count;
+  }
+}
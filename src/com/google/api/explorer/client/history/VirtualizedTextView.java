@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.history;
+
+import com.google.api.explorer.client.history.JsonHighlighter.Lines;
+import com.google.gwt.dom.client.Style;
+import com.google.gwt.dom.client.Style.Position;
+import com.google.gwt.dom.client.Style.Unit;
+import com.google.gwt.dom.client.Style.WhiteSpace;
+import com.google.gwt.event.dom.client.ScrollEvent;
+import com.google.gwt.event.dom.client.ScrollHandler;
+import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
+import com.google.gwt.user.client.ui.Composite;
+import com.google.gwt.user.client.ui.FlowPanel;
+import com.google.gwt.user.client.ui.HTML;
+import com.google.gwt.user.client.ui.ScrollPanel;
+
+/**
+ * View of a very large text which only renders and highlights the lines that are scrolled into
+ * view, so that the size of the DOM does not depend on the size of the text.
+ *
+ */
+public class VirtualizedTextView extends Composite {
+  private static final int LINE_HEIGHT_PX = 16;
+  private static final int VIEWPORT_HEIGHT_PX = 600;
+  private static final int MAX_LINE_LENGTH = 240;
+
+  /** Number of lines rendered above and below the viewport so that short scrolls stay smooth. */
+  private static final int OVERSCAN_LINES = 40;
+
+  private final String text;
+  private final Lines lines;
+  private final JsonHighlighter highlighter;
+
+  private final ScrollPanel viewport = new ScrollPanel();
+  private final HTML window = new HTML();
+
+  private int windowFirstLine = -1;
+  private int windowLastLine = -1;
+
+  /**
+   * Create a view of the text specified.
+   *
+   * @param text Text to display.
+   * @param highlighter Highlighter used to format the lines in view.
+   */
+  public VirtualizedTextView(String text, JsonHighlighter highlighter) {
+    this.text = text;
+    this.lines = JsonHighlighter.splitLines(text, MAX_LINE_LENGTH);
+    this.highlighter = highlighter;
+
+    // The content is sized to the height of all of the lines so that the scrollbar behaves as if
+    // they were all rendered, and the rendered window is positioned within it.
+    FlowPanel content = new FlowPanel();
+    Style contentStyle = content.getElement().getStyle();
+    contentStyle.setPosition(Position.RELATIVE);
+    contentStyle.setHeight(lines.count() * LINE_HEIGHT_PX, Unit.PX);
+
+    Style windowStyle = window.getElement().getStyle();
+    windowStyle.setPosition(Position.ABSOLUTE);
+    windowStyle.setLeft(0, Unit.PX);
+    windowStyle.setLineHeight(LINE_HEIGHT_PX, Unit.PX);
+    windowStyle.setWhiteSpace(WhiteSpace.PRE);
+    content.add(window);
+
+    viewport.setHeight(Math.min(lines.count() * LINE_HEIGHT_PX, VIEWPORT_HEIGHT_PX) + "px");
+    viewport.setWidget(content);
+    viewport.addScrollHandler(new ScrollHandler() {
+      @Override
+      public void onScroll(ScrollEvent event) {
+        renderWindow();
+      }
+    });
+
+    initWidget(viewport);
+    renderWindow();
+  }
+
+  /**
+   * Returns the number of lines which the text was split into.
+   */
+  public int getLineCount() {
+    return lines.count();
+  }
+
+  /**
+   * Render the lines around the current scroll position, if they are not already rendered.
+   */
+  private void renderWindow() {
+    int firstVisible = viewport.getVerticalScrollPosition() / LINE_HEIGHT_PX;
+    int lastVisible =
+        Math.min(lines.count(), firstVisible + VIEWPORT_HEIGHT_PX / LINE_HEIGHT_PX);
+    if (firstVisible >= windowFirstLine && lastVisible <= windowLastLine) {
+      return;
+    }
+
+    windowFirstLine = Math.max(0, firstVisible - OVERSCAN_LINES);
+    windowLastLine = Math.min(lines.count(), lastVisible + OVERSCAN_LINES);
+
+    SafeHtmlBuilder html = new SafeHtmlBuilder();
+    for (int line = windowFirstLine; line < windowLastLine; line++) {
+      highlighter.highlight(
+          text, lines.start(line), lines.end(line), lines.startsInString(line), html);
+      html.appendHtmlConstant("\n");
+    }
+
+    window.getElement().getStyle().setTop(windowFirstLine * LINE_HEIGHT_PX, Unit.PX);
+    window.setHTML(html.toSafeHtml());
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.search;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Immutable ascending list of ids, stored as the differences between consecutive ids in a variable
+ * length encoding, for posting lists which are built once and read rarely.
+ *
+ * <p>
+ * Each difference is written seven bits per byte, low bits first, with the high bit of every byte
+ * but the last one set. Ids which are close together, as in the posting lists of a single service,
+ * take one byte each instead of four.
+ * </p>
+ *
+ */
+class CompressedPostings {
+  static final CompressedPostings EMPTY = new CompressedPostings(new byte[0], 0);
+
+  private final byte[] bytes;
+  private final int size;
+
+  private CompressedPostings(byte[] bytes, int size) {
+    this.bytes = bytes;
+    this.size = size;
+  }
+
+  /**
+   * Returns the compressed form of the first {@code count} ids.
+   *
+   * @param ids Ids in strictly ascending order, none of them negative.
+   */
+  static CompressedPostings of(int[] ids, int count) {
+    if (count == 0) {
+      return EMPTY;
+    }
+
+    byte[] buffer = new byte[count * 5];
+    int length = 0;
+    int previous = -1;
+    for (int i = 0; i < count; i++) {
+      Preconditions.checkArgument(ids[i] > previous, "Ids must be ascending");
+      // The first id is stored as is, since it may be zero.
+      int delta = i == 0 ? ids[i] : ids[i] - previous;
+      while ((delta & ~0x7F) != 0) {
+        buffer[length++] = (byte) ((delta & 0x7F) | 0x80);
+        delta >>>= 7;
+      }
+      buffer[length++] = (byte) delta;
+      previous = ids[i];
+    }
+
+    byte[] bytes = new byte[length];
+    System.arraycopy(buffer, 0, bytes, 0, length);
+    return new CompressedPostings(bytes, count);
+  }
+
+  /** Returns the ids, in ascending order. */
+  int[] decode() {
+    int[] ids = new int[size];
+    int position = 0;
+    int previous = 0;
+    for (int i = 0; i < size; i++) {
+      int delta = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = bytes[position++];
+        delta |= (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      previous = i == 0 ? delta : previous + delta;
+      ids[i] = previous;
+    }
+    return ids;
+  }
+
+  /** Returns the number of ids. */
+  int size() {
+    return size;
+  }
+
+  /** Returns the number of bytes taken by the encoded ids. */
+  int getByteCount() {
+    return bytes.length;
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.search;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * Indexes documents in time bounded slices, so that indexing many services at once does not block
+ * the UI.
+ *
+ * <p>
+ * Documents are queued as they arrive, and an incremental command expands each one into its
+ * entries and adds the entries to the index until the time of the slice is used up. Entries are
+ * searchable as soon as they are added, so queries made while indexing is still going return the
+ * results indexed so far.
+ * </p>
+ *
+ * @param <E> Type of the entries added to the index.
+ */
+class IncrementalIndexer<E> {
+  /** Default time that each slice may spend indexing. */
+  static final int DEFAULT_SLICE_MILLIS = 20;
+
+  /**
+   * Index to which the entries are added.
+   */
+  interface EntrySink<E> {
+    void add(E entry);
+  }
+
+  /**
+   * Listener notified of the progress of the indexing.
+   */
+  interface ProgressListener {
+    /**
+     * Invoked after each slice which did not finish the queue.
+     *
+     * @param indexedDocuments Number of documents indexed since indexing last finished.
+     * @param queuedDocuments Number of documents queued since indexing last finished.
+     */
+    void indexingProgress(int indexedDocuments, int queuedDocuments);
+
+    /** Invoked when all of the queued documents have been indexed. */
+    void indexingFinished();
+  }
+
+  private final Scheduler scheduler;
+  private final EntrySink<E> sink;
+  private final ProgressListener listener;
+  private final int sliceMillis;
+
+  private final LinkedList<Supplier<? extends Iterable<? extends E>>> queue = Lists.newLinkedList();
+  private Iterator<? extends E> current = Iterators.emptyIterator();
+  private boolean scheduled = false;
+  private int indexedDocuments = 0;
+  private int queuedDocuments = 0;
+
+  /**
+   * Create an indexer.
+   *
+   * @param scheduler Scheduler which runs the slices.
+   * @param sink Index to which the entries are added.
+   * @param listener Listener notified of the progress.
+   * @param sliceMillis Time after which a slice yields. Each slice indexes at least one entry.
+   */
+  IncrementalIndexer(
+      Scheduler scheduler, EntrySink<E> sink, ProgressListener listener, int sliceMillis) {
+    Preconditions.checkArgument(sliceMillis >= 0);
+    this.scheduler = Preconditions.checkNotNull(scheduler);
+    this.sink = Preconditions.checkNotNull(sink);
+    this.listener = Preconditions.checkNotNull(listener);
+    this.sliceMillis = sliceMillis;
+  }
+
+  /**
+   * Queue a document to be indexed. The supplier of its entries, such as an indexing strategy
+   * applied to the document, is only invoked when the document's turn comes.
+   */
+  void enqueue(Supplier<? extends Iterable<? extends E>> document) {
+    queue.add(Preconditions.checkNotNull(document));
+    queuedDocuments++;
+
+    if (!scheduled) {
+      scheduled = true;
+      scheduler.scheduleIncremental(new RepeatingCommand() {
+        @Override
+        public boolean execute() {
+          scheduled = runSlice();
+          return scheduled;
+        }
+      });
+    }
+  }
+
+  /** Returns whether there are documents which have not been completely indexed. */
+  boolean isIndexing() {
+    return current.hasNext() || !queue.isEmpty();
+  }
+
+  /**
+   * Index entries until the time of the slice is used up or the queue is empty.
+   *
+   * @return Whether there is more to index.
+   */
+  boolean runSlice() {
+    long deadline = System.currentTimeMillis() + sliceMillis;
+    boolean added = false;
+    while (!added || System.currentTimeMillis() < deadline) {
+      if (!current.hasNext()) {
+        if (queue.isEmpty()) {
+          break;
+        }
+        current = queue.removeFirst().get().iterator();
+        indexedDocuments++;
+        continue;
+      }
+      sink.add(current.next());
+      added = true;
+    }
+
+    if (isIndexing()) {
+      listener.indexingProgress(indexedDocuments - (current.hasNext() ? 1 : 0), queuedDocuments);
+      return true;
+    }
+
+    indexedDocuments = 0;
+    queuedDocuments = 0;
+    listener.indexingFinished();
+    return false;
+  }
+}
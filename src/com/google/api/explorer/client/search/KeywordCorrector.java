@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.search;
+
+import com.google.api.explorer.client.search.PostingListIndex.Postings;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trigram index over the keyword dictionary, which corrects misspelled query keywords to the
+ * keywords within a small edit distance.
+ *
+ * <p>
+ * Each keyword is indexed under the trigrams of the keyword padded with a boundary character at
+ * either end. Since one edit changes at most three trigrams, a keyword within the edit distance
+ * shares a minimum number of trigrams with the misspelling, so only the keywords which reach that
+ * count are compared character by character, and at most {@link #MAX_VERIFIED_CANDIDATES} of them.
+ * </p>
+ *
+ */
+class KeywordCorrector {
+  /** Maximum number of keywords whose edit distance is computed for a single correction. */
+  static final int MAX_VERIFIED_CANDIDATES = 64;
+
+  /** Keywords shorter than this are not corrected, since nearly every keyword is close to them. */
+  static final int MIN_CORRECTED_LENGTH = 4;
+
+  /** Keywords at least this long may be corrected by two edits rather than one. */
+  static final int TWO_EDIT_LENGTH = 8;
+
+  private static final char BOUNDARY = '\u0001';
+  private static final int GRAM_LENGTH = 3;
+
+  private final List<String> keywords = Lists.newArrayList();
+  private final Map<String, Integer> keywordIds = Maps.newHashMap();
+  private final Map<String, Postings> grams = Maps.newHashMap();
+
+  /**
+   * Add a keyword to the dictionary.
+   *
+   * @return Whether the keyword was not already in the dictionary.
+   */
+  boolean add(String keyword) {
+    Preconditions.checkNotNull(keyword);
+    if (keywordIds.containsKey(keyword)) {
+      return false;
+    }
+
+    int id = keywords.size();
+    keywords.add(keyword);
+    keywordIds.put(keyword, id);
+    for (String gram : grams(keyword)) {
+      Postings list = grams.get(gram);
+      if (list == null) {
+        list = new Postings();
+        grams.put(gram, list);
+      }
+      list.add(id);
+    }
+    return true;
+  }
+
+  /** Returns whether the keyword is in the dictionary. */
+  boolean contains(String keyword) {
+    return keywordIds.containsKey(keyword);
+  }
+
+  /**
+   * Returns the keywords within the allowed edit distance of a keyword which is not in the
+   * dictionary, closest first, then sharing the most trigrams, then in alphabetical order. A
+   * keyword which is in the dictionary is its only correction.
+   *
+   * @param keyword Keyword of the query.
+   * @param limit Maximum number of corrections.
+   */
+  List<String> correct(String keyword, int limit) {
+    if (keywordIds.containsKey(keyword)) {
+      return ImmutableList.of(keyword);
+    }
+    if (keyword.length() < MIN_CORRECTED_LENGTH || limit <= 0) {
+      return ImmutableList.of();
+    }
+
+    int maxDistance = keyword.length() >= TWO_EDIT_LENGTH ? 2 : 1;
+    List<String> queryGrams = grams(keyword);
+    int minShared = queryGrams.size() - GRAM_LENGTH * maxDistance;
+
+    // Count the trigrams that each keyword shares with the query.
+    Map<Integer, int[]> shared = Maps.newHashMap();
+    for (String gram : queryGrams) {
+      Postings list = grams.get(gram);
+      if (list == null) {
+        continue;
+      }
+      for (int i = 0; i < list.size; i++) {
+        int[] count = shared.get(list.ids[i]);
+        if (count == null) {
+          count = new int[1];
+          shared.put(list.ids[i], count);
+        }
+        count[0]++;
+      }
+    }
+
+    List<Candidate> candidates = Lists.newArrayList();
+    for (Map.Entry<Integer, int[]> entry : shared.entrySet()) {
+      String candidate = keywords.get(entry.getKey());
+      if (entry.getValue()[0] >= minShared
+          && Math.abs(candidate.length() - keyword.length()) <= maxDistance) {
+        candidates.add(new Candidate(candidate, entry.getValue()[0]));
+      }
+    }
+
+    // Only verify the candidates sharing the most trigrams, to bound the cost of a correction.
+    Collections.sort(candidates, new Comparator<Candidate>() {
+      @Override
+      public int compare(Candidate a, Candidate b) {
+        return a.shared != b.shared ? b.shared - a.shared : a.keyword.compareTo(b.keyword);
+      }
+    });
+    List<Candidate> corrections = Lists.newArrayList();
+    for (Candidate candidate : candidates.subList(
+        0, Math.min(candidates.size(), MAX_VERIFIED_CANDIDATES))) {
+      candidate.distance = editDistance(keyword, candidate.keyword, maxDistance);
+      if (candidate.distance <= maxDistance) {
+        corrections.add(candidate);
+      }
+    }
+
+    Collections.sort(corrections, new Comparator<Candidate>() {
+      @Override
+      public int compare(Candidate a, Candidate b) {
+        if (a.distance != b.distance) {
+          return a.distance - b.distance;
+        }
+        return a.shared != b.shared ? b.shared - a.shared : a.keyword.compareTo(b.keyword);
+      }
+    });
+    ImmutableList.Builder<String> result = ImmutableList.builder();
+    for (Candidate correction : corrections.subList(0, Math.min(corrections.size(), limit))) {
+      result.add(correction.keyword);
+    }
+    return result.build();
+  }
+
+  /** Returns the number of keywords in the dictionary. */
+  int size() {
+    return keywords.size();
+  }
+
+  /**
+   * Returns the trigrams of the keyword padded at either end, including repeated trigrams.
+   */
+  static List<String> grams(String keyword) {
+    String padded = BOUNDARY + keyword + BOUNDARY;
+    List<String> result = Lists.newArrayListWithCapacity(padded.length() - GRAM_LENGTH + 1);
+    for (int i = 0; i + GRAM_LENGTH <= padded.length(); i++) {
+      result.add(padded.substring(i, i + GRAM_LENGTH));
+    }
+    return result;
+  }
+
+  /**
+   * Returns the Levenshtein distance between the strings, or {@code maxDistance + 1} if it is
+   * larger than {@code maxDistance}. Only the band of the table within {@code maxDistance} of the
+   * diagonal is computed.
+   */
+  static int editDistance(String a, String b, int maxDistance) {
+    if (Math.abs(a.length() - b.length()) > maxDistance) {
+      return maxDistance + 1;
+    }
+
+    int outside = maxDistance + 1;
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) {
+      previous[j] = Math.min(j, outside);
+    }
+    for (int i = 1; i <= a.length(); i++) {
+      int from = Math.max(1, i - maxDistance);
+      int to = Math.min(b.length(), i + maxDistance);
+      current[0] = Math.min(i, outside);
+      if (from > 1) {
+        current[from - 1] = outside;
+      }
+      int rowMin = current[0];
+      for (int j = from; j <= to; j++) {
+        int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        int value = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+        current[j] = Math.min(value, outside);
+        rowMin = Math.min(rowMin, current[j]);
+      }
+      if (to < b.length()) {
+        current[to + 1] = outside;
+      }
+      if (rowMin > maxDistance) {
+        return outside;
+      }
+
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return previous[b.length()];
+  }
+
+  /**
+   * Keyword which may be a correction, with the number of trigrams it shares with the query.
+   */
+  private static class Candidate {
+    private final String keyword;
+    private final int shared;
+    private int distance;
+
+    Candidate(String keyword, int shared) {
+      this.keyword = keyword;
+      this.shared = shared;
+    }
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.search;
+
+/**
+ * Single pass tokenizer for indexed text, which splits the text into the same keywords as the
+ * keyword extractor without regular expressions, intermediate arrays or substrings.
+ *
+ * <p>
+ * Keywords are runs of letters, digits and periods, lower cased, with the periods at either end
+ * removed, so that method names and versions stay whole while sentence punctuation is dropped.
+ * Each keyword is lower cased into a reusable buffer and looked up in a table of the keywords seen
+ * so far, so a string is only allocated the first time a keyword is seen, and every occurrence of
+ * a keyword is the same instance. The table grows with the vocabulary of the indexed text, so a
+ * scanner should be shared by the indexing of all of the documents of an index.
+ * </p>
+ *
+ * <p>
+ * ASCII characters are classified and lower cased with range checks. The {@link Character}
+ * methods are only used for other characters, since in compiled code they match a regular
+ * expression or allocate a string for every character. In the JVM benchmarks, over the method
+ * names and descriptions of the synthetic discovery documents, the scanner extracts keywords three
+ * to six times as fast as splitting on regular expressions.
+ * </p>
+ *
+ * <p>
+ * The indexing strategies do not use the scanner yet, so it only affects the search benchmarks.
+ * Search stays disabled in hosted mode until they do.
+ * </p>
+ *
+ */
+class KeywordScanner {
+  private static final int INITIAL_BUFFER_LENGTH = 32;
+  private static final int INITIAL_TABLE_SIZE = 256;
+
+  /**
+   * Receiver of the keywords of a text.
+   */
+  interface KeywordSink {
+    void keyword(String keyword);
+  }
+
+  private char[] buffer = new char[INITIAL_BUFFER_LENGTH];
+  private String[] table = new String[INITIAL_TABLE_SIZE];
+  private int internedCount = 0;
+
+  /**
+   * Pass each keyword of the text to the sink, in order and including repeated keywords.
+   */
+  void scan(String text, KeywordSink sink) {
+    int length = text.length();
+    int i = 0;
+    while (i < length) {
+      // Skip to the first character of the keyword, which may not be a period.
+      while (i < length && !isLetterOrDigit(text.charAt(i))) {
+        i++;
+      }
+
+      // Copy the keyword, and remember where it ends without its trailing periods.
+      int copied = 0;
+      int end = 0;
+      while (i < length && isKeywordChar(text.charAt(i))) {
+        char c = text.charAt(i++);
+        if (copied == buffer.length) {
+          char[] grown = new char[buffer.length * 2];
+          System.arraycopy(buffer, 0, grown, 0, copied);
+          buffer = grown;
+        }
+        buffer[copied++] = toLowerCase(c);
+        if (c != '.') {
+          end = copied;
+        }
+      }
+      if (end > 0) {
+        sink.keyword(intern(end));
+      }
+    }
+  }
+
+  /**
+   * Pass each whitespace separated fragment of a query to the sink, unchanged. A query which ends
+   * in whitespace has an empty last fragment, since the user has started a new keyword.
+   */
+  static void split(String query, KeywordSink sink) {
+    int length = query.length();
+    int start = 0;
+    for (int i = 0; i < length; i++) {
+      if (isWhitespace(query.charAt(i))) {
+        if (i > start) {
+          sink.keyword(query.substring(start, i));
+        }
+        start = i + 1;
+      }
+    }
+    if (start < length || (length > 0 && isWhitespace(query.charAt(length - 1)))) {
+      sink.keyword(query.substring(start));
+    }
+  }
+
+  /** Returns the number of distinct keywords seen. */
+  int getInternedCount() {
+    return internedCount;
+  }
+
+  /**
+   * Returns the keyword in the first {@code length} characters of the buffer, allocating it only if
+   * it has not been seen before.
+   */
+  private String intern(int length) {
+    int hash = 0;
+    for (int i = 0; i < length; i++) {
+      hash = 31 * hash + buffer[i];
+    }
+
+    int mask = table.length - 1;
+    int slot = hash & mask;
+    for (String keyword = table[slot]; keyword != null; keyword = table[slot]) {
+      if (bufferEquals(keyword, length)) {
+        return keyword;
+      }
+      slot = (slot + 1) & mask;
+    }
+
+    String keyword = new String(buffer, 0, length);
+    table[slot] = keyword;
+    if (++internedCount * 2 > table.length) {
+      rehash();
+    }
+    return keyword;
+  }
+
+  private boolean bufferEquals(String keyword, int length) {
+    if (keyword.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (keyword.charAt(i) != buffer[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void rehash() {
+    String[] old = table;
+    table = new String[old.length * 2];
+    int mask = table.length - 1;
+    for (String keyword : old) {
+      if (keyword != null) {
+        int slot = keyword.hashCode() & mask;
+        while (table[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = keyword;
+      }
+    }
+  }
+
+  private static boolean isKeywordChar(char c) {
+    return c == '.' || isLetterOrDigit(c);
+  }
+
+  private static boolean isLetterOrDigit(char c) {
+    if (c < 0x80) {
+      return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+    return Character.isLetterOrDigit(c);
+  }
+
+  private static char toLowerCase(char c) {
+    if (c < 0x80) {
+      return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+    return Character.toLowerCase(c);
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+  }
+}
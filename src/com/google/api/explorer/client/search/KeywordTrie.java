@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.search;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * Prefix trie of search keywords which answers completion requests for the search box.
+ *
+ * <p>
+ * Every node caches the best completions below it, shortest keywords first and then in
+ * alphabetical order, so completing a prefix only walks the prefix and copies the cached
+ * completions: the cost does not depend on the number of keywords in the trie. The children of a
+ * node are held in a sorted array rather than a map to keep the nodes small.
+ * </p>
+ *
+ */
+class KeywordTrie {
+  private static final char[] NO_LABELS = new char[0];
+  private static final Node[] NO_CHILDREN = new Node[0];
+  private static final String[] NO_COMPLETIONS = new String[0];
+
+  private final int maxCompletions;
+  private final Node root = new Node();
+  private int size = 0;
+
+  /**
+   * Create an empty trie.
+   *
+   * @param maxCompletions Maximum number of completions returned for a prefix.
+   */
+  KeywordTrie(int maxCompletions) {
+    Preconditions.checkArgument(maxCompletions > 0);
+    this.maxCompletions = maxCompletions;
+  }
+
+  /**
+   * Add a keyword to the trie.
+   *
+   * @return Whether the keyword was not already in the trie.
+   */
+  boolean add(String keyword) {
+    Preconditions.checkNotNull(keyword);
+    Node node = root;
+    for (int i = 0; i < keyword.length(); i++) {
+      node = node.getOrAddChild(keyword.charAt(i));
+    }
+    if (node.terminal) {
+      return false;
+    }
+    node.terminal = true;
+    size++;
+
+    // Offer the keyword to the caches of all of the nodes along its path.
+    node = root;
+    node.offer(keyword, maxCompletions);
+    for (int i = 0; i < keyword.length(); i++) {
+      node = node.getChild(keyword.charAt(i));
+      node.offer(keyword, maxCompletions);
+    }
+    return true;
+  }
+
+  /**
+   * Returns the best completions of the prefix, which include the prefix itself if it is a
+   * keyword.
+   */
+  List<String> complete(String prefix) {
+    Node node = root;
+    for (int i = 0; i < prefix.length() && node != null; i++) {
+      node = node.getChild(prefix.charAt(i));
+    }
+    return node == null ? ImmutableList.<String>of() : ImmutableList.copyOf(node.completions);
+  }
+
+  /** Returns whether the keyword is in the trie. */
+  boolean contains(String keyword) {
+    Node node = root;
+    for (int i = 0; i < keyword.length() && node != null; i++) {
+      node = node.getChild(keyword.charAt(i));
+    }
+    return node != null && node.terminal;
+  }
+
+  /** Returns the number of keywords in the trie. */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Returns whether keyword {@code a} is a better completion than keyword {@code b}.
+   */
+  private static boolean isBetter(String a, String b) {
+    return a.length() != b.length() ? a.length() < b.length() : a.compareTo(b) < 0;
+  }
+
+  /**
+   * Node of the trie, which holds its children and the best completions of its prefix.
+   */
+  private static class Node {
+    private char[] labels = NO_LABELS;
+    private Node[] children = NO_CHILDREN;
+    private String[] completions = NO_COMPLETIONS;
+    private boolean terminal = false;
+
+    Node getChild(char label) {
+      int index = find(label);
+      return index < children.length && labels[index] == label ? children[index] : null;
+    }
+
+    Node getOrAddChild(char label) {
+      int index = find(label);
+      if (index < children.length && labels[index] == label) {
+        return children[index];
+      }
+
+      Node child = new Node();
+      char[] newLabels = new char[labels.length + 1];
+      Node[] newChildren = new Node[children.length + 1];
+      System.arraycopy(labels, 0, newLabels, 0, index);
+      System.arraycopy(children, 0, newChildren, 0, index);
+      newLabels[index] = label;
+      newChildren[index] = child;
+      System.arraycopy(labels, index, newLabels, index + 1, labels.length - index);
+      System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+      labels = newLabels;
+      children = newChildren;
+      return child;
+    }
+
+    /**
+     * Add the keyword to the cached completions if it is among the best ones.
+     */
+    void offer(String keyword, int maxCompletions) {
+      int position = completions.length;
+      while (position > 0 && isBetter(keyword, completions[position - 1])) {
+        position--;
+      }
+      if (position >= maxCompletions) {
+        return;
+      }
+
+      int newLength = Math.min(completions.length + 1, maxCompletions);
+      String[] newCompletions = new String[newLength];
+      System.arraycopy(completions, 0, newCompletions, 0, position);
+      newCompletions[position] = keyword;
+      System.arraycopy(
+          completions, position, newCompletions, position + 1, newLength - position - 1);
+      completions = newCompletions;
+    }
+
+    /**
+     * Returns the index of the label, or the index at which it would be inserted.
+     */
+    private int find(char label) {
+      int low = 0;
+      int high = labels.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (labels[mid] < label) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+  }
+}
@@ -0,0 +1,526 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.search;
+
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact inverted index from keywords to documents, which backs the search result index.
+ *
+ * <p>
+ * Each distinct document is assigned a dense integer id, and each keyword maps to a sorted array
+ * of the ids of the documents which contain it, so the index holds one {@code int} per keyword
+ * occurrence rather than a boxed multimap entry. Multiple keyword queries intersect the posting
+ * lists from the shortest one up, using galloping search to skip through the longer lists.
+ * </p>
+ *
+ * <p>
+ * Removing a document only leaves a tombstone in place of it, which searches skip. Once the
+ * tombstones make up half of the documents the index is compacted: the remaining documents are
+ * given consecutive ids and the posting lists are rewritten without the removed ones.
+ * </p>
+ *
+ * @param <T> Type of the indexed documents, which must implement equality.
+ */
+class PostingListIndex<T> {
+  private static final int INITIAL_POSTINGS_CAPACITY = 4;
+
+  /** Minimum number of tombstones before the index is compacted. */
+  static final int MIN_COMPACTED_TOMBSTONES = 32;
+
+  private static final String FORMAT_VERSION = "1";
+  private static final Splitter LINE_SPLITTER = Splitter.on('\n');
+  private static final Splitter POSTING_SPLITTER = Splitter.on(',').omitEmptyStrings();
+
+  private static final int[] NO_IDS = new int[0];
+
+  private static final Comparator<Postings> SHORTEST_FIRST = new Comparator<Postings>() {
+    @Override
+    public int compare(Postings a, Postings b) {
+      return a.size - b.size;
+    }
+  };
+
+  private final List<T> documents = Lists.newArrayList();
+  private final Map<T, Integer> documentIds = Maps.newHashMap();
+  private final Map<String, Postings> postings = Maps.newHashMap();
+  private int tombstones = 0;
+  private int generation = 0;
+
+  /**
+   * Index the document under the specified keywords. A document which is already in the index
+   * keeps its id and is indexed under the additional keywords.
+   *
+   * @return The keywords which were not in the index before.
+   */
+  Set<String> add(T document, Iterable<String> keywords) {
+    Preconditions.checkNotNull(document);
+    Integer id = documentIds.get(document);
+    if (id == null) {
+      id = documents.size();
+      documents.add(document);
+      documentIds.put(document, id);
+      generation++;
+    }
+
+    ImmutableSet.Builder<String> newKeywords = ImmutableSet.builder();
+    for (String keyword : keywords) {
+      Postings list = postings.get(keyword);
+      if (list == null) {
+        list = new Postings();
+        postings.put(keyword, list);
+        newKeywords.add(keyword);
+      }
+      if (list.add(id)) {
+        generation++;
+      }
+    }
+    return newKeywords.build();
+  }
+
+  /**
+   * Replace the keywords of a document, such as a service which was loaded again.
+   *
+   * @return The keywords which were not in the index before.
+   */
+  Set<String> replace(T document, Iterable<String> keywords) {
+    remove(document);
+    return add(document, keywords);
+  }
+
+  /**
+   * Remove a document from the index.
+   *
+   * @return Whether the document was in the index.
+   */
+  boolean remove(T document) {
+    Integer id = documentIds.remove(document);
+    if (id == null) {
+      return false;
+    }
+
+    documents.set(id, null);
+    tombstones++;
+    generation++;
+    if (tombstones >= MIN_COMPACTED_TOMBSTONES && tombstones * 2 >= documents.size()) {
+      compact();
+    }
+    return true;
+  }
+
+  /** Returns whether the document is in the index. */
+  boolean contains(T document) {
+    return documentIds.containsKey(document);
+  }
+
+  /**
+   * Returns the documents indexed under all of the keywords, in the order in which they were added,
+   * or no documents if no keywords are specified. A replaced document counts as newly added.
+   */
+  List<T> search(Iterable<String> keywords) {
+    return getDocuments(searchIds(keywords));
+  }
+
+  /**
+   * Returns the ascending ids of the documents indexed under all of the keywords, which are only
+   * valid until the {@link #getGeneration generation} of the index changes.
+   */
+  int[] searchIds(Iterable<String> keywords) {
+    List<Postings> lists = getPostings(keywords);
+    if (lists == null || lists.isEmpty()) {
+      return NO_IDS;
+    }
+
+    // Start from the shortest list, which bounds the size of the result.
+    Collections.sort(lists, SHORTEST_FIRST);
+
+    int[] matches = new int[lists.get(0).size];
+    System.arraycopy(lists.get(0).ids, 0, matches, 0, matches.length);
+    return intersectAll(matches, matches.length, lists, 1);
+  }
+
+  /**
+   * Returns the ids among {@code ids} of the documents which are also indexed under all of the
+   * keywords, such as the results of a query which is being extended with more keywords.
+   *
+   * @param ids Ascending ids returned by {@link #searchIds} in the current generation.
+   */
+  int[] refine(int[] ids, Iterable<String> keywords) {
+    List<Postings> lists = getPostings(keywords);
+    if (lists == null) {
+      return NO_IDS;
+    }
+    Collections.sort(lists, SHORTEST_FIRST);
+    int[] matches = new int[ids.length];
+    System.arraycopy(ids, 0, matches, 0, ids.length);
+    return intersectAll(matches, matches.length, lists, 0);
+  }
+
+  /**
+   * Returns the documents with the ids, skipping removed documents.
+   */
+  List<T> getDocuments(int[] ids) {
+    ImmutableList.Builder<T> results = ImmutableList.builder();
+    for (int id : ids) {
+      T document = documents.get(id);
+      if (document != null) {
+        results.add(document);
+      }
+    }
+    return results.build();
+  }
+
+  /**
+   * Returns the number of changes made to the index, which invalidates the ids and the results of
+   * earlier searches whenever it changes.
+   */
+  int getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Returns the posting lists of the keywords, or {@code null} if a keyword is not in the index.
+   */
+  private List<Postings> getPostings(Iterable<String> keywords) {
+    List<Postings> lists = Lists.newArrayList();
+    for (String keyword : keywords) {
+      Postings list = postings.get(keyword);
+      if (list == null) {
+        return null;
+      }
+      lists.add(list);
+    }
+    return lists;
+  }
+
+  /**
+   * Intersect the first {@code count} ids of {@code matches} with the lists from {@code from} on,
+   * and return the ids which are left.
+   */
+  private static int[] intersectAll(int[] matches, int count, List<Postings> lists, int from) {
+    int matchCount = count;
+    for (int i = from; i < lists.size() && matchCount > 0; i++) {
+      matchCount = intersect(matches, matchCount, lists.get(i));
+    }
+    if (matchCount == matches.length) {
+      return matches;
+    }
+    int[] result = new int[matchCount];
+    System.arraycopy(matches, 0, result, 0, matchCount);
+    return result;
+  }
+
+  /**
+   * Add all of the documents of another index, under the same keywords.
+   */
+  void addAll(PostingListIndex<T> other) {
+    for (Map.Entry<String, Postings> entry : other.postings.entrySet()) {
+      List<String> keyword = ImmutableList.of(entry.getKey());
+      Postings list = entry.getValue();
+      for (int i = 0; i < list.size; i++) {
+        T document = other.documents.get(list.ids[i]);
+        if (document != null) {
+          add(document, keyword);
+        }
+      }
+    }
+  }
+
+  /**
+   * Give the remaining documents consecutive ids, and drop the removed documents and the keywords
+   * which no longer have any documents from the posting lists. The order of the documents is kept.
+   */
+  void compact() {
+    if (tombstones == 0) {
+      return;
+    }
+
+    int[] newIds = new int[documents.size()];
+    int live = 0;
+    for (int id = 0; id < documents.size(); id++) {
+      T document = documents.get(id);
+      newIds[id] = document == null ? -1 : live;
+      if (document != null) {
+        documents.set(live, document);
+        documentIds.put(document, live++);
+      }
+    }
+    documents.subList(live, documents.size()).clear();
+    tombstones = 0;
+    generation++;
+
+    // The new ids keep the order of the old ones, so the lists stay sorted.
+    for (Iterator<Postings> lists = postings.values().iterator(); lists.hasNext();) {
+      Postings list = lists.next();
+      int kept = 0;
+      for (int i = 0; i < list.size; i++) {
+        int id = newIds[list.ids[i]];
+        if (id >= 0) {
+          list.ids[kept++] = id;
+        }
+      }
+      list.size = kept;
+      if (kept == 0) {
+        lists.remove();
+      }
+    }
+  }
+
+  /**
+   * Returns the compact text form of the index, which can be persisted and read back with
+   * {@link #decode}. Documents are written with the descriptors produced by the function, and the
+   * posting lists are written as base 36 differences between consecutive ids. The index is
+   * compacted first.
+   */
+  String encode(Function<? super T, String> descriptors) {
+    compact();
+    StringBuilder out = new StringBuilder();
+    out.append(FORMAT_VERSION).append('\n').append(documents.size()).append('\n');
+    for (T document : documents) {
+      appendEscaped(out, descriptors.apply(document));
+      out.append('\n');
+    }
+    for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+      appendEscaped(out, entry.getKey());
+      out.append('\t');
+      Postings list = entry.getValue();
+      int previous = 0;
+      for (int i = 0; i < list.size; i++) {
+        if (i > 0) {
+          out.append(',');
+        }
+        out.append(Integer.toString(list.ids[i] - previous, 36));
+        previous = list.ids[i];
+      }
+      out.append('\n');
+    }
+    return out.toString();
+  }
+
+  /**
+   * Returns the index read from its text form.
+   *
+   * @param encoded Text produced by {@link #encode}.
+   * @param documents Function which creates a document from its descriptor.
+   * @throws IllegalArgumentException if the text is not a valid encoded index.
+   */
+  static <T> PostingListIndex<T> decode(String encoded, Function<String, ? extends T> documents) {
+    List<String> lines = Lists.newArrayList(LINE_SPLITTER.split(encoded));
+    if (lines.size() < 2 || !FORMAT_VERSION.equals(lines.get(0))) {
+      throw new IllegalArgumentException("Unsupported search index format");
+    }
+
+    PostingListIndex<T> index = new PostingListIndex<T>();
+    try {
+      int documentCount = Integer.parseInt(lines.get(1));
+      int line = 2;
+      for (int i = 0; i < documentCount; i++) {
+        T document = documents.apply(unescape(lines.get(line++)));
+        Preconditions.checkArgument(document != null && !index.documentIds.containsKey(document),
+            "Unknown or repeated document in search index");
+        index.documentIds.put(document, index.documents.size());
+        index.documents.add(document);
+      }
+
+      for (; line < lines.size(); line++) {
+        String entry = lines.get(line);
+        if (entry.isEmpty()) {
+          continue;
+        }
+        int tab = entry.indexOf('\t');
+        Preconditions.checkArgument(tab >= 0, "Invalid search index entry");
+        Postings list = new Postings();
+        int id = 0;
+        for (String delta : POSTING_SPLITTER.split(entry.substring(tab + 1))) {
+          id += Integer.parseInt(delta, 36);
+          Preconditions.checkArgument(id >= 0 && id < documentCount, "Invalid document id");
+          list.add(id);
+        }
+        index.postings.put(unescape(entry.substring(0, tab)), list);
+      }
+    } catch (IndexOutOfBoundsException e) {
+      throw new IllegalArgumentException("Truncated search index", e);
+    }
+    return index;
+  }
+
+  /** Returns the number of distinct documents in the index. */
+  int getDocumentCount() {
+    return documents.size() - tombstones;
+  }
+
+  /** Returns the number of removed documents which are still in the posting lists. */
+  int getTombstoneCount() {
+    return tombstones;
+  }
+
+  /**
+   * Returns the number of distinct keywords in the index, including the keywords of removed
+   * documents until the index is compacted.
+   */
+  int getKeywordCount() {
+    return postings.size();
+  }
+
+  /**
+   * Returns the total number of entries in the posting lists, including the entries of removed
+   * documents until the index is compacted.
+   */
+  int getPostingCount() {
+    int count = 0;
+    for (Postings list : postings.values()) {
+      count += list.size;
+    }
+    return count;
+  }
+
+  private static void appendEscaped(StringBuilder out, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '\\':
+          out.append("\\\\");
+          break;
+        case '\n':
+          out.append("\\n");
+          break;
+        case '\t':
+          out.append("\\t");
+          break;
+        default:
+          out.append(c);
+          break;
+      }
+    }
+  }
+
+  private static String unescape(String value) {
+    if (value.indexOf('\\') < 0) {
+      return value;
+    }
+
+    StringBuilder out = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\\') {
+        char escaped = value.charAt(++i);
+        out.append(escaped == 'n' ? '\n' : escaped == 't' ? '\t' : escaped);
+      } else {
+        out.append(c);
+      }
+    }
+    return out.toString();
+  }
+
+  /**
+   * Keep only the first {@code count} ids of {@code matches} which are also in {@code list},
+   * compacting them at the start of the array.
+   *
+   * @return The number of ids kept.
+   */
+  static int intersect(int[] matches, int count, Postings list) {
+    int kept = 0;
+    int from = 0;
+    for (int i = 0; i < count && from < list.size; i++) {
+      from = gallop(list.ids, from, list.size, matches[i]);
+      if (from < list.size && list.ids[from] == matches[i]) {
+        matches[kept++] = matches[i];
+        from++;
+      }
+    }
+    return kept;
+  }
+
+  /**
+   * Returns the index of the first id in {@code ids[from, to)} which is not less than the target,
+   * or {@code to} if there is none. The range is probed at exponentially increasing distances and
+   * then searched by bisection, so the cost depends on how far the result is from {@code from}.
+   */
+  static int gallop(int[] ids, int from, int to, int target) {
+    if (from >= to || ids[from] >= target) {
+      return from;
+    }
+
+    // ids[low] < target, find a bound past the target.
+    int low = from;
+    int step = 1;
+    int high = from + step;
+    while (high < to && ids[high] < target) {
+      low = high;
+      step <<= 1;
+      high = from + step;
+    }
+    if (high > to) {
+      high = to;
+    }
+
+    // ids[low] < target <= ids[high], where ids[to] counts as past the target.
+    while (high - low > 1) {
+      int mid = (low + high) >>> 1;
+      if (ids[mid] < target) {
+        low = mid;
+      } else {
+        high = mid;
+      }
+    }
+    return high;
+  }
+
+  /**
+   * Sorted, growable array of the ids of the documents which contain a keyword.
+   */
+  static class Postings {
+    int[] ids = new int[INITIAL_POSTINGS_CAPACITY];
+    int size = 0;
+
+    /**
+     * Add the id, unless it is already present. Ids of new documents are always the largest, so
+     * they are appended, only re-indexed documents need to be inserted.
+     *
+     * @return Whether the id was added.
+     */
+    boolean add(int id) {
+      int position = size > 0 && ids[size - 1] < id ? size : gallop(ids, 0, size, id);
+      if (position < size && ids[position] == id) {
+        return false;
+      }
+
+      if (size == ids.length) {
+        int[] grown = new int[ids.length * 2];
+        System.arraycopy(ids, 0, grown, 0, size);
+        ids = grown;
+      }
+      System.arraycopy(ids, position, ids, position + 1, size - position);
+      ids[position] = id;
+      size++;
+      return true;
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.search;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bounded memo of the results of recent queries against an index, for searches which are repeated
+ * or extended as the user types.
+ *
+ * <p>
+ * A query which was evaluated recently is answered from the memo. A query which extends a recent
+ * query with more keywords only intersects the results of that query with the posting lists of the
+ * new keywords, rather than starting over from the whole index. The memo holds document ids, so it
+ * is cleared whenever the generation of the index changes.
+ * </p>
+ *
+ * @param <T> Type of the indexed documents.
+ */
+class QueryCache<T> {
+  /** Default number of queries remembered. */
+  static final int DEFAULT_MAX_QUERIES = 16;
+
+  private final PostingListIndex<T> index;
+  private final Map<Set<String>, int[]> results;
+  private int generation;
+  private int hitCount = 0;
+  private int refinementCount = 0;
+
+  /**
+   * Create a cache.
+   *
+   * @param index Index against which the queries are evaluated.
+   * @param maxQueries Number of queries remembered.
+   */
+  QueryCache(PostingListIndex<T> index, final int maxQueries) {
+    Preconditions.checkArgument(maxQueries > 0);
+    this.index = Preconditions.checkNotNull(index);
+    this.generation = index.getGeneration();
+    this.results = new LinkedHashMap<Set<String>, int[]>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Set<String>, int[]> eldest) {
+        return size() > maxQueries;
+      }
+    };
+  }
+
+  /**
+   * Returns the documents indexed under all of the keywords, in the order of
+   * {@link PostingListIndex#search}.
+   */
+  List<T> search(Iterable<String> keywords) {
+    Set<String> query = ImmutableSet.copyOf(keywords);
+    if (query.isEmpty()) {
+      return ImmutableList.of();
+    }
+    if (generation != index.getGeneration()) {
+      results.clear();
+      generation = index.getGeneration();
+    }
+
+    int[] ids = results.get(query);
+    if (ids != null) {
+      hitCount++;
+      return index.getDocuments(ids);
+    }
+
+    // Refine the most specific remembered query which this one extends, if there is one.
+    Set<String> base = null;
+    for (Set<String> remembered : results.keySet()) {
+      if ((base == null || remembered.size() > base.size()) && query.containsAll(remembered)) {
+        base = remembered;
+      }
+    }
+    if (base != null) {
+      refinementCount++;
+      ids = index.refine(results.get(base), Sets.difference(query, base));
+    } else {
+      ids = index.searchIds(query);
+    }
+
+    results.put(query, ids);
+    return index.getDocuments(ids);
+  }
+
+  /** Returns the number of queries answered from the memo. */
+  int getHitCount() {
+    return hitCount;
+  }
+
+  /** Returns the number of queries answered by refining the results of an earlier query. */
+  int getRefinementCount() {
+    return refinementCount;
+  }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.search;
+
+import com.google.api.explorer.client.base.ApiMethod;
+import com.google.api.explorer.client.base.ApiService;
+import com.google.api.explorer.client.base.Schema;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index from the names of the fields of request and response schemas to the methods which use
+ * them, so that searching for a field such as "shortUrl" finds the methods which return it.
+ *
+ * <p>
+ * The fields are indexed once per named schema rather than once per method: each keyword maps to
+ * the schemas which declare the field, either directly or in an inline schema, and each schema
+ * maps to the schemas which reference it and to the methods which use it. A search follows the
+ * references back from the schemas which declare the field, so a schema used by many methods, or
+ * nested in many other schemas, does not repeat its fields. All of the lists are stored as
+ * {@link CompressedPostings}.
+ * </p>
+ *
+ * <p>
+ * Field names are indexed in lower case, like every other keyword of the search index, and the
+ * keyword searched for is lower cased before it is looked up, so "shortUrl", "shorturl" and
+ * "SHORTURL" all find the same methods.
+ * </p>
+ *
+ * @param <T> Type of the indexed methods.
+ */
+class SchemaFieldIndex<T> {
+  /**
+   * Field keywords declared by a named schema, and the names of the schemas it references.
+   */
+  static class SchemaFields {
+    private final Set<String> fieldKeywords = Sets.newHashSet();
+    private final Set<String> references = Sets.newHashSet();
+
+    SchemaFields addField(String fieldName) {
+      fieldKeywords.add(fieldName.toLowerCase());
+      return this;
+    }
+
+    SchemaFields addReference(String schemaName) {
+      references.add(schemaName);
+      return this;
+    }
+  }
+
+  private final List<T> methods;
+  private final Map<String, CompressedPostings> keywordSchemas = Maps.newHashMap();
+  private final CompressedPostings[] referencingSchemas;
+  private final CompressedPostings[] schemaMethods;
+
+  /**
+   * Create the index.
+   *
+   * @param schemas Fields and references of each named schema.
+   * @param methodSchemas Names of the request and response schemas of each method. Methods are
+   *        returned in the iteration order of the map.
+   */
+  SchemaFieldIndex(
+      Map<String, SchemaFields> schemas, Map<T, ? extends Iterable<String>> methodSchemas) {
+    // Schemas are numbered by name, references to unknown schemas are ignored.
+    List<String> names = Lists.newArrayList(schemas.keySet());
+    Collections.sort(names);
+    Map<String, Integer> schemaIds = Maps.newHashMap();
+    for (String name : names) {
+      schemaIds.put(name, schemaIds.size());
+    }
+
+    Map<String, List<Integer>> keywordLists = Maps.newHashMap();
+    List<List<Integer>> referencingLists = newLists(names.size());
+    for (int id = 0; id < names.size(); id++) {
+      SchemaFields fields = schemas.get(names.get(id));
+      for (String keyword : fields.fieldKeywords) {
+        List<Integer> list = keywordLists.get(keyword);
+        if (list == null) {
+          list = Lists.newArrayList();
+          keywordLists.put(keyword, list);
+        }
+        list.add(id);
+      }
+      for (String reference : fields.references) {
+        Integer referenced = schemaIds.get(reference);
+        if (referenced != null && referenced != id) {
+          referencingLists.get(referenced).add(id);
+        }
+      }
+    }
+
+    methods = ImmutableList.copyOf(methodSchemas.keySet());
+    List<List<Integer>> methodLists = newLists(names.size());
+    for (int methodId = 0; methodId < methods.size(); methodId++) {
+      for (String name : Sets.newHashSet(methodSchemas.get(methods.get(methodId)))) {
+        Integer schemaId = schemaIds.get(name);
+        if (schemaId != null) {
+          methodLists.get(schemaId).add(methodId);
+        }
+      }
+    }
+
+    for (Map.Entry<String, List<Integer>> entry : keywordLists.entrySet()) {
+      keywordSchemas.put(entry.getKey(), compress(entry.getValue()));
+    }
+    referencingSchemas = new CompressedPostings[names.size()];
+    schemaMethods = new CompressedPostings[names.size()];
+    for (int id = 0; id < names.size(); id++) {
+      referencingSchemas[id] = compress(referencingLists.get(id));
+      schemaMethods[id] = compress(methodLists.get(id));
+    }
+  }
+
+  /**
+   * Returns the index of the fields of the schemas of a service.
+   */
+  static SchemaFieldIndex<ApiMethod> forService(ApiService service) {
+    Map<String, SchemaFields> schemas = Maps.newHashMap();
+    for (Map.Entry<String, Schema> schema : Objects.firstNonNull(
+        service.getSchemas(), Collections.<String, Schema>emptyMap()).entrySet()) {
+      SchemaFields fields = new SchemaFields();
+      addFields(schema.getValue(), fields);
+      schemas.put(schema.getKey(), fields);
+    }
+
+    Map<ApiMethod, List<String>> methodSchemas = Maps.newLinkedHashMap();
+    for (ApiMethod method : service.allMethods().values()) {
+      List<String> names = Lists.newArrayListWithCapacity(2);
+      addName(service.requestSchema(method), names);
+      addName(service.responseSchema(method), names);
+      methodSchemas.put(method, names);
+    }
+    return new SchemaFieldIndex<ApiMethod>(schemas, methodSchemas);
+  }
+
+  /**
+   * Returns the methods whose request or response contains a field with the keyword as its name,
+   * at any depth. Field names are matched regardless of case.
+   */
+  List<T> search(String keyword) {
+    CompressedPostings declaring = keywordSchemas.get(keyword.toLowerCase());
+    if (declaring == null) {
+      return ImmutableList.of();
+    }
+
+    // Follow the references back to every schema which contains a declaring schema.
+    boolean[] containing = new boolean[schemaMethods.length];
+    int[] pending = new int[schemaMethods.length];
+    int pendingCount = 0;
+    for (int id : declaring.decode()) {
+      containing[id] = true;
+      pending[pendingCount++] = id;
+    }
+    while (pendingCount > 0) {
+      for (int id : referencingSchemas[pending[--pendingCount]].decode()) {
+        if (!containing[id]) {
+          containing[id] = true;
+          pending[pendingCount++] = id;
+        }
+      }
+    }
+
+    boolean[] matching = new boolean[methods.size()];
+    for (int id = 0; id < containing.length; id++) {
+      if (containing[id]) {
+        for (int methodId : schemaMethods[id].decode()) {
+          matching[methodId] = true;
+        }
+      }
+    }
+    ImmutableList.Builder<T> results = ImmutableList.builder();
+    for (int methodId = 0; methodId < matching.length; methodId++) {
+      if (matching[methodId]) {
+        results.add(methods.get(methodId));
+      }
+    }
+    return results.build();
+  }
+
+  /** Returns the number of distinct field keywords in the index. */
+  int getKeywordCount() {
+    return keywordSchemas.size();
+  }
+
+  /** Returns the number of bytes taken by the encoded posting lists. */
+  int getPostingByteCount() {
+    int count = 0;
+    for (CompressedPostings list : keywordSchemas.values()) {
+      count += list.getByteCount();
+    }
+    for (int id = 0; id < schemaMethods.length; id++) {
+      count += referencingSchemas[id].getByteCount() + schemaMethods[id].getByteCount();
+    }
+    return count;
+  }
+
+  /**
+   * Add the fields of the schema and of the schemas nested inline in it, and the names of the
+   * schemas they reference, which are indexed on their own.
+   */
+  private static void addFields(Schema schema, SchemaFields fields) {
+    if (schema == null) {
+      return;
+    }
+    if (schema.getRef() != null) {
+      fields.addReference(schema.getRef());
+      return;
+    }
+
+    Map<String, Schema> properties = schema.getProperties();
+    if (properties != null) {
+      for (Map.Entry<String, Schema> property : properties.entrySet()) {
+        fields.addField(property.getKey());
+        addFields(property.getValue(), fields);
+      }
+    }
+    addFields(schema.getItems(), fields);
+    addFields(schema.getAdditionalProperties(), fields);
+  }
+
+  private static void addName(Schema schema, List<String> names) {
+    if (schema != null) {
+      String name = schema.getRef() != null ? schema.getRef() : schema.getId();
+      if (name != null) {
+        names.add(name);
+      }
+    }
+  }
+
+  private static List<List<Integer>> newLists(int count) {
+    List<List<Integer>> lists = Lists.newArrayListWithCapacity(count);
+    for (int i = 0; i < count; i++) {
+      lists.add(Lists.<Integer>newArrayList());
+    }
+    return lists;
+  }
+
+  /** Returns the compressed form of a list of ascending ids. */
+  private static CompressedPostings compress(List<Integer> ids) {
+    int[] array = new int[ids.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = ids.get(i);
+    }
+    return CompressedPostings.of(array, array.length);
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.search;
+
+import com.google.api.explorer.client.history.HistoryStorage;
+import com.google.common.base.Function;
+import com.google.common.base.Preconditions;
+
+/**
+ * Persists the search index between sessions, so that search is available at startup without
+ * loading every discovery document again.
+ *
+ * <p>
+ * The index is stored as one segment per source, such as a discovery document, tagged with the
+ * ETag of the source when it was indexed. At startup the stored segments whose ETag still matches
+ * the directory are merged into the index, and only the sources which changed need to be loaded
+ * and indexed again. The storage is treated as a cache: segments which do not fit or cannot be read
+ * are simply rebuilt.
+ * </p>
+ *
+ * @param <T> Type of the indexed documents.
+ */
+class SearchIndexStore<T> {
+  private static final String PREFIX = "explorer.search.";
+  private static final char ETAG_SEPARATOR = '\n';
+
+  private final HistoryStorage storage;
+  private final Function<? super T, String> encoder;
+  private final Function<String, ? extends T> decoder;
+
+  /**
+   * Create a store.
+   *
+   * @param storage Key value storage in which to persist the segments.
+   * @param encoder Function which returns the descriptor of a document.
+   * @param decoder Function which returns the document of a descriptor, or {@code null} if the
+   *        document no longer exists.
+   */
+  SearchIndexStore(HistoryStorage storage, Function<? super T, String> encoder,
+      Function<String, ? extends T> decoder) {
+    this.storage = Preconditions.checkNotNull(storage);
+    this.encoder = Preconditions.checkNotNull(encoder);
+    this.decoder = Preconditions.checkNotNull(decoder);
+  }
+
+  /**
+   * Returns the stored segment of the source, or {@code null} if none was stored for the current
+   * ETag of the source.
+   */
+  PostingListIndex<T> load(String sourceId, String etag) {
+    String stored = storage.getItem(PREFIX + sourceId);
+    if (stored == null) {
+      return null;
+    }
+
+    int separator = stored.indexOf(ETAG_SEPARATOR);
+    if (separator < 0 || !stored.substring(0, separator).equals(etag)) {
+      return null;
+    }
+
+    try {
+      return PostingListIndex.decode(stored.substring(separator + 1), decoder);
+    } catch (IllegalArgumentException e) {
+      // Written by an incompatible version or for documents which are gone, rebuild it.
+      storage.removeItem(PREFIX + sourceId);
+      return null;
+    }
+  }
+
+  /**
+   * Store the segment of the source, replacing any segment stored for an earlier ETag.
+   *
+   * @return Whether the segment was stored, which fails when the storage is full.
+   */
+  boolean save(String sourceId, String etag, PostingListIndex<T> segment) {
+    Preconditions.checkArgument(etag.indexOf(ETAG_SEPARATOR) < 0);
+    try {
+      storage.setItem(PREFIX + sourceId, etag + ETAG_SEPARATOR + segment.encode(encoder));
+      return true;
+    } catch (RuntimeException e) {
+      storage.removeItem(PREFIX + sourceId);
+      return false;
+    }
+  }
+
+  /**
+   * Remove the segment of a source which no longer exists.
+   */
+  void remove(String sourceId) {
+    storage.removeItem(PREFIX + sourceId);
+  }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.search;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Orders search results by relevance to the query, using field weighted BM25 scoring.
+ *
+ * <p>
+ * The frequency of each query keyword in the name and description of a document is weighted by the
+ * field, normalized by the length of the field, and scaled by how rare the keyword is across all
+ * documents, so matches in names count for more than matches in descriptions. A document whose id
+ * is exactly the query ranks above all others. Only the requested page of results is kept in a
+ * bounded heap while the candidates are scored, so the whole result set is never sorted.
+ * </p>
+ *
+ * @param <T> Type of the ranked documents, which must implement equality.
+ */
+class SearchRanker<T> {
+  /** Fields of a document, with the weight of a keyword occurrence in each. */
+  enum Field {
+    NAME(3.0),
+    DESCRIPTION(1.0);
+
+    private final double weight;
+
+    Field(double weight) {
+      this.weight = weight;
+    }
+  }
+
+  /** Score added to the document whose id is the query. */
+  static final double EXACT_ID_SCORE = 1000;
+
+  /** Saturation of the keyword frequency. */
+  private static final double K1 = 1.2;
+
+  /** Strength of the normalization by the length of the field. */
+  private static final double B = 0.75;
+
+  /**
+   * Page of ranked results.
+   */
+  static class Page<T> {
+    private final List<T> results;
+    private final int totalMatches;
+    private final int offset;
+
+    Page(List<T> results, int totalMatches, int offset) {
+      this.results = results;
+      this.totalMatches = totalMatches;
+      this.offset = offset;
+    }
+
+    /** Returns the results on the page, most relevant first. */
+    List<T> getResults() {
+      return results;
+    }
+
+    /** Returns the number of candidates, on all pages. */
+    int getTotalMatches() {
+      return totalMatches;
+    }
+
+    /** Returns whether there are results after this page. */
+    boolean hasMore() {
+      return offset + results.size() < totalMatches;
+    }
+  }
+
+  private final Map<T, DocumentStats> documents = Maps.newHashMap();
+  private final Map<String, Integer> documentFrequencies = Maps.newHashMap();
+  private final long[] totalFieldLengths = new long[Field.values().length];
+
+  /**
+   * Add the statistics of a document. A document which is added again replaces its statistics.
+   *
+   * @param document Document to add.
+   * @param id Identifier of the document, such as the method id, which the query may match exactly.
+   * @param fieldKeywords Keywords of each field of the document, including repeated keywords.
+   */
+  void add(T document, String id, Map<Field, ? extends Iterable<String>> fieldKeywords) {
+    Preconditions.checkNotNull(document);
+    subtract(documents.get(document));
+
+    DocumentStats stats = new DocumentStats(id);
+    for (Map.Entry<Field, ? extends Iterable<String>> field : fieldKeywords.entrySet()) {
+      int ordinal = field.getKey().ordinal();
+      for (String keyword : field.getValue()) {
+        int[] frequencies = stats.frequencies.get(keyword);
+        if (frequencies == null) {
+          frequencies = new int[Field.values().length];
+          stats.frequencies.put(keyword, frequencies);
+        }
+        frequencies[ordinal]++;
+        stats.fieldLengths[ordinal]++;
+      }
+    }
+
+    documents.put(document, stats);
+    for (String keyword : stats.frequencies.keySet()) {
+      Integer frequency = documentFrequencies.get(keyword);
+      documentFrequencies.put(keyword, frequency == null ? 1 : frequency + 1);
+    }
+    for (int i = 0; i < totalFieldLengths.length; i++) {
+      totalFieldLengths[i] += stats.fieldLengths[i];
+    }
+  }
+
+  /**
+   * Returns a page of the candidates ordered by relevance. Candidates which were never added score
+   * zero, and candidates with equal scores keep the order in which they are given.
+   *
+   * @param candidates Documents which match the query.
+   * @param keywords Keywords of the query.
+   * @param query Text of the query, which is compared with the ids of the documents.
+   * @param offset Number of results to skip.
+   * @param limit Maximum number of results on the page.
+   */
+  Page<T> rank(
+      Iterable<T> candidates, List<String> keywords, String query, int offset, int limit) {
+    Preconditions.checkArgument(offset >= 0 && limit >= 0);
+    int keep = offset + limit;
+
+    // Min-heap of the best results so far, whose head is the worst of them.
+    PriorityQueue<Scored<T>> best = new PriorityQueue<Scored<T>>(
+        Math.max(1, Math.min(keep, 1024)), new Comparator<Scored<T>>() {
+          @Override
+          public int compare(Scored<T> a, Scored<T> b) {
+            return -compareRelevance(a, b);
+          }
+        });
+
+    double[] idfs = new double[keywords.size()];
+    for (int i = 0; i < idfs.length; i++) {
+      idfs[i] = idf(keywords.get(i));
+    }
+    double[] averageLengths = new double[totalFieldLengths.length];
+    for (int i = 0; i < averageLengths.length; i++) {
+      averageLengths[i] =
+          documents.isEmpty() ? 0 : (double) totalFieldLengths[i] / documents.size();
+    }
+
+    int sequence = 0;
+    for (T candidate : candidates) {
+      Scored<T> scored = new Scored<T>(
+          candidate, score(documents.get(candidate), keywords, idfs, averageLengths, query),
+          sequence++);
+      if (best.size() < keep) {
+        best.add(scored);
+      } else if (keep > 0 && compareRelevance(scored, best.peek()) < 0) {
+        best.poll();
+        best.add(scored);
+      }
+    }
+
+    List<Scored<T>> ordered = Lists.newArrayList(best);
+    Collections.sort(ordered, new Comparator<Scored<T>>() {
+      @Override
+      public int compare(Scored<T> a, Scored<T> b) {
+        return compareRelevance(a, b);
+      }
+    });
+
+    ImmutableList.Builder<T> page = ImmutableList.builder();
+    for (int i = offset; i < ordered.size(); i++) {
+      page.add(ordered.get(i).document);
+    }
+    return new Page<T>(page.build(), sequence, offset);
+  }
+
+  /**
+   * Compares two results, more relevant results first.
+   */
+  private static int compareRelevance(Scored<?> a, Scored<?> b) {
+    if (a.score != b.score) {
+      return a.score > b.score ? -1 : 1;
+    }
+    return a.sequence - b.sequence;
+  }
+
+  private double score(DocumentStats stats, List<String> keywords, double[] idfs,
+      double[] averageLengths, String query) {
+    if (stats == null) {
+      return 0;
+    }
+
+    double score = stats.id != null && stats.id.equalsIgnoreCase(query) ? EXACT_ID_SCORE : 0;
+    for (int i = 0; i < keywords.size(); i++) {
+      int[] frequencies = stats.frequencies.get(keywords.get(i));
+      if (frequencies == null) {
+        continue;
+      }
+
+      double weightedFrequency = 0;
+      for (Field field : Field.values()) {
+        int ordinal = field.ordinal();
+        if (frequencies[ordinal] > 0) {
+          double relativeLength = averageLengths[ordinal] == 0 ? 1
+              : stats.fieldLengths[ordinal] / averageLengths[ordinal];
+          weightedFrequency +=
+              field.weight * frequencies[ordinal] / (1 - B + B * relativeLength);
+        }
+      }
+      score += idfs[i] * weightedFrequency / (K1 + weightedFrequency);
+    }
+    return score;
+  }
+
+  /**
+   * Returns the inverse document frequency of the keyword, which is always positive.
+   */
+  private double idf(String keyword) {
+    Integer frequency = documentFrequencies.get(keyword);
+    int n = frequency == null ? 0 : frequency;
+    return Math.log(1 + (documents.size() - n + 0.5) / (n + 0.5));
+  }
+
+  /**
+   * Remove the statistics of a document, such as a history item which was evicted.
+   *
+   * @return Whether the document had been added.
+   */
+  boolean remove(T document) {
+    DocumentStats stats = documents.remove(document);
+    subtract(stats);
+    return stats != null;
+  }
+
+  /**
+   * Returns the number of documents whose statistics were added.
+   */
+  int getDocumentCount() {
+    return documents.size();
+  }
+
+  private void subtract(DocumentStats stats) {
+    if (stats == null) {
+      return;
+    }
+    for (String keyword : stats.frequencies.keySet()) {
+      int frequency = documentFrequencies.get(keyword) - 1;
+      if (frequency == 0) {
+        documentFrequencies.remove(keyword);
+      } else {
+        documentFrequencies.put(keyword, frequency);
+      }
+    }
+    for (int i = 0; i < totalFieldLengths.length; i++) {
+      totalFieldLengths[i] -= stats.fieldLengths[i];
+    }
+  }
+
+  /**
+   * Keyword frequencies and field lengths of a document.
+   */
+  private static class DocumentStats {
+    private final String id;
+    private final Map<String, int[]> frequencies = Maps.newHashMap();
+    private final int[] fieldLengths = new int[Field.values().length];
+
+    DocumentStats(String id) {
+      this.id = id;
+    }
+  }
+
+  /**
+   * Candidate with its score and its position among the candidates.
+   */
+  private static class Scored<T> {
+    private final T document;
+    private final double score;
+    private final int sequence;
+
+    Scored(T document, double score, int sequence) {
+      this.document = document;
+      this.score = score;
+      this.sequence = sequence;
+    }
+  }
+}
@@ -20,6 +20,7 @@ import com.google.api.explorer.client.auth.AuthPresenterTest;
 import com.google.api.explorer.client.base.ApiDirectoryTest;
 import com.google.api.explorer.client.base.ApiRequestTest;
 import com.google.api.explorer.client.base.ApiServiceHelperTest;
+import com.google.api.explorer.client.base.LzCodecTest;
 import com.google.api.explorer.client.base.SchemaTest;
 import com.google.api.explorer.client.base.ServiceLoaderTest;
 import com.google.api.explorer.client.base.rest.RestApiRequestTest;
@@ -27,14 +28,34 @@ import com.google.api.explorer.client.base.rest.RestApiServiceTest;
 import com.google.api.explorer.client.base.rpc.RpcApiServiceTest;
 import com.google.api.explorer.client.editors.EditorFactoryTest;
 import com.google.api.explorer.client.embedded.EmbeddedParameterFormPresenterTest;
+import com.google.api.explorer.client.history.ErrorCaseTest;
+import com.google.api.explorer.client.history.ExplorerLinkCacheTest;
+import com.google.api.explorer.client.history.HistoryCacheTest;
+import com.google.api.explorer.client.history.HistoryRecordTest;
+import com.google.api.explorer.client.history.JsonDiffTest;
+import com.google.api.explorer.client.history.JsonHighlighterTest;
+import com.google.api.explorer.client.history.JsonPathIndexTest;
 import com.google.api.explorer.client.history.JsonPrettifierTest;
+import com.google.api.explorer.client.history.PersistentHistoryTest;
+import com.google.api.explorer.client.history.PrettyDateTest;
+import com.google.api.explorer.client.history.RequestReplayerTest;
+import com.google.api.explorer.client.history.ResponseDisplayPolicyTest;
 import com.google.api.explorer.client.routing.RegexMatchRouterTest;
 import com.google.api.explorer.client.routing.URLBuilderTest;
 import com.google.api.explorer.client.routing.URLFragmentTest;
 import com.google.api.explorer.client.routing.handler.HistoryManagerTest;
 import com.google.api.explorer.client.search.DiscoveryFullTextIndexingStrategyTest;
+import com.google.api.explorer.client.search.IncrementalIndexerTest;
+import com.google.api.explorer.client.search.KeywordCorrectorTest;
 import com.google.api.explorer.client.search.KeywordExtractorTest;
+import com.google.api.explorer.client.search.KeywordScannerTest;
+import com.google.api.explorer.client.search.KeywordTrieTest;
+import com.google.api.explorer.client.search.PostingListIndexTest;
+import com.google.api.explorer.client.search.QueryCacheTest;
+import com.google.api.explorer.client.search.SchemaFieldIndexTest;
 import com.google.api.explorer.client.search.SearchEntryTest;
+import com.google.api.explorer.client.search.SearchIndexStoreTest;
+import com.google.api.explorer.client.search.SearchRankerTest;
 import com.google.api.explorer.client.search.SearchResultIndexTest;
 
 import junit.framework.Test;
@@ -60,11 +81,32 @@ public class JUnitTests extends TestSuite {
     suite.addTestSuite(URLBuilderTest.class);
     suite.addTestSuite(URLFragmentTest.class);
     suite.addTestSuite(JsonPrettifierTest.class);
+    suite.addTestSuite(ErrorCaseTest.class);
+    suite.addTestSuite(ExplorerLinkCacheTest.class);
+    suite.addTestSuite(HistoryCacheTest.class);
+    suite.addTestSuite(HistoryRecordTest.class);
+    suite.addTestSuite(PersistentHistoryTest.class);
+    suite.addTestSuite(PrettyDateTest.class);
+    suite.addTestSuite(RequestReplayerTest.class);
+    suite.addTestSuite(JsonPathIndexTest.class);
+    suite.addTestSuite(JsonDiffTest.class);
+    suite.addTestSuite(JsonHighlighterTest.class);
+    suite.addTestSuite(ResponseDisplayPolicyTest.class);
     suite.addTestSuite(KeywordExtractorTest.class);
+    suite.addTestSuite(KeywordTrieTest.class);
     suite.addTestSuite(ApiServiceHelperTest.class);
+    suite.addTestSuite(LzCodecTest.class);
     suite.addTestSuite(EmbeddedParameterFormPresenterTest.class);
+    suite.addTestSuite(PostingListIndexTest.class);
     suite.addTestSuite(SearchEntryTest.class);
     suite.addTestSuite(SearchResultIndexTest.class);
+    suite.addTestSuite(SearchRankerTest.class);
+    suite.addTestSuite(IncrementalIndexerTest.class);
+    suite.addTestSuite(SearchIndexStoreTest.class);
+    suite.addTestSuite(KeywordCorrectorTest.class);
+    suite.addTestSuite(KeywordScannerTest.class);
+    suite.addTestSuite(QueryCacheTest.class);
+    suite.addTestSuite(SchemaFieldIndexTest.class);
     suite.addTestSuite(ServiceLoaderTest.class);
     suite.addTestSuite(SchemaTest.class);
     return suite;
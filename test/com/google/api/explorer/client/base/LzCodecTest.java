@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.base;
+
+import com.google.common.base.Strings;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Tests for the string compression codec.
+ *
+ */
+public class LzCodecTest extends TestCase {
+
+  /** Test that short and degenerate strings survive a round trip. */
+  public void testRoundTrip() {
+    assertRoundTrip("");
+    assertRoundTrip("a");
+    assertRoundTrip("aaaaaaaaaaaaaaaaaaaa");
+    assertRoundTrip("abababababababababab");
+    assertRoundTrip("{\"error\": {\"code\": 404, \"message\": \"Not Found\"}}");
+    assertRoundTrip("\u00e9t\u00e9 \u65e5\u672c \ud83d\ude00 \u0000\uffff");
+  }
+
+  /** Test that random strings over alphabets of different sizes survive a round trip. */
+  public void testRandomRoundTrip() {
+    Random random = new Random(42);
+    for (int i = 0; i < 200; i++) {
+      int alphabet = 1 + random.nextInt(i % 2 == 0 ? 26 : 0xFFFF);
+      StringBuilder sb = new StringBuilder();
+      for (int j = random.nextInt(2000); j > 0; j--) {
+        sb.append((char) ('a' + random.nextInt(alphabet)));
+      }
+      assertRoundTrip(sb.toString());
+    }
+  }
+
+  /** Test that repetitive JSON compresses well. */
+  public void testJsonCompresses() {
+    String json = Strings.repeat("{\"kind\": \"plus#person\", \"displayName\": \"Someone\"}, ", 500);
+    String compressed = LzCodec.compress(json);
+    assertTrue(compressed.length() * 10 < json.length());
+    assertEquals(json, LzCodec.decompress(compressed));
+  }
+
+  /** Test that compressing a slice at a time gives the same result as compressing at once. */
+  public void testSlicedCompression() {
+    String json = Strings.repeat("{\"kind\": \"plus#person\", \"displayName\": \"Someone\"}, ", 50);
+    LzCodec.Compressor compressor = new LzCodec.Compressor(json);
+    int slices = 0;
+    while (!compressor.compress(100)) {
+      assertEquals(++slices * 100, compressor.getPosition());
+    }
+    assertEquals(json.length() / 100, slices);
+    assertEquals(LzCodec.compress(json), compressor.getCompressed());
+
+    LzCodec.Compressor unfinished = new LzCodec.Compressor(json);
+    unfinished.compress(json.length() - 1);
+    try {
+      unfinished.getCompressed();
+      fail("Expected an exception.");
+    } catch (IllegalStateException e) {
+      // Expected.
+    }
+  }
+
+  /** Test that the compressed form never contains control characters or surrogates. */
+  public void testCompressedCharacters() {
+    String compressed = LzCodec.compress(Strings.repeat("\u0000\n\ud800\uffff", 300));
+    for (int i = 0; i < compressed.length(); i++) {
+      char c = compressed.charAt(i);
+      assertTrue(c >= ' ' && (c < '\ud800' || c > '\udfff'));
+    }
+  }
+
+  /** Test that strings which were not compressed are rejected. */
+  public void testInvalidInput() {
+    String compressed = LzCodec.compress(Strings.repeat("abcdefgh", 100));
+    try {
+      LzCodec.decompress(compressed.substring(0, compressed.length() / 2));
+      fail("Expected an exception.");
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+  }
+
+  private static void assertRoundTrip(String s) {
+    assertEquals(s, LzCodec.decompress(LzCodec.compress(s)));
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.history;
+
+import com.google.api.explorer.client.base.ApiResponse;
+import com.google.api.explorer.client.base.ApiResponse.BodySummary;
+
+import junit.framework.TestCase;
+
+import org.easymock.EasyMock;
+
+/**
+ * Tests for the classification of error payloads.
+ *
+ */
+public class ErrorCaseTest extends TestCase {
+
+  public void testForError() {
+    assertEquals(ErrorCase.NEEDS_AUTH, ErrorCase.forError(401, "Invalid Credentials"));
+    assertEquals(ErrorCase.NOT_FOUND, ErrorCase.forError(404, "not found"));
+    assertEquals(ErrorCase.DEFAULT, ErrorCase.forError(400, "Something else"));
+  }
+
+  /** Test that the error is read from the summary of the response, which parsed the body. */
+  public void testForResponse() {
+    assertEquals(
+        ErrorCase.FORBIDDEN, ErrorCase.forResponse(createResponse(true, 403, "Forbidden")));
+    assertNull(ErrorCase.forResponse(createResponse(false, 0, null)));
+  }
+
+  private static ApiResponse createResponse(boolean error, int code, String message) {
+    BodySummary summary = EasyMock.createMock(BodySummary.class);
+    EasyMock.expect(summary.isError()).andReturn(error).anyTimes();
+    EasyMock.expect(summary.getErrorCode()).andReturn(code).anyTimes();
+    EasyMock.expect(summary.getErrorMessage()).andReturn(message).anyTimes();
+
+    ApiResponse response = EasyMock.createMock(ApiResponse.class);
+    EasyMock.expect(response.getBodySummary()).andReturn(summary).anyTimes();
+    EasyMock.replay(summary, response);
+    return response;
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.history;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+import com.google.api.explorer.client.base.ApiMethod;
+import com.google.api.explorer.client.base.ApiMethod.HttpMethod;
+import com.google.api.explorer.client.base.ApiService;
+import com.google.api.explorer.client.base.TestUrlEncoder;
+import com.google.api.explorer.client.base.UrlEncoder;
+import com.google.api.explorer.client.base.rest.RestApiService;
+import com.google.api.explorer.client.history.ExplorerLinkCache.ExplorerLink;
+import com.google.api.explorer.client.routing.UrlBuilder;
+import com.google.common.collect.Maps;
+
+import junit.framework.TestCase;
+
+import org.easymock.EasyMock;
+
+import java.util.Map;
+
+/**
+ * Tests for the memo of explorer links found in responses.
+ *
+ */
+public class ExplorerLinkCacheTest extends TestCase {
+  private static final String PLUS_BASE_PATH = "/plus/v1/";
+  private static final String PLUS_LINK =
+      "https://www.googleapis.com/plus/v1/people/123456789/activities/public?";
+  private static final String EXPLORER_LINK =
+      "s/plus/v1/plus.activities.list?userId=123456789&collection=public&";
+  private static final String LIST_METHOD_NAME = "plus.activities.list";
+  private static final String LIST_METHOD_PATH = "people/{userId}/activities/{collection}";
+
+  private ApiMethod listActivities;
+  private Map<String, ApiMethod> allActivities;
+  private UrlEncoder originalEncoder;
+
+  @Override
+  public void setUp() {
+    listActivities = EasyMock.createNiceMock(ApiMethod.class);
+    expect(listActivities.getHttpMethod()).andReturn(HttpMethod.GET).anyTimes();
+    expect(listActivities.getPath()).andReturn(LIST_METHOD_PATH).anyTimes();
+    expect(listActivities.getId()).andReturn(LIST_METHOD_NAME).anyTimes();
+    replay(listActivities);
+
+    allActivities = Maps.newHashMap();
+    allActivities.put(LIST_METHOD_NAME, listActivities);
+
+    originalEncoder = UrlBuilder.urlEncoder;
+    UrlBuilder.urlEncoder = new TestUrlEncoder();
+  }
+
+  @Override
+  public void tearDown() {
+    UrlBuilder.urlEncoder = originalEncoder;
+  }
+
+  /** Test that a repeated link is only matched against the methods of the service once. */
+  public void testLinksAreMemoized() {
+    ApiService plusService = createService();
+    expect(plusService.allMethods()).andReturn(allActivities).once();
+    replay(plusService);
+
+    ExplorerLinkCache cache = new ExplorerLinkCache(1, 10);
+    ExplorerLink first = cache.classify(plusService, PLUS_LINK);
+    assertNotNull(first);
+    assertEquals(listActivities, first.getMethod());
+    assertEquals(EXPLORER_LINK, first.getExplorerLink());
+
+    assertSame(first, cache.classify(plusService, PLUS_LINK));
+    assertEquals(1, cache.size(plusService));
+    verify(plusService);
+  }
+
+  /** Test that strings which cannot be links to the service are rejected without matching. */
+  public void testPrefixCheck() {
+    ApiService plusService = createService();
+    replay(plusService);
+
+    ExplorerLinkCache cache = new ExplorerLinkCache(1, 10);
+    assertNull(cache.classify(plusService, "https://www.example.com/plus/v1/people/123"));
+    assertEquals(0, cache.size(plusService));
+    verify(plusService);
+  }
+
+  /** Test that links to the service which do not match any method are remembered as such. */
+  public void testUnmatchedLinks() {
+    ApiService plusService = createService();
+    expect(plusService.allMethods()).andReturn(allActivities).once();
+    replay(plusService);
+
+    ExplorerLinkCache cache = new ExplorerLinkCache(1, 10);
+    String unmatched = "https://www.googleapis.com/plus/v1/unknown";
+    assertNull(cache.classify(plusService, unmatched));
+    assertNull(cache.classify(plusService, unmatched));
+    assertEquals(1, cache.size(plusService));
+    verify(plusService);
+  }
+
+  /** Test that the number of remembered links is bounded. */
+  public void testBounded() {
+    ApiService plusService = createService();
+    expect(plusService.allMethods()).andReturn(allActivities).anyTimes();
+    replay(plusService);
+
+    ExplorerLinkCache cache = new ExplorerLinkCache(1, 2);
+    cache.classify(plusService, PLUS_LINK);
+    cache.classify(plusService, PLUS_LINK + "a=1");
+    cache.classify(plusService, PLUS_LINK + "a=2");
+    assertEquals(2, cache.size(plusService));
+  }
+
+  private ApiService createService() {
+    ApiService service = EasyMock.createNiceMock(RestApiService.class);
+    expect(service.basePath()).andReturn(PLUS_BASE_PATH).anyTimes();
+    expect(service.getName()).andReturn("plus").anyTimes();
+    expect(service.getVersion()).andReturn("v1").anyTimes();
+    return service;
+  }
+}
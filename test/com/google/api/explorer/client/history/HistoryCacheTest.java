@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.history;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+import com.google.api.explorer.client.base.ApiRequest;
+import com.google.api.explorer.client.base.ApiResponse;
+import com.google.api.explorer.client.base.LzCodec;
+import com.google.common.base.Strings;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
+
+import junit.framework.TestCase;
+
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+
+import java.util.List;
+
+/**
+ * Tests for the byte budget of the history cache.
+ *
+ */
+public class HistoryCacheTest extends TestCase {
+  /** Bodies of this length use 40 bytes. */
+  private static final int BODY_LENGTH = 20;
+
+  private final ApiRequest request = EasyMock.createMock(ApiRequest.class);
+  private ApiResponse discardedResponse;
+
+  @Override
+  public void setUp() {
+    discardedResponse = EasyMock.createMock(ApiResponse.class);
+    expect(discardedResponse.getBodyAsString()).andReturn(null).anyTimes();
+    expect(discardedResponse.getCompressedBody()).andReturn(null).anyTimes();
+    expect(discardedResponse.isBodyDiscarded()).andReturn(true).anyTimes();
+    expect(discardedResponse.withoutParsedBody()).andReturn(discardedResponse).anyTimes();
+    replay(request, discardedResponse);
+  }
+
+  /** Test that the bodies of the oldest items are discarded once the budget is exceeded. */
+  public void testOldestBodiesDiscarded() {
+    HistoryCache cache = new HistoryCache(100);
+    ApiResponse first = createResponse();
+    ApiResponse second = createResponse();
+    ApiResponse third = createResponse();
+
+    String firstKey = cache.addHistoryItem(request, first, 0, 1);
+    String secondKey = cache.addHistoryItem(request, second, 1, 2);
+    assertEquals(0, cache.getDiscardedBodyCount());
+    assertEquals(80, cache.getRetainedBodyBytes());
+
+    String thirdKey = cache.addHistoryItem(request, third, 2, 3);
+    assertEquals(3, cache.getItemCount());
+    assertEquals(2, cache.getRetainedBodyCount());
+    assertEquals(1, cache.getDiscardedBodyCount());
+    assertEquals(80, cache.getRetainedBodyBytes());
+
+    // The metadata of the discarded item is kept.
+    HistoryItem discarded = cache.getHistoryItem(firstKey);
+    assertSame(discardedResponse, discarded.getResponse());
+    assertSame(request, discarded.getRequest());
+    assertEquals(0, discarded.getStartTime());
+    assertEquals(1, discarded.getEndTime());
+
+    assertSame(second, cache.getHistoryItem(secondKey).getResponse());
+    assertSame(third, cache.getHistoryItem(thirdKey).getResponse());
+    assertEquals(3, cache.listHistoryItems().size());
+  }
+
+  /** Test that the body of the newest item is kept even when it is larger than the budget. */
+  public void testNewestBodyRetained() {
+    HistoryCache cache = new HistoryCache(10);
+    ApiResponse response = createResponse();
+
+    String key = cache.addHistoryItem(request, response, 0, 1);
+    assertSame(response, cache.getHistoryItem(key).getResponse());
+    assertEquals(1, cache.getRetainedBodyCount());
+    assertEquals(0, cache.getDiscardedBodyCount());
+  }
+
+  /** Test the summary of the memory used. */
+  public void testUsageSummary() {
+    HistoryCache cache = new HistoryCache(3 * 1024 * 1024);
+    assertEquals("0 requests, 0 responses kept using 0.0 MB of 3.0 MB, 0 discarded",
+        cache.getUsageSummary());
+  }
+
+  /** Test that bodies above the threshold are held compressed. */
+  public void testLargeBodiesCompressed() {
+    HistoryCache cache = new HistoryCache(HistoryCache.DEFAULT_BODY_BUDGET_BYTES, 100);
+    String body = Strings.repeat("{\"kind\": \"plus#person\"}, ", 100);
+    String compressedBody = LzCodec.compress(body);
+
+    ApiResponse restored = EasyMock.createMock(ApiResponse.class);
+    ApiResponse compressed = EasyMock.createMock(ApiResponse.class);
+    expect(compressed.getCompressedBody()).andReturn(compressedBody).anyTimes();
+    expect(compressed.withBody(body)).andReturn(restored);
+    ApiResponse response = EasyMock.createMock(ApiResponse.class);
+    expect(response.getBodyAsString()).andReturn(body).anyTimes();
+    expect(response.withoutParsedBody()).andReturn(response).anyTimes();
+    expect(response.withCompressedBody(compressedBody)).andReturn(compressed);
+    replay(restored, compressed, response);
+
+    String key = cache.addHistoryItem(request, response, 0, 1);
+    assertSame(compressed, cache.listHistoryItems().get(0).getResponse());
+    assertEquals(1, cache.getCompressedBodyCount());
+    assertEquals(2L * compressedBody.length(), cache.getRetainedBodyBytes());
+    assertTrue(cache.getCompressionRatio() > 5);
+    assertTrue(cache.getUsageSummary().contains("1 compressed"));
+
+    // The body is decompressed once for the retrieved copy, which is not retained.
+    assertSame(restored, cache.getHistoryItem(key).getResponse());
+    assertSame(compressed, cache.listHistoryItems().get(0).getResponse());
+
+    // Bodies below the threshold are kept as they are.
+    ApiResponse small = createResponse();
+    assertSame(small, cache.getHistoryItem(cache.addHistoryItem(request, small, 1, 2))
+        .getResponse());
+    assertEquals(1, cache.getCompressedBodyCount());
+  }
+
+  /** Test that bodies are compressed by a scheduled command once a scheduler is set. */
+  public void testDeferredCompression() {
+    Capture<RepeatingCommand> command = new Capture<RepeatingCommand>();
+    Scheduler scheduler = EasyMock.createMock(Scheduler.class);
+    scheduler.scheduleIncremental(EasyMock.capture(command));
+    EasyMock.expectLastCall().anyTimes();
+    replay(scheduler);
+
+    HistoryCache cache = new HistoryCache(HistoryCache.DEFAULT_BODY_BUDGET_BYTES, 100);
+    cache.setCompressionScheduler(scheduler);
+    String body = Strings.repeat("{\"kind\": \"plus#person\"}, ", 100);
+    String compressedBody = LzCodec.compress(body);
+
+    ApiResponse compressed = EasyMock.createMock(ApiResponse.class);
+    expect(compressed.getCompressedBody()).andReturn(compressedBody).anyTimes();
+    ApiResponse response = EasyMock.createMock(ApiResponse.class);
+    expect(response.getBodyAsString()).andReturn(body).anyTimes();
+    expect(response.getCompressedBody()).andReturn(null).anyTimes();
+    expect(response.withoutParsedBody()).andReturn(response).anyTimes();
+    expect(response.withCompressedBody(compressedBody)).andReturn(compressed);
+    replay(compressed, response);
+
+    String key = cache.addHistoryItem(request, response, 0, 1);
+    assertSame(response, cache.getHistoryItem(key).getResponse());
+    assertEquals(0, cache.getCompressedBodyCount());
+    assertEquals(2L * body.length(), cache.getRetainedBodyBytes());
+
+    assertFalse(command.getValue().execute());
+    assertSame(compressed, cache.listHistoryItems().get(0).getResponse());
+    assertEquals(1, cache.getCompressedBodyCount());
+    assertEquals(2L * compressedBody.length(), cache.getRetainedBodyBytes());
+  }
+
+  /** Test that a large body is compressed over several runs of the incremental command. */
+  public void testSlicedCompression() {
+    Capture<RepeatingCommand> command = new Capture<RepeatingCommand>();
+    Scheduler scheduler = EasyMock.createMock(Scheduler.class);
+    scheduler.scheduleIncremental(EasyMock.capture(command));
+    replay(scheduler);
+
+    HistoryCache cache = new HistoryCache(HistoryCache.DEFAULT_BODY_BUDGET_BYTES, 100);
+    cache.setCompressionScheduler(scheduler);
+    String body = Strings.repeat("{\"kind\": \"plus#person\"}, ",
+        2 * HistoryCache.COMPRESSION_SLICE_CHARS / 25 + 1);
+    String compressedBody = LzCodec.compress(body);
+
+    ApiResponse compressed = EasyMock.createMock(ApiResponse.class);
+    expect(compressed.getCompressedBody()).andReturn(compressedBody).anyTimes();
+    ApiResponse response = EasyMock.createMock(ApiResponse.class);
+    expect(response.getBodyAsString()).andReturn(body).anyTimes();
+    expect(response.getCompressedBody()).andReturn(null).anyTimes();
+    expect(response.withoutParsedBody()).andReturn(response).anyTimes();
+    expect(response.withCompressedBody(compressedBody)).andReturn(compressed);
+    replay(compressed, response);
+
+    cache.addHistoryItem(request, response, 0, 1);
+    assertTrue(command.getValue().execute());
+    assertTrue(command.getValue().execute());
+    assertSame(response, cache.listHistoryItems().get(0).getResponse());
+
+    assertFalse(command.getValue().execute());
+    assertSame(compressed, cache.listHistoryItems().get(0).getResponse());
+    assertEquals(1, cache.getCompressedBodyCount());
+    verify(scheduler);
+  }
+
+  /** Test that the cache holds and hands out copies of the responses without parse trees. */
+  public void testParseTreeNotRetained() {
+    HistoryCache cache = new HistoryCache();
+    ApiResponse retrieved = EasyMock.createMock(ApiResponse.class);
+    ApiResponse held = EasyMock.createMock(ApiResponse.class);
+    expect(held.getBodyAsString()).andReturn(Strings.repeat("a", BODY_LENGTH)).anyTimes();
+    expect(held.getCompressedBody()).andReturn(null).anyTimes();
+    expect(held.withoutParsedBody()).andReturn(retrieved);
+    ApiResponse response = EasyMock.createMock(ApiResponse.class);
+    expect(response.withoutParsedBody()).andReturn(held);
+    replay(retrieved, held, response);
+
+    String key = cache.addHistoryItem(request, response, 0, 1);
+    assertSame(held, cache.listHistoryItems().get(0).getResponse());
+    assertSame(retrieved, cache.getHistoryItem(key).getResponse());
+    verify(held, response);
+  }
+
+  /** Test that items are listed newest first in numeric rather than string order. */
+  public void testNumericOrder() {
+    HistoryCache cache = new HistoryCache();
+    for (int i = 1; i <= 12; i++) {
+      cache.addHistoryItem(request, createResponse(), i, i);
+    }
+
+    List<HistoryItem> items = cache.listHistoryItems();
+    assertEquals(12, items.size());
+    for (int i = 0; i < items.size(); i++) {
+      assertEquals(String.valueOf(12 - i), items.get(i).getKey());
+    }
+  }
+
+  /** Test the listing of a page of items. */
+  public void testListPage() {
+    HistoryCache cache = new HistoryCache();
+    for (int i = 1; i <= 5; i++) {
+      cache.addHistoryItem(request, createResponse(), i, i);
+    }
+
+    List<HistoryItem> page = cache.listHistoryItems(1, 2);
+    assertEquals(2, page.size());
+    assertEquals("4", page.get(0).getKey());
+    assertEquals("3", page.get(1).getKey());
+
+    assertEquals(1, cache.listHistoryItems(4, 10).size());
+    assertTrue(cache.listHistoryItems(5, 10).isEmpty());
+  }
+
+  /** Test that items are kept once there are more of them than the initial capacity. */
+  public void testItemsKeptBeyondCapacity() {
+    HistoryCache cache = new HistoryCache(5 * 2 * BODY_LENGTH);
+    int count = 2 * HistoryCache.INITIAL_CAPACITY + 1;
+    for (int i = 1; i <= count; i++) {
+      cache.addHistoryItem(request, createResponse(), i, i);
+    }
+
+    // Only the bodies are evicted, the metadata of every item is kept.
+    assertEquals(count, cache.getItemCount());
+    assertEquals(5, cache.getRetainedBodyCount());
+    assertEquals(count - 5, cache.getDiscardedBodyCount());
+    assertEquals(1, cache.getHistoryItem("1").getStartTime());
+    assertSame(discardedResponse, cache.getHistoryItem("1").getResponse());
+    assertEquals(String.valueOf(count), cache.listHistoryItems().get(0).getKey());
+    assertEquals("1", cache.listHistoryItems().get(count - 1).getKey());
+    assertNull(cache.getHistoryItem(String.valueOf(count + 1)));
+    assertNull(cache.getHistoryItem("0"));
+    assertNull(cache.getHistoryItem("not a key"));
+  }
+
+  private ApiResponse createResponse() {
+    ApiResponse response = EasyMock.createMock(ApiResponse.class);
+    expect(response.getBodyAsString()).andReturn(Strings.repeat("a", BODY_LENGTH)).anyTimes();
+    expect(response.getCompressedBody()).andReturn(null).anyTimes();
+    expect(response.withoutParsedBody()).andReturn(response).anyTimes();
+    expect(response.withoutBody()).andReturn(discardedResponse).anyTimes();
+    replay(response);
+    return response;
+  }
+}
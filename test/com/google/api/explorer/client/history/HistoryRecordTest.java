@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.history;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the encoding of history records.
+ *
+ */
+public class HistoryRecordTest extends TestCase {
+
+  /** Test that a record survives a round trip through its encoding. */
+  public void testRoundTrip() {
+    HistoryRecord record = new HistoryRecord("12-3", "plus.people.get", "GET",
+        "/plus/v1/people/me?fields=id", 200, "OK", 1000L, 1250L);
+
+    HistoryRecord decoded = HistoryRecord.decode(record.encode());
+    assertEquals("12-3", decoded.getId());
+    assertEquals("plus.people.get", decoded.getMethodId());
+    assertEquals("GET", decoded.getHttpMethod());
+    assertEquals("/plus/v1/people/me?fields=id", decoded.getRequestPath());
+    assertEquals(200, decoded.getStatus());
+    assertEquals("OK", decoded.getStatusText());
+    assertEquals(1000L, decoded.getStartTime());
+    assertEquals(1250L, decoded.getEndTime());
+  }
+
+  /** Test that separators and escape characters within fields are preserved. */
+  public void testEscaping() {
+    HistoryRecord record = new HistoryRecord("1", "a\nb", "GET", "/path\\with\\n\n", 500,
+        "", 0, 0);
+
+    HistoryRecord decoded = HistoryRecord.decode(record.encode());
+    assertEquals("a\nb", decoded.getMethodId());
+    assertEquals("/path\\with\\n\n", decoded.getRequestPath());
+    assertEquals("", decoded.getStatusText());
+  }
+
+  /** Test that strings which are not records are rejected. */
+  public void testInvalidRecord() {
+    try {
+      HistoryRecord.decode("not a record");
+      fail("Expected an exception.");
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+
+    try {
+      HistoryRecord.decode("1\nm\nGET\n/\nnot a number\nOK\n0\n0\n");
+      fail("Expected an exception.");
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+  }
+}
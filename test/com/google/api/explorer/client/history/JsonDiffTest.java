@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.history;
+
+import com.google.api.explorer.client.history.JsonDiff.ChangeType;
+import com.google.api.explorer.client.history.JsonDiff.Difference;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Tests for the structural comparison of JSON documents.
+ *
+ */
+public class JsonDiffTest extends TestCase {
+
+  /** Test that identical documents have no differences, regardless of formatting or order. */
+  public void testIdentical() {
+    assertTrue(diff("{\"a\": 1, \"b\": [true, null]}", "{\"b\":[true,null],\"a\":1}").isEmpty());
+    assertTrue(diff("[]", " [ ] ").isEmpty());
+  }
+
+  /** Test that changed, added and removed members are reported in document order. */
+  public void testObjectChanges() {
+    List<Difference> differences = diff(
+        "{\"kind\": \"plus#person\", \"etag\": \"1\", \"name\": {\"givenName\": \"A\"}}",
+        "{\"kind\": \"plus#person\", \"etag\": \"2\", \"name\": {}, \"id\": \"42\"}");
+
+    assertEquals(3, differences.size());
+    assertDifference(ChangeType.CHANGED, "$.etag", "\"1\"", "\"2\"", differences.get(0));
+    assertDifference(ChangeType.REMOVED, "$.name.givenName", "\"A\"", null, differences.get(1));
+    assertDifference(ChangeType.ADDED, "$.id", null, "\"42\"", differences.get(2));
+  }
+
+  /** Test that an element inserted in a list does not report the following elements. */
+  public void testArrayInsertion() {
+    List<Difference> differences = diff(
+        "{\"items\": [{\"id\": 1}, {\"id\": 2}, {\"id\": 3}]}",
+        "{\"items\": [{\"id\": 1}, {\"id\": 5}, {\"id\": 2}, {\"id\": 3}]}");
+
+    assertEquals(1, differences.size());
+    assertDifference(ChangeType.ADDED, "$.items[1]", null, "{1 property}", differences.get(0));
+  }
+
+  /** Test that changes of type and of elements are reported. */
+  public void testTypeAndElementChanges() {
+    List<Difference> differences = diff("{\"a\": [1, 2], \"b\": {}}", "{\"a\": [1, 3], \"b\": []}");
+
+    assertEquals(2, differences.size());
+    assertDifference(ChangeType.CHANGED, "$.a[1]", "2", "3", differences.get(0));
+    assertDifference(
+        ChangeType.CHANGED, "$.b", "{0 properties}", "[0 elements]", differences.get(1));
+  }
+
+  /** Test that different values are reported even when their hashes are equal. */
+  public void testHashCollisions() {
+    assertEquals("Aa".hashCode(), "BB".hashCode());
+
+    List<Difference> differences = diff("{\"x\": \"Aa\"}", "{\"x\": \"BB\"}");
+    assertEquals(1, differences.size());
+    assertDifference(ChangeType.CHANGED, "$.x", "\"Aa\"", "\"BB\"", differences.get(0));
+
+    differences = diff("[\"AaAa\", 1]", "[\"BBBB\", 1]");
+    assertEquals(1, differences.size());
+    assertDifference(ChangeType.CHANGED, "$[0]", "\"AaAa\"", "\"BBBB\"", differences.get(0));
+
+    // Colliding subtrees, in the common prefix and suffix of a list and as object members.
+    differences = diff("[{\"a\": [\"Aa\"]}, 1, {\"b\": \"AaBB\"}]",
+        "[{\"a\": [\"BB\"]}, 1, {\"b\": \"BBAa\"}]");
+    assertEquals(2, differences.size());
+    assertEquals("$[0].a[0]", differences.get(0).getPath());
+    assertEquals("$[2].b", differences.get(1).getPath());
+
+    differences = diff(
+        "{\"a\": {\"x\": \"Aa\", \"y\": 1}}", "{\"a\": {\"y\": 1, \"x\": \"BB\"}}");
+    assertEquals(1, differences.size());
+    assertEquals("$.a.x", differences.get(0).getPath());
+  }
+
+  /** Test that keys which are not identifiers use bracket notation. */
+  public void testPathNotation() {
+    List<Difference> differences = diff("{\"a.b\": 1, \"it's\": 1}", "{\"a.b\": 2, \"it's\": 2}");
+    assertEquals("$['a.b']", differences.get(0).getPath());
+    assertEquals("$['it\\'s']", differences.get(1).getPath());
+  }
+
+  /** Test that the comparison can be performed in small slices. */
+  public void testIncremental() {
+    StringBuilder oldJson = new StringBuilder("[");
+    StringBuilder newJson = new StringBuilder("[");
+    for (int i = 0; i < 1000; i++) {
+      String separator = i == 0 ? "" : ",";
+      oldJson.append(separator).append("{\"id\": ").append(i).append(", \"v\": \"x\"}");
+      newJson.append(separator).append("{\"id\": ").append(i).append(", \"v\": \"")
+          .append(i == 500 ? "y" : "x").append("\"}");
+    }
+    JsonDiff diff = new JsonDiff(oldJson.append("]").toString(), newJson.append("]").toString());
+
+    int steps = 0;
+    while (diff.step(10)) {
+      steps++;
+    }
+    assertTrue(steps > 100);
+    assertTrue(diff.isComplete());
+    assertEquals(1, diff.getDifferences().size());
+    assertEquals("$[500].v", diff.getDifferences().get(0).getPath());
+  }
+
+  /** Test that confirming that long common runs of elements are equal is spread over slices. */
+  public void testEqualElementsCharged() {
+    StringBuilder oldJson = new StringBuilder("[");
+    StringBuilder newJson = new StringBuilder("[");
+    for (int i = 0; i < 10000; i++) {
+      String separator = i == 0 ? "" : ",";
+      oldJson.append(separator).append(i);
+      newJson.append(separator).append(i == 9999 ? -1 : i);
+    }
+    JsonDiff diff = new JsonDiff(oldJson.append("]").toString(), newJson.append("]").toString());
+
+    // Parsing both documents takes about 2000 slices, and checking the common elements 1000 more.
+    int steps = 0;
+    while (diff.step(10)) {
+      steps++;
+    }
+    assertTrue(steps > 2900);
+    assertEquals(1, diff.getDifferences().size());
+    assertEquals("$[9999]", diff.getDifferences().get(0).getPath());
+  }
+
+  /** Test that invalid documents are reported as errors. */
+  public void testInvalidDocument() {
+    JsonDiff diff = new JsonDiff("{\"a\": 1", "{}").run();
+    assertTrue(diff.isComplete());
+    assertNotNull(diff.getError());
+    assertTrue(diff.getDifferences().isEmpty());
+
+    assertNotNull(new JsonDiff("{} x", "{}").run().getError());
+    assertNotNull(new JsonDiff("[1,]", "[]").run().getError());
+  }
+
+  private static List<Difference> diff(String oldJson, String newJson) {
+    JsonDiff diff = new JsonDiff(oldJson, newJson).run();
+    assertNull(diff.getError());
+    return diff.getDifferences();
+  }
+
+  private static void assertDifference(ChangeType type, String path, String oldValue,
+      String newValue, Difference difference) {
+    assertEquals(type, difference.getType());
+    assertEquals(path, difference.getPath());
+    assertEquals(oldValue, difference.getOldValue());
+    assertEquals(newValue, difference.getNewValue());
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.history;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+
+import com.google.api.explorer.client.Resources.Css;
+import com.google.api.explorer.client.history.JsonHighlighter.Lines;
+import com.google.gwt.safehtml.shared.SafeHtmlBuilder;
+
+import junit.framework.TestCase;
+
+import org.easymock.EasyMock;
+
+/**
+ * Tests for the lightweight JSON highlighter.
+ *
+ */
+public class JsonHighlighterTest extends TestCase {
+  private JsonHighlighter highlighter;
+
+  @Override
+  public void setUp() {
+    Css style = EasyMock.createNiceMock(Css.class);
+    expect(style.jsonKey()).andReturn("k").anyTimes();
+    expect(style.jsonString()).andReturn("s").anyTimes();
+    expect(style.jsonNumber()).andReturn("n").anyTimes();
+    expect(style.jsonBoolean()).andReturn("b").anyTimes();
+    expect(style.jsonNull()).andReturn("z").anyTimes();
+    replay(style);
+
+    highlighter = new JsonHighlighter(style);
+  }
+
+  /** Test that each kind of token is highlighted and the formatting is preserved. */
+  public void testHighlight() {
+    assertEquals("{<span class=\"k\">&quot;a&quot;</span>: <span class=\"s\">&quot;x&quot;</span>, "
+        + "<span class=\"k\">&quot;b&quot;</span>: [<span class=\"n\">-1.5e3</span>, "
+        + "<span class=\"b\">true</span>, <span class=\"z\">null</span>]}",
+        highlight("{\"a\": \"x\", \"b\": [-1.5e3, true, null]}"));
+  }
+
+  /** Test that markup in the text is escaped. */
+  public void testEscaping() {
+    assertEquals("<span class=\"s\">&quot;&lt;b&gt; \\&quot; &amp;&quot;</span>",
+        highlight("\"<b> \\\" &\""));
+  }
+
+  /** Test the splitting of text into lines which remember whether they start in a string. */
+  public void testSplitLines() {
+    String text = "{\n  \"key\": \"abcdefgh\"\n}";
+    Lines lines = JsonHighlighter.splitLines(text, 8);
+
+    assertEquals(5, lines.count());
+    assertEquals("{", line(text, lines, 0));
+    assertEquals("  \"key\":", line(text, lines, 1));
+    assertEquals(" \"abcdef", line(text, lines, 2));
+    assertEquals("gh\"", line(text, lines, 3));
+    assertEquals("}", line(text, lines, 4));
+
+    assertFalse(lines.startsInString(2));
+    assertTrue(lines.startsInString(3));
+    assertFalse(lines.startsInString(4));
+
+    // A line which starts inside of a string is highlighted as the rest of the string.
+    SafeHtmlBuilder out = new SafeHtmlBuilder();
+    highlighter.highlight(text, lines.start(3), lines.end(3), lines.startsInString(3), out);
+    assertEquals("<span class=\"s\">gh&quot;</span>", out.toSafeHtml().asString());
+  }
+
+  private String highlight(String text) {
+    SafeHtmlBuilder out = new SafeHtmlBuilder();
+    highlighter.highlight(text, out);
+    return out.toSafeHtml().asString();
+  }
+
+  private static String line(String text, Lines lines, int line) {
+    return text.substring(lines.start(line), lines.end(line));
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.history;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+/**
+ * Tests for the flat JSON path index used to filter responses.
+ *
+ */
+public class JsonPathIndexTest extends TestCase {
+  private JsonPathIndex index;
+
+  // Node ids of the following document:
+  // {"kind": "list", "etag": "a", "items": [{"id": "1", "etag": "b"}, {"id": "2"}]}
+  private int kind;
+  private int etag;
+  private int items;
+  private int item0;
+  private int item0Id;
+  private int item0Etag;
+  private int item1;
+  private int item1Id;
+
+  @Override
+  public void setUp() {
+    index = new JsonPathIndex();
+    int root = index.addNode(-1, "$");
+    kind = leaf(root, "kind");
+    etag = leaf(root, "etag");
+    items = index.addNode(root, "items");
+    item0 = index.addNode(items, "0");
+    item0Id = leaf(item0, "id");
+    item0Etag = leaf(item0, "etag");
+    index.completeNode(item0, null);
+    item1 = index.addNode(items, "1");
+    item1Id = leaf(item1, "id");
+    index.completeNode(item1, null);
+    index.completeNode(items, null);
+    index.completeNode(root, null);
+  }
+
+  /** Test that keys are matched by case insensitive substrings. */
+  public void testKeySubstring() {
+    assertMatches("Tag", etag, item0Etag);
+    assertMatches("id", item0Id, item1Id);
+    assertMatches("notakey");
+    assertNull(index.match("  "));
+  }
+
+  /** Test the supported JSONPath expressions. */
+  public void testPaths() {
+    assertMatches("$", JsonPathIndex.ROOT);
+    assertMatches("$.kind", kind);
+    assertMatches("$.items[*].id", item0Id, item1Id);
+    assertMatches("$.items[1]", item1);
+    assertMatches("$['items'][0].etag", item0Etag);
+    assertMatches("$..etag", etag, item0Etag);
+    assertMatches("$..id", item0Id, item1Id);
+    assertMatches("$.*", kind, etag, items);
+    assertMatches("$.id");
+  }
+
+  /** Test that malformed paths are rejected. */
+  public void testInvalidPaths() {
+    assertInvalid("$.");
+    assertInvalid("$.items[");
+    assertInvalid("$items");
+  }
+
+  /** Test that matches are shown along with their ancestors and descendants. */
+  public void testVisibleNodes() {
+    boolean[] visible = index.visibleNodes(index.match("$.items[0]"));
+    assertTrue(visible[JsonPathIndex.ROOT]);
+    assertTrue(visible[items]);
+    assertTrue(visible[item0]);
+    assertTrue(visible[item0Id]);
+    assertTrue(visible[item0Etag]);
+    assertFalse(visible[kind]);
+    assertFalse(visible[etag]);
+    assertFalse(visible[item1]);
+    assertFalse(visible[item1Id]);
+
+    // Nested matches should not disturb each other.
+    visible = index.visibleNodes(index.match("$..*"));
+    for (boolean nodeVisible : visible) {
+      assertTrue(nodeVisible);
+    }
+  }
+
+  private int leaf(int parent, String key) {
+    int node = index.addNode(parent, key);
+    index.completeNode(node, null);
+    return node;
+  }
+
+  private void assertMatches(String query, int... expected) {
+    assertEquals(Arrays.toString(expected), Arrays.toString(index.match(query)));
+  }
+
+  private void assertInvalid(String query) {
+    try {
+      index.match(query);
+      fail("Expected an invalid path: " + query);
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+  }
+}
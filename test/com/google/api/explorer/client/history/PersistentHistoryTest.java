@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.history;
+
+import com.google.common.collect.Maps;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
+
+import junit.framework.TestCase;
+
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for the persistence of the request history.
+ *
+ */
+public class PersistentHistoryTest extends TestCase {
+
+  /** Storage which keeps the values in memory and can be limited to a number of values. */
+  private static class FakeStorage implements HistoryStorage {
+    final Map<String, String> values = Maps.newHashMap();
+    int capacity = Integer.MAX_VALUE;
+
+    @Override
+    public String getItem(String key) {
+      return values.get(key);
+    }
+
+    @Override
+    public void setItem(String key, String value) {
+      if (!values.containsKey(key) && values.size() >= capacity) {
+        throw new RuntimeException("Quota exceeded");
+      }
+      values.put(key, value);
+    }
+
+    @Override
+    public void removeItem(String key) {
+      values.remove(key);
+    }
+  }
+
+  private FakeStorage storage;
+  private Scheduler scheduler;
+  private Capture<RepeatingCommand> command;
+
+  @Override
+  public void setUp() {
+    storage = new FakeStorage();
+    scheduler = EasyMock.createMock(Scheduler.class);
+    command = new Capture<RepeatingCommand>();
+    scheduler.scheduleIncremental(EasyMock.capture(command));
+    EasyMock.expectLastCall().anyTimes();
+    EasyMock.replay(scheduler);
+  }
+
+  /** Test that writes are deferred to the scheduled command. */
+  public void testWritesDeferred() {
+    PersistentHistory history = new PersistentHistory(storage, scheduler, 10, "s");
+    history.save(record("s-1"), "body1");
+
+    assertTrue(storage.values.isEmpty());
+    assertTrue(history.hasPendingWrites());
+    assertEquals("body1", history.loadBody("s-1"));
+    assertEquals(1, history.listRecords(0, 10).size());
+
+    assertFalse(command.getValue().execute());
+    assertFalse(history.hasPendingWrites());
+    assertEquals("body1", history.loadBody("s-1"));
+    assertEquals("body1", storage.getItem("explorer.history.body.s-1"));
+  }
+
+  /** Test that records of previous sessions are listed most recent first, one page at a time. */
+  public void testListRecordsFromPreviousSession() {
+    PersistentHistory previous = new PersistentHistory(storage, scheduler, 10, "a");
+    for (int i = 1; i <= 5; i++) {
+      previous.save(record("a-" + i), null);
+    }
+    while (command.getValue().execute()) {
+      // Write all of the records.
+    }
+
+    PersistentHistory history = new PersistentHistory(storage, scheduler, 10, "b");
+    history.save(record("b-1"), null);
+
+    List<HistoryRecord> page = history.listRecords(0, 3);
+    assertEquals(3, page.size());
+    assertEquals("b-1", page.get(0).getId());
+    assertEquals("a-5", page.get(1).getId());
+    assertEquals("a-4", page.get(2).getId());
+
+    page = history.listRecords(3, 10);
+    assertEquals(3, page.size());
+    assertEquals("a-1", page.get(2).getId());
+  }
+
+  /** Test that only the most recent records are kept. */
+  public void testOldestRecordsRemoved() {
+    PersistentHistory history = new PersistentHistory(storage, scheduler, 2, "s");
+    for (int i = 1; i <= 3; i++) {
+      history.save(record("s-" + i), "body" + i);
+      command.getValue().execute();
+    }
+
+    List<HistoryRecord> records = history.listRecords(0, 10);
+    assertEquals(2, records.size());
+    assertEquals("s-3", records.get(0).getId());
+    assertEquals("s-2", records.get(1).getId());
+    assertNull(history.loadBody("s-1"));
+    assertNull(storage.getItem("explorer.history.record.s-1"));
+  }
+
+  /** Test that the oldest records are removed to make room when the storage is full. */
+  public void testStorageFull() {
+    // Enough room for the index and two records with their bodies.
+    storage.capacity = 5;
+    PersistentHistory history = new PersistentHistory(storage, scheduler, 10, "s");
+    for (int i = 1; i <= 3; i++) {
+      history.save(record("s-" + i), "body" + i);
+      command.getValue().execute();
+    }
+
+    List<HistoryRecord> records = history.listRecords(0, 10);
+    assertEquals(2, records.size());
+    assertEquals("s-3", records.get(0).getId());
+    assertEquals("body3", history.loadBody("s-3"));
+    assertNull(history.loadBody("s-1"));
+  }
+
+  /** Test that pages sharing the storage add their records to the index without losing any. */
+  public void testConcurrentSessions() {
+    PersistentHistory first = new PersistentHistory(storage, scheduler, 10, "a");
+    PersistentHistory second = new PersistentHistory(storage, scheduler, 10, "b");
+    assertTrue(second.listRecords(0, 10).isEmpty());
+
+    first.save(record("a-1"), null);
+    command.getValue().execute();
+    second.save(record("b-1"), null);
+    command.getValue().execute();
+    first.save(record("a-2"), null);
+    command.getValue().execute();
+
+    List<HistoryRecord> records = second.listRecords(0, 10);
+    assertEquals(3, records.size());
+    assertEquals("a-2", records.get(0).getId());
+    assertEquals("b-1", records.get(1).getId());
+    assertEquals("a-1", records.get(2).getId());
+  }
+
+  /** Test that only the records of other sessions are listed as previous records. */
+  public void testListPreviousRecords() {
+    PersistentHistory previous = new PersistentHistory(storage, scheduler, 10, "a");
+    previous.save(record("a-1"), null);
+    previous.save(record("a-2"), null);
+    command.getValue().execute();
+
+    PersistentHistory history = new PersistentHistory(storage, scheduler, 10, "b");
+    history.save(record("b-1"), null);
+    command.getValue().execute();
+
+    List<HistoryRecord> records = history.listPreviousRecords(0, 10);
+    assertEquals(2, records.size());
+    assertEquals("a-2", records.get(0).getId());
+    assertEquals("a-1", records.get(1).getId());
+    assertEquals(1, history.listPreviousRecords(1, 10).size());
+  }
+
+  /** Test that a body above the size limit is not stored and does not remove other records. */
+  public void testOversizedBody() {
+    // Enough room for the index and three records, two of them with their bodies.
+    storage.capacity = 6;
+    PersistentHistory history = new PersistentHistory(storage, scheduler, 10, 10, "s");
+    history.save(record("s-1"), "body1");
+    history.save(record("s-2"), "body2");
+    command.getValue().execute();
+
+    history.save(record("s-3"), "a body which is too long to store");
+    command.getValue().execute();
+
+    assertNull(history.loadBody("s-3"));
+    assertEquals("body2", history.loadBody("s-2"));
+    assertEquals(3, history.listRecords(0, 10).size());
+  }
+
+  private static HistoryRecord record(String id) {
+    return new HistoryRecord(id, "synthetic.items.get", "GET", "/items/" + id, 200, "OK", 0, 1);
+  }
+}
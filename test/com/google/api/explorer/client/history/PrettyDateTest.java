@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.history;
+
+import com.google.api.explorer.client.history.PrettyDate.Ticker;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import junit.framework.TestCase;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for the relative dates and the shared ticker which keeps them up to date.
+ *
+ */
+public class PrettyDateTest extends TestCase {
+  private static final long START = 1000L * 60 * 60 * 24 * 365 + 30000;
+
+  private FakeTicker ticker;
+
+  @Override
+  public void setUp() {
+    ticker = new FakeTicker();
+  }
+
+  public void testPrettyText() {
+    assertEquals("moments ago", PrettyDate.getPrettyText(new Date(START), START + 59000));
+    assertEquals("one minute ago", PrettyDate.getPrettyText(new Date(START), START + 60000));
+    assertEquals("5 minutes ago", PrettyDate.getPrettyText(new Date(START), START + 300000));
+    assertEquals("one hour ago", PrettyDate.getPrettyText(new Date(START), START + 3600000));
+    assertEquals("in the future?", PrettyDate.getPrettyText(new Date(START), START - 1000));
+  }
+
+  /** Test that a single timer aligned to minute boundaries updates all of the targets. */
+  public void testSingleAlignedTimer() {
+    ticker.register("a", new Date(START), "a ");
+    ticker.now += 25000;
+    ticker.register("b", new Date(ticker.now), "b ");
+
+    assertEquals(Lists.newArrayList(30000), ticker.delays);
+    assertEquals("a moments ago", ticker.texts.get("a"));
+    assertEquals("b moments ago", ticker.texts.get("b"));
+
+    ticker.fire();
+    ticker.fire();
+    assertEquals(Lists.newArrayList(30000, 60000, 60000), ticker.delays);
+    assertEquals("a one minute ago", ticker.texts.get("a"));
+    assertEquals("b one minute ago", ticker.texts.get("b"));
+
+    ticker.fire();
+    assertEquals("a 2 minutes ago", ticker.texts.get("a"));
+    assertEquals("b 2 minutes ago", ticker.texts.get("b"));
+  }
+
+  /** Test that the text is only set when it changes. */
+  public void testUnchangedTextNotSet() {
+    ticker.register("a", new Date(START), "a ");
+    ticker.fire();
+    assertEquals(1, ticker.setTextCount);
+    ticker.fire();
+    assertEquals(2, ticker.setTextCount);
+    ticker.now += 1000;
+    ticker.tick();
+    assertEquals(2, ticker.setTextCount);
+  }
+
+  /** Test that targets which left the page are dropped, and the timer stops with the last one. */
+  public void testDetachedTargetsDropped() {
+    ticker.register("a", new Date(START), "a ");
+    ticker.register("b", new Date(START), "b ");
+    ticker.detached.add("a");
+    ticker.fire();
+    assertEquals(1, ticker.getRegisteredCount());
+
+    ticker.unregister("b");
+    assertEquals(0, ticker.getRegisteredCount());
+    assertTrue(ticker.cancelled);
+  }
+
+  /** Test that targets stop being updated once they are an hour old. */
+  public void testOldTargetsDropped() {
+    ticker.register("a", new Date(START), "a ");
+    for (int i = 0; i < 60; i++) {
+      ticker.fire();
+    }
+    assertEquals(1, ticker.getRegisteredCount());
+    ticker.fire();
+    assertEquals(0, ticker.getRegisteredCount());
+    assertFalse(ticker.scheduled);
+
+    ticker.register("b", new Date(START), "b ");
+    assertEquals("b one hour ago", ticker.texts.get("b"));
+    assertEquals(0, ticker.getRegisteredCount());
+  }
+
+  private static class FakeTicker extends Ticker<String> {
+    long now = START;
+    long tickAt;
+    boolean scheduled = false;
+    boolean cancelled = false;
+    int setTextCount = 0;
+    final List<Integer> delays = Lists.newArrayList();
+    final Map<String, String> texts = Maps.newHashMap();
+    final Set<String> detached = Sets.newHashSet();
+
+    /** Advance the time to the scheduled tick and run it. */
+    void fire() {
+      assertTrue(scheduled);
+      now = tickAt;
+      scheduled = false;
+      tick();
+    }
+
+    @Override
+    long now() {
+      return now;
+    }
+
+    @Override
+    void schedule(int delayMillis) {
+      scheduled = true;
+      tickAt = now + delayMillis;
+      delays.add(delayMillis);
+    }
+
+    @Override
+    void cancel() {
+      scheduled = false;
+      cancelled = true;
+    }
+
+    @Override
+    boolean isDisplayed(String target) {
+      return !detached.contains(target);
+    }
+
+    @Override
+    void setText(String target, String text) {
+      setTextCount++;
+      texts.put(target, text);
+    }
+  }
+}
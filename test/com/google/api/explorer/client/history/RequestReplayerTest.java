@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.history;
+
+import com.google.api.explorer.client.base.ApiMethod.HttpMethod;
+import com.google.api.explorer.client.base.ApiRequest;
+import com.google.api.explorer.client.base.ApiResponse;
+import com.google.api.explorer.client.history.RequestReplayer.ReplayListener;
+import com.google.api.explorer.client.history.RequestReplayer.ReplaySummary;
+import com.google.api.explorer.client.history.RequestReplayer.RequestFactory;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.gwt.user.client.rpc.AsyncCallback;
+
+import junit.framework.TestCase;
+
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+
+import java.util.List;
+
+/**
+ * Tests for the bulk replay of history items.
+ *
+ */
+public class RequestReplayerTest extends TestCase {
+  private static final int ITEM_COUNT = 5;
+  private static final int MAX_CONCURRENT = 2;
+
+  private final List<HistoryItem> items = Lists.newArrayList();
+  private final List<ApiRequest> requests = Lists.newArrayList();
+  private final List<Capture<AsyncCallback<ApiResponse>>> callbacks = Lists.newArrayList();
+  private final List<String> replayedKeys = Lists.newArrayList();
+  private ReplaySummary finalSummary;
+
+  private HistoryCache cache;
+  private RequestReplayer replayer;
+
+  @Override
+  public void setUp() {
+    for (int i = 0; i < ITEM_COUNT; i++) {
+      items.add(createItem(i, HttpMethod.GET));
+
+      Capture<AsyncCallback<ApiResponse>> callback = new Capture<AsyncCallback<ApiResponse>>();
+      ApiRequest request = EasyMock.createMock(ApiRequest.class);
+      request.send(EasyMock.capture(callback));
+      EasyMock.expectLastCall();
+      EasyMock.replay(request);
+      requests.add(request);
+      callbacks.add(callback);
+    }
+
+    cache = new HistoryCache();
+    replayer = new RequestReplayer(cache, new RequestFactory() {
+      @Override
+      public ApiRequest rebuild(HistoryItem item) {
+        return requests.get(items.indexOf(item));
+      }
+    }, MAX_CONCURRENT);
+  }
+
+  /** Test that no more than the maximum number of requests are in flight at once. */
+  public void testConcurrencyLimit() {
+    replayer.replay(items, new Listener());
+    assertSent(2);
+
+    respond(0, 200);
+    assertSent(3);
+    respond(2, 200);
+    assertSent(4);
+    respond(1, 500);
+    assertSent(5);
+    assertNull(finalSummary);
+
+    callbacks.get(3).getValue().onFailure(new RuntimeException("Timed out"));
+    respond(4, 204);
+
+    assertNotNull(finalSummary);
+    assertEquals(ITEM_COUNT, finalSummary.getCompleted());
+    assertEquals(3, finalSummary.getPassed());
+    assertEquals(2, finalSummary.getFailed());
+
+    // Responses are added to the history as they arrive, failures without a response are not.
+    assertEquals(4, cache.getItemCount());
+    assertEquals(Lists.newArrayList("1", "2", "3", null, "4"), replayedKeys);
+  }
+
+  /** Test that the requests are replayed in the order in which they were originally sent. */
+  public void testChronologicalOrder() {
+    // The history lists the most recent request first.
+    replayer.replay(Lists.reverse(items), new Listener());
+    assertSent(2);
+
+    respond(1, 200);
+    assertSent(3);
+    respond(0, 200);
+    assertSent(4);
+  }
+
+  /** Test that a request which changes data is never in flight with another request. */
+  public void testWriteReplayedAlone() {
+    items.set(2, createItem(2, HttpMethod.POST));
+    replayer.replay(items, new Listener());
+    assertSent(2);
+
+    // The insert waits for the earlier requests to complete.
+    respond(0, 200);
+    assertSent(2);
+    respond(1, 200);
+    assertSent(3);
+
+    // The later requests wait for the insert to complete.
+    respond(2, 200);
+    assertSent(5);
+  }
+
+  /** Test which requests can be replayed without side effects. */
+  public void testIsReadOnly() {
+    assertTrue(RequestReplayer.isReadOnly(HttpMethod.GET));
+    assertTrue(RequestReplayer.isReadOnly(HttpMethod.HEAD));
+    assertFalse(RequestReplayer.isReadOnly(HttpMethod.POST));
+    assertFalse(RequestReplayer.isReadOnly(HttpMethod.PUT));
+    assertFalse(RequestReplayer.isReadOnly(HttpMethod.PATCH));
+    assertFalse(RequestReplayer.isReadOnly(HttpMethod.DELETE));
+  }
+
+  /** Test that replaying no items finishes immediately. */
+  public void testNothingToReplay() {
+    replayer.replay(ImmutableList.<HistoryItem>of(), new Listener());
+    assertNotNull(finalSummary);
+    assertEquals(0, finalSummary.getTotal());
+  }
+
+  /** Test the latency percentiles of the summary. */
+  public void testSummary() {
+    ReplaySummary summary =
+        new ReplaySummary(6, 4, 1, ImmutableList.of(50L, 10L, 40L, 20L, 30L));
+
+    assertEquals(5, summary.getCompleted());
+    assertEquals(10, summary.getLatencyPercentile(0));
+    assertEquals(30, summary.getLatencyPercentile(50));
+    assertEquals(50, summary.getLatencyPercentile(95));
+    assertEquals(50, summary.getLatencyPercentile(100));
+    assertEquals(30, summary.getMeanLatency());
+    assertEquals("5/6 replayed, 4 passed, 1 failed, latency median 30 ms, 95th percentile 50 ms,"
+        + " max 50 ms", summary.toString());
+  }
+
+  private static HistoryItem createItem(int index, HttpMethod httpMethod) {
+    ApiRequest original = EasyMock.createNiceMock(ApiRequest.class);
+    EasyMock.expect(original.getHttpMethod()).andReturn(httpMethod).anyTimes();
+    ApiResponse response = EasyMock.createNiceMock(ApiResponse.class);
+    EasyMock.replay(original, response);
+    return new HistoryItem(
+        String.valueOf(index + 1), original, response, index * 10, index * 10 + 1);
+  }
+
+  private void respond(int index, int status) {
+    ApiResponse response = EasyMock.createNiceMock(ApiResponse.class);
+    EasyMock.expect(response.getStatus()).andReturn(status).anyTimes();
+    EasyMock.expect(response.withoutParsedBody()).andReturn(response).anyTimes();
+    EasyMock.replay(response);
+    callbacks.get(index).getValue().onSuccess(response);
+  }
+
+  private void assertSent(int count) {
+    for (int i = 0; i < ITEM_COUNT; i++) {
+      assertEquals("Request " + i, i < count, callbacks.get(i).hasCaptured());
+    }
+  }
+
+  private class Listener implements ReplayListener {
+    @Override
+    public void replayed(HistoryItem original, String key, ReplaySummary summary) {
+      replayedKeys.add(key);
+    }
+
+    @Override
+    public void finished(ReplaySummary summary) {
+      finalSummary = summary;
+    }
+  }
+}
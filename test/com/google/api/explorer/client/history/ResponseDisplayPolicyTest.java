@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.history;
+
+import com.google.api.explorer.client.history.ResponseDisplayPolicy.DisplayMode;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the size based response display policy.
+ *
+ */
+public class ResponseDisplayPolicyTest extends TestCase {
+  private static final boolean CAN_PRETTIFY = true;
+  private static final boolean CANNOT_PRETTIFY = false;
+
+  private final ResponseDisplayPolicy policy = new ResponseDisplayPolicy(20, 3, 40);
+
+  /** Test that the mode is chosen according to the length of the body. */
+  public void testLengthThresholds() {
+    assertEquals(DisplayMode.PRETTIFIED, policy.choose("{\"a\": 1}", CAN_PRETTIFY));
+    assertEquals(DisplayMode.PRETTIFIED, policy.choose("", CAN_PRETTIFY));
+    assertEquals(DisplayMode.HIGHLIGHTED, policy.choose("{\"aaaaaaaaaaaaaaa\": 1}", CAN_PRETTIFY));
+    assertEquals(DisplayMode.VIRTUALIZED,
+        policy.choose("{\"aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa\": 1}", CAN_PRETTIFY));
+  }
+
+  /** Test that bodies with many values are not prettified even when they are short. */
+  public void testNodeThreshold() {
+    assertEquals(DisplayMode.PRETTIFIED, policy.choose("[1,2]", CAN_PRETTIFY));
+    assertEquals(DisplayMode.HIGHLIGHTED, policy.choose("[1,2,3,4]", CAN_PRETTIFY));
+  }
+
+  /** Test that prettification is never chosen when it is not available. */
+  public void testCannotPrettify() {
+    assertEquals(DisplayMode.HIGHLIGHTED, policy.choose("{\"a\": 1}", CANNOT_PRETTIFY));
+  }
+
+  /** Test the estimation of the number of values in a document. */
+  public void testEstimateNodeCount() {
+    assertEquals(0, ResponseDisplayPolicy.estimateNodeCount("", 100));
+    assertEquals(1, ResponseDisplayPolicy.estimateNodeCount("\"string\"", 100));
+    assertEquals(3, ResponseDisplayPolicy.estimateNodeCount("{\"a\": 1, \"b\": 2}", 100));
+    assertEquals(4, ResponseDisplayPolicy.estimateNodeCount("[1, 2, 3]", 100));
+
+    // Separators inside of strings are not counted.
+    assertEquals(2, ResponseDisplayPolicy.estimateNodeCount("{\"a\": \"{[,\\\",]}\"}", 100));
+
+    // Counting stops past the limit.
+    assertEquals(3, ResponseDisplayPolicy.estimateNodeCount("[1, 2, 3, 4, 5, 6]", 2));
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.search;
+
+import com.google.api.explorer.client.search.IncrementalIndexer.EntrySink;
+import com.google.api.explorer.client.search.IncrementalIndexer.ProgressListener;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.RepeatingCommand;
+
+import junit.framework.TestCase;
+
+import org.easymock.Capture;
+import org.easymock.EasyMock;
+
+import java.util.List;
+
+/**
+ * Tests for the indexing of documents in time bounded slices.
+ *
+ */
+public class IncrementalIndexerTest extends TestCase {
+  private final List<String> indexed = Lists.newArrayList();
+  private final List<String> progress = Lists.newArrayList();
+  private Capture<RepeatingCommand> command;
+  private IncrementalIndexer<String> indexer;
+
+  @Override
+  public void setUp() {
+    Scheduler scheduler = EasyMock.createMock(Scheduler.class);
+    command = new Capture<RepeatingCommand>();
+    scheduler.scheduleIncremental(EasyMock.capture(command));
+    EasyMock.expectLastCall().anyTimes();
+    EasyMock.replay(scheduler);
+
+    indexer = new IncrementalIndexer<String>(scheduler, new EntrySink<String>() {
+      @Override
+      public void add(String entry) {
+        indexed.add(entry);
+      }
+    }, new ProgressListener() {
+      @Override
+      public void indexingProgress(int indexedDocuments, int queuedDocuments) {
+        progress.add(indexedDocuments + "/" + queuedDocuments);
+      }
+
+      @Override
+      public void indexingFinished() {
+        progress.add("finished");
+      }
+    }, 0);
+  }
+
+  /** Test that entries are indexed a slice at a time, and are visible as soon as they are. */
+  public void testSlices() {
+    indexer.enqueue(document("a1", "a2"));
+    indexer.enqueue(document("b1"));
+    assertTrue(command.hasCaptured());
+    assertTrue(indexed.isEmpty());
+    assertTrue(indexer.isIndexing());
+
+    assertTrue(command.getValue().execute());
+    assertEquals(ImmutableList.of("a1"), indexed);
+    assertTrue(command.getValue().execute());
+    assertEquals(ImmutableList.of("a1", "a2"), indexed);
+    assertFalse(command.getValue().execute());
+    assertEquals(ImmutableList.of("a1", "a2", "b1"), indexed);
+    assertFalse(indexer.isIndexing());
+
+    assertEquals(ImmutableList.of("0/2", "1/2", "finished"), progress);
+  }
+
+  /** Test that the entries of a document are only computed when its turn comes. */
+  public void testEntriesComputedLazily() {
+    final int[] calls = {0};
+    indexer.enqueue(document("a1"));
+    indexer.enqueue(new Supplier<List<String>>() {
+      @Override
+      public List<String> get() {
+        calls[0]++;
+        return ImmutableList.of("b1");
+      }
+    });
+
+    command.getValue().execute();
+    assertEquals(0, calls[0]);
+    while (command.getValue().execute()) {
+    }
+    assertEquals(1, calls[0]);
+    assertEquals(ImmutableList.of("a1", "b1"), indexed);
+  }
+
+  /** Test that a slice with time to spare indexes the whole queue. */
+  public void testFinishesWithinSlice() {
+    Scheduler scheduler = EasyMock.createMock(Scheduler.class);
+    scheduler.scheduleIncremental(EasyMock.capture(command));
+    ProgressListener listener = EasyMock.createMock(ProgressListener.class);
+    listener.indexingFinished();
+    EasyMock.replay(scheduler, listener);
+
+    IncrementalIndexer<String> indexer = new IncrementalIndexer<String>(
+        scheduler, new EntrySink<String>() {
+          @Override
+          public void add(String entry) {
+            indexed.add(entry);
+          }
+        }, listener, 60000);
+    indexer.enqueue(document("a1", "a2"));
+    indexer.enqueue(document());
+    indexer.enqueue(document("c1"));
+
+    assertFalse(command.getValue().execute());
+    assertEquals(ImmutableList.of("a1", "a2", "c1"), indexed);
+    EasyMock.verify(scheduler, listener);
+  }
+
+  private static Supplier<List<String>> document(String... entries) {
+    return Suppliers.<List<String>>ofInstance(ImmutableList.copyOf(entries));
+  }
+}
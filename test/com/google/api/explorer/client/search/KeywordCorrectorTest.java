@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.search;
+
+import com.google.common.collect.ImmutableList;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Tests for the correction of misspelled keywords.
+ *
+ */
+public class KeywordCorrectorTest extends TestCase {
+  private final KeywordCorrector corrector = new KeywordCorrector();
+
+  @Override
+  public void setUp() {
+    for (String keyword : ImmutableList.of("urlshortener", "url", "calendar", "calendars",
+        "calendarlist", "colors", "color", "events", "plus", "people")) {
+      corrector.add(keyword);
+    }
+  }
+
+  public void testCorrect() {
+    assertEquals(ImmutableList.of("urlshortener"), corrector.correct("urlshortner", 5));
+    assertEquals(ImmutableList.of("calendar", "calendars"), corrector.correct("calender", 5));
+    assertEquals(ImmutableList.of("calendar"), corrector.correct("calender", 1));
+    assertEquals(ImmutableList.of("people"), corrector.correct("peeple", 5));
+    assertEquals(ImmutableList.of("events"), corrector.correct("events", 5));
+    assertEquals(ImmutableList.of(), corrector.correct("zzzzzz", 5));
+
+    // Short keywords are too ambiguous to correct.
+    assertEquals(ImmutableList.of(), corrector.correct("ulr", 5));
+  }
+
+  public void testAdd() {
+    assertFalse(corrector.add("url"));
+    assertTrue(corrector.add("urlshorteners"));
+    assertEquals(11, corrector.size());
+    assertTrue(corrector.contains("urlshorteners"));
+    assertEquals(
+        ImmutableList.of("urlshortener", "urlshorteners"), corrector.correct("urlshortner", 5));
+  }
+
+  /** Test the bounded edit distance against the full dynamic programming table. */
+  public void testEditDistance() {
+    Random random = new Random(11);
+    for (int i = 0; i < 2000; i++) {
+      String a = randomString(random);
+      String b = randomString(random);
+      int expected = fullEditDistance(a, b);
+      for (int maxDistance = 0; maxDistance <= 3; maxDistance++) {
+        assertEquals(a + " " + b, Math.min(expected, maxDistance + 1),
+            KeywordCorrector.editDistance(a, b, maxDistance));
+      }
+    }
+  }
+
+  private static String randomString(Random random) {
+    StringBuilder value = new StringBuilder();
+    for (int length = random.nextInt(7); length > 0; length--) {
+      value.append((char) ('a' + random.nextInt(3)));
+    }
+    return value.toString();
+  }
+
+  private static int fullEditDistance(String a, String b) {
+    int[][] table = new int[a.length() + 1][b.length() + 1];
+    for (int i = 0; i <= a.length(); i++) {
+      for (int j = 0; j <= b.length(); j++) {
+        if (i == 0 || j == 0) {
+          table[i][j] = i + j;
+        } else {
+          int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+          table[i][j] = Math.min(table[i - 1][j - 1] + cost,
+              Math.min(table[i - 1][j], table[i][j - 1]) + 1);
+        }
+      }
+    }
+    return table[a.length()][b.length()];
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.search;
+
+import com.google.api.explorer.client.search.KeywordScanner.KeywordSink;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Tests for the single pass keyword tokenizer.
+ *
+ */
+public class KeywordScannerTest extends TestCase {
+  private final KeywordScanner scanner = new KeywordScanner();
+
+  public void testScan() {
+    assertScans(ImmutableList.of("an", "indexable", "string"), "an indexable string");
+    assertScans(ImmutableList.of("a.method.name"), "a.method.name");
+    assertScans(ImmutableList.of("word"), ";;;;;;word;;;;;???");
+    assertScans(ImmutableList.of("lll", "word", "help"), "lll;;;word???help!");
+    assertScans(ImmutableList.of("case", "insensitivity", "test"), "CaSe InsenSITIVItY tEsT");
+    assertScans(ImmutableList.of("v1.2"), "!!!!!v1.2?????");
+    assertScans(ImmutableList.of("end", "sentence", "punctuation"), "End sentence punctuation.");
+    assertScans(ImmutableList.of("middle", "punctuation"), "Middle. punctuation");
+    assertScans(ImmutableList.of("leading"), "...leading...");
+    assertScans(ImmutableList.of("a", "a"), "a a");
+    assertScans(ImmutableList.<String>of(), "::;;''';';';;'");
+    assertScans(ImmutableList.<String>of(), ". .. .");
+    assertScans(ImmutableList.<String>of(), "");
+  }
+
+  /** Test that characters outside ASCII are classified and lower cased as well. */
+  public void testNonAscii() {
+    assertScans(ImmutableList.of("caf\u00e9", "\u00fcber"), "Caf\u00c9 \u00dcBER");
+    assertScans(ImmutableList.of("a", "b"), "a\u00a0b\u2014");
+    assertScans(ImmutableList.of("az09", "z"), "@AZ09[`z{");
+  }
+
+  /** Test that each keyword is allocated once, however often and in whatever case it occurs. */
+  public void testInterning() {
+    List<String> keywords = scan("List lists LIST list.");
+    assertEquals(ImmutableList.of("list", "lists", "list", "list"), keywords);
+    assertSame(keywords.get(0), keywords.get(2));
+    assertSame(keywords.get(0), scan("the list").get(1));
+    assertEquals(3, scanner.getInternedCount());
+
+    // Enough keywords to grow the table, and keywords longer than the initial buffer.
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      text.append("keyword").append(i).append(' ');
+    }
+    text.append("averyveryveryveryveryveryveryveryverylongkeyword");
+    List<String> many = scan(text.toString());
+    assertEquals(1001, many.size());
+    assertEquals("keyword999", many.get(999));
+    assertEquals("averyveryveryveryveryveryveryveryverylongkeyword", many.get(1000));
+    assertEquals(1004, scanner.getInternedCount());
+    assertSame(many.get(500), scan("Keyword500").get(0));
+  }
+
+  public void testSplit() {
+    assertSplits(ImmutableList.of("query", "for", "urlshortener."), "query for urlshortener.");
+    assertSplits(ImmutableList.<String>of(), "");
+    assertSplits(ImmutableList.of("url", "short"), "url short");
+    assertSplits(ImmutableList.of("url", "short", "punctuation.", ""), "url short punctuation. ");
+    assertSplits(ImmutableList.of(".capture", "leading", "punctuation.", ""),
+        ".capture leading punctuation. ");
+    assertSplits(ImmutableList.of("url", "short"), "url  short");
+  }
+
+  private void assertScans(List<String> expected, String text) {
+    assertEquals(text, expected, scan(text));
+  }
+
+  private void assertSplits(List<String> expected, String query) {
+    Collector fragments = new Collector();
+    KeywordScanner.split(query, fragments);
+    assertEquals(query, expected, fragments.keywords);
+  }
+
+  private List<String> scan(String text) {
+    Collector keywords = new Collector();
+    scanner.scan(text, keywords);
+    return keywords.keywords;
+  }
+
+  private static class Collector implements KeywordSink {
+    final List<String> keywords = Lists.newArrayList();
+
+    @Override
+    public void keyword(String keyword) {
+      keywords.add(keyword);
+    }
+  }
+}
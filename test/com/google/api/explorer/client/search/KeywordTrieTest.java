@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.search;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import junit.framework.TestCase;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for the keyword completion trie.
+ *
+ */
+public class KeywordTrieTest extends TestCase {
+  private final KeywordTrie trie = new KeywordTrie(3);
+
+  public void testComplete() {
+    for (String keyword : ImmutableList.of("urlshortener", "url", "urls", "user", "users.get")) {
+      assertTrue(trie.add(keyword));
+    }
+    assertFalse(trie.add("url"));
+    assertEquals(5, trie.size());
+
+    assertEquals(ImmutableList.of("url", "urls", "urlshortener"), trie.complete("url"));
+    assertEquals(ImmutableList.of("url", "urls", "user"), trie.complete("u"));
+    assertEquals(ImmutableList.of("users.get"), trie.complete("users"));
+    assertEquals(ImmutableList.of(), trie.complete("x"));
+    assertEquals(ImmutableList.of("url", "urls", "user"), trie.complete(""));
+
+    assertTrue(trie.contains("urls"));
+    assertFalse(trie.contains("ur"));
+  }
+
+  /** Test the completions of random keywords against sorting all of the matching keywords. */
+  public void testRandomKeywords() {
+    Random random = new Random(7);
+    List<String> keywords = Lists.newArrayList();
+    for (int i = 0; i < 2000; i++) {
+      StringBuilder keyword = new StringBuilder();
+      for (int length = 1 + random.nextInt(8); length > 0; length--) {
+        keyword.append((char) ('a' + random.nextInt(4)));
+      }
+      if (trie.add(keyword.toString())) {
+        keywords.add(keyword.toString());
+      }
+    }
+
+    Collections.sort(keywords, new Comparator<String>() {
+      @Override
+      public int compare(String a, String b) {
+        return a.length() != b.length() ? a.length() - b.length() : a.compareTo(b);
+      }
+    });
+    for (String prefix : ImmutableList.of("", "a", "ab", "dcb", "abcd", "bbbbbbbb")) {
+      List<String> expected = Lists.newArrayList();
+      for (String keyword : keywords) {
+        if (keyword.startsWith(prefix) && expected.size() < 3) {
+          expected.add(keyword);
+        }
+      }
+      assertEquals(prefix, expected, trie.complete(prefix));
+    }
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.search;
+
+import com.google.api.explorer.client.search.PostingListIndex.Postings;
+import com.google.common.base.Functions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Tests for the inverted index of integer posting lists.
+ *
+ */
+public class PostingListIndexTest extends TestCase {
+  private final PostingListIndex<String> index = new PostingListIndex<String>();
+
+  public void testSearch() {
+    assertEquals(ImmutableSet.of("list", "photos"),
+        index.add("photos.list", ImmutableList.of("list", "photos")));
+    assertEquals(
+        ImmutableSet.of("get"), index.add("photos.get", ImmutableList.of("get", "photos")));
+    index.add("users.list", ImmutableList.of("list", "users"));
+
+    assertEquals(ImmutableList.of("photos.list", "photos.get"), index.search(keywords("photos")));
+    assertEquals(ImmutableList.of("photos.list"), index.search(keywords("list photos")));
+    assertEquals(ImmutableList.of(), index.search(keywords("get users")));
+    assertEquals(ImmutableList.of(), index.search(keywords("notakeyword photos")));
+    assertEquals(ImmutableList.of(), index.search(ImmutableList.<String>of()));
+  }
+
+  /** Test that adding a document again keeps its id and adds the new keywords. */
+  public void testReindexDocument() {
+    index.add("a", ImmutableList.of("one"));
+    index.add("b", ImmutableList.of("one", "two"));
+    assertEquals(ImmutableSet.of(), index.add("b", ImmutableList.of("one")));
+    index.add("a", ImmutableList.of("two"));
+
+    assertEquals(2, index.getDocumentCount());
+    assertEquals(4, index.getPostingCount());
+    assertEquals(ImmutableList.of("a", "b"), index.search(keywords("two one")));
+  }
+
+  public void testRemoveAndReplace() {
+    index.add("a", ImmutableList.of("one", "two"));
+    index.add("b", ImmutableList.of("one"));
+    index.add("c", ImmutableList.of("one", "three"));
+
+    assertTrue(index.remove("a"));
+    assertFalse(index.remove("a"));
+    assertFalse(index.contains("a"));
+    assertEquals(ImmutableList.of("b", "c"), index.search(keywords("one")));
+    assertEquals(ImmutableList.of(), index.search(keywords("two")));
+
+    assertEquals(ImmutableSet.of(), index.replace("b", ImmutableList.of("three")));
+    assertEquals(ImmutableList.of("c"), index.search(keywords("one")));
+    assertEquals(ImmutableList.of("c", "b"), index.search(keywords("three")));
+    assertEquals(2, index.getDocumentCount());
+    assertEquals(2, index.getTombstoneCount());
+
+    index.compact();
+    assertEquals(0, index.getTombstoneCount());
+    assertEquals(2, index.getKeywordCount());
+    assertEquals(3, index.getPostingCount());
+    assertEquals(ImmutableList.of("c", "b"), index.search(keywords("three")));
+  }
+
+  /** Test random removals, with the compactions they trigger, against a map of the documents. */
+  public void testRandomRemovals() {
+    Random random = new Random(3);
+    Map<String, Set<String>> expected = Maps.newLinkedHashMap();
+    for (int i = 0; i < 2000; i++) {
+      String document = "d" + random.nextInt(200);
+      if (random.nextInt(3) == 0) {
+        assertEquals(expected.remove(document) != null, index.remove(document));
+      } else {
+        Set<String> documentKeywords = ImmutableSet.of("k" + random.nextInt(5), "all");
+        index.replace(document, documentKeywords);
+        expected.remove(document);
+        expected.put(document, documentKeywords);
+      }
+      assertTrue(index.getTombstoneCount() < Math.max(
+          PostingListIndex.MIN_COMPACTED_TOMBSTONES, index.getDocumentCount() + 1));
+    }
+
+    assertEquals(expected.size(), index.getDocumentCount());
+    for (int k = 0; k < 5; k++) {
+      List<String> matching = Lists.newArrayList();
+      for (Map.Entry<String, Set<String>> entry : expected.entrySet()) {
+        if (entry.getValue().contains("k" + k)) {
+          matching.add(entry.getKey());
+        }
+      }
+      assertEquals(matching, index.search(keywords("all k" + k)));
+    }
+  }
+
+  public void testGallop() {
+    int[] ids = {1, 3, 5, 7, 9, 11, 13, 15, 17};
+    for (int target = 0; target < 20; target++) {
+      for (int from = 0; from <= ids.length; from++) {
+        int expected = from;
+        while (expected < ids.length && ids[expected] < target) {
+          expected++;
+        }
+        assertEquals(expected, PostingListIndex.gallop(ids, from, ids.length, target));
+      }
+    }
+  }
+
+  /** Test the intersection of random posting lists against a set based intersection. */
+  public void testIntersectRandomLists() {
+    Random random = new Random(42);
+    for (int round = 0; round < 50; round++) {
+      Set<Integer> first = Sets.newTreeSet();
+      Set<Integer> second = Sets.newTreeSet();
+      Postings postings = new Postings();
+      for (int i = 0; i < 200; i++) {
+        first.add(random.nextInt(1000));
+        int id = random.nextInt(1000);
+        second.add(id);
+        postings.add(id);
+      }
+
+      int[] matches = new int[first.size()];
+      int count = 0;
+      for (int id : first) {
+        matches[count++] = id;
+      }
+      count = PostingListIndex.intersect(matches, count, postings);
+
+      List<Integer> actual = Lists.newArrayList();
+      for (int i = 0; i < count; i++) {
+        actual.add(matches[i]);
+      }
+      assertEquals(Lists.newArrayList(Sets.intersection(first, second)), actual);
+    }
+  }
+
+  /** Test that an index read back from its text form answers the same queries. */
+  public void testEncodeDecode() {
+    index.add("photos.list", ImmutableList.of("list", "photos"));
+    index.add("odd\tname\\with\nescapes", ImmutableList.of("odd", "list"));
+    for (int i = 0; i < 100; i++) {
+      index.add("method" + i, ImmutableList.of("method", i % 2 == 0 ? "even" : "list"));
+    }
+
+    String encoded = index.encode(Functions.<String>identity());
+    PostingListIndex<String> decoded =
+        PostingListIndex.decode(encoded, Functions.<String>identity());
+
+    assertEquals(index.getDocumentCount(), decoded.getDocumentCount());
+    assertEquals(index.getPostingCount(), decoded.getPostingCount());
+    for (String query : ImmutableList.of("list", "odd list", "method even", "photos", "none")) {
+      assertEquals(query, index.search(keywords(query)), decoded.search(keywords(query)));
+    }
+  }
+
+  public void testDecodeInvalid() {
+    index.add("a", ImmutableList.of("one"));
+    String encoded = index.encode(Functions.<String>identity());
+    for (String invalid : ImmutableList.of("", "2\n1\na\n", encoded.substring(0, 3),
+        encoded.replace("\t", " "), encoded.replace("\t0", "\t5"))) {
+      try {
+        PostingListIndex.decode(invalid, Functions.<String>identity());
+        fail("Decoded " + invalid);
+      } catch (IllegalArgumentException e) {
+        // Expected.
+      }
+    }
+  }
+
+  /** Test that merging indexes keeps the documents of both. */
+  public void testAddAll() {
+    index.add("a", ImmutableList.of("one", "two"));
+    PostingListIndex<String> other = new PostingListIndex<String>();
+    other.add("b", ImmutableList.of("two"));
+    other.add("a", ImmutableList.of("three"));
+    index.addAll(other);
+
+    assertEquals(ImmutableList.of("a", "b"), index.search(keywords("two")));
+    assertEquals(ImmutableList.of("a"), index.search(keywords("one three")));
+  }
+
+  private static List<String> keywords(String query) {
+    return ImmutableList.copyOf(query.split(" "));
+  }
+}
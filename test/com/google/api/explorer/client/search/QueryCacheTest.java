@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.search;
+
+import com.google.common.collect.ImmutableList;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for the memo of recent query results.
+ *
+ */
+public class QueryCacheTest extends TestCase {
+  private final PostingListIndex<String> index = new PostingListIndex<String>();
+  private final QueryCache<String> cache = new QueryCache<String>(index, 2);
+
+  @Override
+  public void setUp() {
+    index.add("urlshortener.url.get", ImmutableList.of("url", "get", "urlshortener"));
+    index.add("urlshortener.url.list", ImmutableList.of("url", "list", "urlshortener"));
+    index.add("plus.people.list", ImmutableList.of("people", "list", "plus"));
+  }
+
+  public void testRepeatedQuery() {
+    assertEquals(ImmutableList.of("urlshortener.url.list", "plus.people.list"),
+        cache.search(ImmutableList.of("list")));
+    assertEquals(ImmutableList.of("urlshortener.url.list", "plus.people.list"),
+        cache.search(ImmutableList.of("list")));
+    assertEquals(1, cache.getHitCount());
+    assertEquals(ImmutableList.of(), cache.search(ImmutableList.<String>of()));
+  }
+
+  /** Test that an extended query refines the results of the query it extends. */
+  public void testExtendedQuery() {
+    cache.search(ImmutableList.of("url"));
+    assertEquals(ImmutableList.of("urlshortener.url.list"),
+        cache.search(ImmutableList.of("url", "list")));
+    assertEquals(ImmutableList.of(), cache.search(ImmutableList.of("url", "people")));
+    assertEquals(ImmutableList.of(), cache.search(ImmutableList.of("url", "none")));
+    assertEquals(3, cache.getRefinementCount());
+
+    // The least recently used query was forgotten.
+    cache.search(ImmutableList.of("url", "list"));
+    assertEquals(0, cache.getHitCount());
+  }
+
+  /** Test that changes to the index invalidate the remembered results. */
+  public void testIndexChanged() {
+    cache.search(ImmutableList.of("list"));
+    index.add("plus.activities.list", ImmutableList.of("activities", "list", "plus"));
+    assertEquals(
+        ImmutableList.of("urlshortener.url.list", "plus.people.list", "plus.activities.list"),
+        cache.search(ImmutableList.of("list")));
+
+    index.remove("urlshortener.url.list");
+    assertEquals(ImmutableList.of("plus.people.list", "plus.activities.list"),
+        cache.search(ImmutableList.of("list")));
+    assertEquals(ImmutableList.of("plus.people.list", "plus.activities.list"),
+        cache.search(ImmutableList.of("plus", "list")));
+    assertEquals(0, cache.getHitCount());
+  }
+
+  /** Test random sequences of queries against searching the index directly. */
+  public void testRandomQueries() {
+    Random random = new Random(5);
+    PostingListIndex<String> randomIndex = new PostingListIndex<String>();
+    QueryCache<String> randomCache = new QueryCache<String>(randomIndex, 4);
+    for (int i = 0; i < 300; i++) {
+      randomIndex.add("d" + i, ImmutableList.of(
+          "a" + random.nextInt(3), "b" + random.nextInt(3), "c" + random.nextInt(3)));
+    }
+    for (int i = 0; i < 500; i++) {
+      ImmutableList.Builder<String> query = ImmutableList.builder();
+      for (String prefix : ImmutableList.of("a", "b", "c")) {
+        if (random.nextBoolean()) {
+          query.add(prefix + random.nextInt(3));
+        }
+      }
+      List<String> keywords = query.build();
+      assertEquals(keywords.toString(), randomIndex.search(keywords),
+          randomCache.search(keywords));
+    }
+    assertTrue(randomCache.getHitCount() > 0);
+    assertTrue(randomCache.getRefinementCount() > 0);
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.search;
+
+import com.google.api.explorer.client.base.ApiMethod;
+import com.google.api.explorer.client.base.ApiService;
+import com.google.api.explorer.client.base.Schema;
+import com.google.api.explorer.client.search.SchemaFieldIndex.SchemaFields;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import junit.framework.TestCase;
+
+import org.easymock.EasyMock;
+
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Tests for the index of request and response schema fields.
+ *
+ */
+public class SchemaFieldIndexTest extends TestCase {
+
+  public void testSearch() {
+    Map<String, SchemaFields> schemas = Maps.newHashMap();
+    schemas.put("Url", new SchemaFields()
+        .addField("id").addField("shortUrl").addField("analytics").addReference("Analytics"));
+    schemas.put("Analytics", new SchemaFields().addField("allTime").addReference("Snapshot"));
+    schemas.put("Snapshot", new SchemaFields().addField("shortUrlClicks"));
+    schemas.put("UrlHistory", new SchemaFields().addField("etag").addReference("Url"));
+    schemas.put("Comment", new SchemaFields()
+        .addField("inReplyTo").addReference("Comment").addReference("Unknown"));
+
+    Map<String, ImmutableList<String>> methods = Maps.newLinkedHashMap();
+    methods.put("url.get", ImmutableList.of("Url"));
+    methods.put("url.insert", ImmutableList.of("Url", "Url"));
+    methods.put("url.list", ImmutableList.of("UrlHistory"));
+    methods.put("comments.get", ImmutableList.of("Comment"));
+    methods.put("other", ImmutableList.of("Unknown"));
+    SchemaFieldIndex<String> index = new SchemaFieldIndex<String>(schemas, methods);
+
+    assertEquals(ImmutableList.of("url.get", "url.insert", "url.list"), index.search("shorturl"));
+    assertEquals(
+        ImmutableList.of("url.get", "url.insert", "url.list"), index.search("shorturlclicks"));
+    assertEquals(ImmutableList.of("url.get", "url.insert", "url.list"), index.search("shortUrl"));
+    assertEquals(ImmutableList.of("url.list"), index.search("etag"));
+    assertEquals(ImmutableList.of("url.list"), index.search("ETag"));
+    assertEquals(ImmutableList.of("comments.get"), index.search("inreplyto"));
+    assertEquals(ImmutableList.of(), index.search("none"));
+    assertEquals(7, index.getKeywordCount());
+  }
+
+  public void testForService() {
+    Schema id = EasyMock.createNiceMock(Schema.class);
+    Schema shortUrl = EasyMock.createNiceMock(Schema.class);
+    Schema url = EasyMock.createNiceMock(Schema.class);
+    EasyMock.expect(url.getId()).andReturn("Url").anyTimes();
+    EasyMock.expect(url.getProperties())
+        .andReturn(ImmutableMap.of("id", id, "shortUrl", shortUrl)).anyTimes();
+
+    Schema urlRef = EasyMock.createNiceMock(Schema.class);
+    EasyMock.expect(urlRef.getRef()).andReturn("Url").anyTimes();
+    Schema items = EasyMock.createNiceMock(Schema.class);
+    EasyMock.expect(items.getItems()).andReturn(urlRef).anyTimes();
+    Schema history = EasyMock.createNiceMock(Schema.class);
+    EasyMock.expect(history.getId()).andReturn("UrlHistory").anyTimes();
+    EasyMock.expect(history.getProperties()).andReturn(ImmutableMap.of("items", items)).anyTimes();
+
+    ApiMethod get = EasyMock.createNiceMock(ApiMethod.class);
+    ApiMethod list = EasyMock.createNiceMock(ApiMethod.class);
+    ApiService service = EasyMock.createNiceMock(ApiService.class);
+    EasyMock.expect(service.getSchemas())
+        .andReturn(ImmutableMap.of("Url", url, "UrlHistory", history)).anyTimes();
+    EasyMock.expect(service.allMethods())
+        .andReturn(ImmutableMap.of("url.get", get, "url.list", list)).anyTimes();
+    EasyMock.expect(service.responseSchema(get)).andReturn(url).anyTimes();
+    EasyMock.expect(service.responseSchema(list)).andReturn(history).anyTimes();
+    EasyMock.replay(id, shortUrl, url, urlRef, items, history, get, list, service);
+
+    SchemaFieldIndex<ApiMethod> index = SchemaFieldIndex.forService(service);
+    assertEquals(ImmutableList.of(get, list), index.search("shorturl"));
+    assertEquals(ImmutableList.of(list), index.search("items"));
+  }
+
+  /** Test that random ascending lists decode to themselves. */
+  public void testCompressedPostings() {
+    Random random = new Random(13);
+    for (int i = 0; i < 200; i++) {
+      int[] ids = new int[random.nextInt(50)];
+      int id = random.nextInt(3) - 1;
+      for (int j = 0; j < ids.length; j++) {
+        id += 1 + random.nextInt(j % 5 == 0 ? 1 << random.nextInt(28) : 100);
+        ids[j] = id;
+      }
+
+      CompressedPostings postings = CompressedPostings.of(ids, ids.length);
+      assertEquals(ids.length, postings.size());
+      assertTrue(postings.getByteCount() <= ids.length * 5);
+      int[] decoded = postings.decode();
+      assertEquals(ids.length, decoded.length);
+      for (int j = 0; j < ids.length; j++) {
+        assertEquals(ids[j], decoded[j]);
+      }
+    }
+
+    assertEquals(3, CompressedPostings.of(new int[] {0, 1, 127}, 3).getByteCount());
+    assertEquals(2, CompressedPostings.of(new int[] {128}, 1).getByteCount());
+    try {
+      CompressedPostings.of(new int[] {2, 2}, 2);
+      fail("Accepted repeated ids");
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+  }
+}
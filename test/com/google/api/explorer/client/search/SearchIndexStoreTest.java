@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.search;
+
+import com.google.api.explorer.client.history.HistoryStorage;
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import junit.framework.TestCase;
+
+import java.util.Map;
+
+/**
+ * Tests for the persistence of search index segments.
+ *
+ */
+public class SearchIndexStoreTest extends TestCase {
+  private final FakeStorage storage = new FakeStorage();
+  private final SearchIndexStore<String> store = new SearchIndexStore<String>(
+      storage, Functions.<String>identity(), new Function<String, String>() {
+        @Override
+        public String apply(String descriptor) {
+          return descriptor.startsWith("removed") ? null : descriptor;
+        }
+      });
+
+  public void testLoadMatchingEtag() {
+    PostingListIndex<String> segment = new PostingListIndex<String>();
+    segment.add("urlshortener.url.get", ImmutableList.of("url", "get"));
+    assertTrue(store.save("urlshortener:v1", "\"etag1\"", segment));
+
+    PostingListIndex<String> loaded = store.load("urlshortener:v1", "\"etag1\"");
+    assertEquals(
+        ImmutableList.of("urlshortener.url.get"), loaded.search(ImmutableList.of("url", "get")));
+
+    // A changed ETag means the source must be indexed again.
+    assertNull(store.load("urlshortener:v1", "\"etag2\""));
+    assertNull(store.load("plus:v1", "\"etag1\""));
+  }
+
+  /** Test that segments which cannot be read are dropped. */
+  public void testUnreadableSegmentDropped() {
+    PostingListIndex<String> segment = new PostingListIndex<String>();
+    segment.add("removed.method", ImmutableList.of("removed"));
+    store.save("plus:v1", "e", segment);
+
+    assertNull(store.load("plus:v1", "e"));
+    assertTrue(storage.values.isEmpty());
+  }
+
+  /** Test that a full storage leaves nothing stored. */
+  public void testStorageFull() {
+    PostingListIndex<String> segment = new PostingListIndex<String>();
+    segment.add("a", ImmutableList.of("one"));
+    storage.full = true;
+
+    assertFalse(store.save("plus:v1", "e", segment));
+    assertNull(store.load("plus:v1", "e"));
+  }
+
+  private static class FakeStorage implements HistoryStorage {
+    final Map<String, String> values = Maps.newHashMap();
+    boolean full = false;
+
+    @Override
+    public String getItem(String key) {
+      return values.get(key);
+    }
+
+    @Override
+    public void setItem(String key, String value) {
+      if (full) {
+        throw new RuntimeException("Quota exceeded");
+      }
+      values.put(key, value);
+    }
+
+    @Override
+    public void removeItem(String key) {
+      values.remove(key);
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2012 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.google.api.explorer.client.search;
+
+import com.google.api.explorer.client.search.SearchRanker.Field;
+import com.google.api.explorer.client.search.SearchRanker.Page;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+/**
+ * Tests for the relevance ranking of search results.
+ *
+ */
+public class SearchRankerTest extends TestCase {
+  private final SearchRanker<String> ranker = new SearchRanker<String>();
+
+  @Override
+  public void setUp() {
+    add("photos.list", "photos list", "Returns the photos of a user.");
+    add("users.get", "users get", "Returns a user, including the list of their photos.");
+    add("activities.list", "activities list", "Lists the activities of a user.");
+    add("comments.insert", "comments insert", "Adds a comment to an activity.");
+  }
+
+  /** Test that matches in names rank above matches in descriptions. */
+  public void testNamesBeatDescriptions() {
+    assertEquals(ImmutableList.of("photos.list", "users.get"),
+        rank(ImmutableList.of("users.get", "photos.list"), "photos", 0, 10).getResults());
+  }
+
+  /** Test that an exact match of the id ranks first. */
+  public void testExactIdFirst() {
+    List<String> all =
+        ImmutableList.of("photos.list", "users.get", "activities.list", "comments.insert");
+    assertEquals("activities.list",
+        rank(all, "activities.list", 0, 10).getResults().get(0));
+  }
+
+  /** Test that a removed document no longer counts in the ranking. */
+  public void testRemove() {
+    assertTrue(ranker.remove("photos.list"));
+    assertFalse(ranker.remove("photos.list"));
+    assertEquals(3, ranker.getDocumentCount());
+
+    assertEquals(ImmutableList.of("users.get", "photos.list"),
+        rank(ImmutableList.of("photos.list", "users.get"), "photos", 0, 10).getResults());
+  }
+
+  /** Test that the pages of results follow the complete ranking. */
+  public void testPaging() {
+    List<String> candidates = Lists.newArrayList();
+    for (int i = 0; i < 100; i++) {
+      String id = "method" + i;
+      StringBuilder description = new StringBuilder();
+      for (int j = 0; j < i % 7; j++) {
+        description.append("list ");
+      }
+      add(id, id, description.toString());
+      candidates.add(id);
+    }
+
+    Page<String> all = rank(candidates, "list", 0, 100);
+    assertEquals(100, all.getResults().size());
+    assertFalse(all.hasMore());
+
+    List<String> paged = Lists.newArrayList();
+    for (int offset = 0; offset < 100; offset += 30) {
+      Page<String> page = rank(candidates, "list", offset, 30);
+      assertEquals(100, page.getTotalMatches());
+      assertEquals(offset + 30 < 100, page.hasMore());
+      paged.addAll(page.getResults());
+    }
+    assertEquals(all.getResults(), paged);
+
+    // Equal scores keep the order of the candidates, and unknown candidates score zero.
+    assertEquals(ImmutableList.of("method1", "method0", "unknown"),
+        rank(ImmutableList.of("method0", "unknown", "method1"), "list", 0, 3).getResults());
+  }
+
+  private Page<String> rank(List<String> candidates, String query, int offset, int limit) {
+    return ranker.rank(
+        candidates, ImmutableList.copyOf(query.split(" ")), query, offset, limit);
+  }
+
+  private void add(String id, String name, String description) {
+    ranker.add(id, id, ImmutableMap.of(
+        Field.NAME, ImmutableList.copyOf(name.split(" ")),
+        Field.DESCRIPTION, ImmutableList.copyOf(description.toLowerCase().split("[ .,]+"))));
+  }
+}